@@ -0,0 +1,211 @@
+package com.example.prodqapi.benchmark;
+
+import com.example.prodqapi.FileProductionItem.ProductionFileInfo;
+import com.example.prodqapi.accessorieItem.AccessorieItem;
+import com.example.prodqapi.material.Material;
+import com.example.prodqapi.materialGroup.MaterialGroup;
+import com.example.prodqapi.materialReservation.MaterialReservation;
+import com.example.prodqapi.materialType.MaterialType;
+import com.example.prodqapi.productionQueueItem.ProductionQueueItem;
+import com.example.prodqapi.supplier.Supplier;
+import com.example.prodqapi.tool.Tool;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic data for the JMH benchmarks.
+ * Every generator takes a seed, so runs are comparable across machines and commits.
+ * Roughly a third of the resources are below their minimum stock.
+ */
+public final class SyntheticData {
+
+    private static final String[] MATERIAL_GROUPS = {"Plate", "Rod", "Tube"};
+    private static final String[] ORDER_NAMES = {"Inframet", "Zamówienie żółć", "ABC Sp. z o.o.", "Łożysko/wał", "Tłocznik 2025"};
+
+    private SyntheticData() {
+    }
+
+    public static List<Supplier> suppliers(int count) {
+        List<Supplier> suppliers = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            suppliers.add(Supplier.builder().id(i).name("Supplier " + i).companyName("Company " + i).build());
+        }
+        return suppliers;
+    }
+
+    public static List<Material> materials(int count, List<Supplier> suppliers, long seed) {
+        Random random = new Random(seed);
+        MaterialType type = MaterialType.builder().id(1).name("PA6").density(1.14f).build();
+        List<MaterialGroup> groups = new ArrayList<>();
+        for (int i = 0; i < MATERIAL_GROUPS.length; i++) {
+            groups.add(MaterialGroup.builder().id(i + 1).name(MATERIAL_GROUPS[i] + " PA6")
+                    .type(MATERIAL_GROUPS[i]).materialType(type).build());
+        }
+
+        List<Material> materials = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            MaterialGroup group = groups.get(random.nextInt(groups.size()));
+            float min = 5 + random.nextInt(20);
+            materials.add(Material.builder()
+                    .id(i)
+                    .name(group.getName() + ": " + (10 + random.nextInt(90)) + "x" + (100 + random.nextInt(900)))
+                    .materialGroup(group)
+                    .minQuantity(min)
+                    .stockQuantity(random.nextInt((int) min * 3))
+                    .totalStockLength(random.nextFloat() * min * 3000)
+                    .quantityInTransit(random.nextInt(4) == 0 ? random.nextInt(5) : 0)
+                    .price(BigDecimal.valueOf(10 + random.nextInt(500)))
+                    .diameter("Plate".equals(group.getType()) ? 0 : 20 + random.nextInt(200))
+                    .x(100 + random.nextInt(900))
+                    .y(100 + random.nextInt(900))
+                    .z(5 + random.nextInt(50))
+                    .preferredSupplier(pick(suppliers, random))
+                    .build());
+        }
+        return materials;
+    }
+
+    public static List<Tool> tools(int count, List<Supplier> suppliers, long seed) {
+        Random random = new Random(seed);
+        List<Tool> tools = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            float min = 2 + random.nextInt(10);
+            tools.add(Tool.builder()
+                    .id(i)
+                    .name("Frez VHM D" + (2 + random.nextInt(20)))
+                    .toolID("T" + i)
+                    .minQuantity(min)
+                    .quantity(random.nextInt((int) min * 3))
+                    .quantityInTransit(random.nextInt(4) == 0 ? 1 : 0)
+                    .price(BigDecimal.valueOf(50 + random.nextInt(300)))
+                    .preferredSupplier(pick(suppliers, random))
+                    .build());
+        }
+        return tools;
+    }
+
+    public static List<AccessorieItem> accessorieItems(int count, List<Supplier> suppliers, long seed) {
+        Random random = new Random(seed);
+        List<AccessorieItem> items = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            float min = 5 + random.nextInt(50);
+            items.add(AccessorieItem.builder()
+                    .id(i)
+                    .name("Śruba M" + (3 + random.nextInt(10)) + "x" + (10 + random.nextInt(50)))
+                    .minQuantity(min)
+                    .quantity(random.nextInt((int) min * 3))
+                    .price(BigDecimal.valueOf(1 + random.nextInt(20)))
+                    .preferredSupplier(pick(suppliers, random))
+                    .build());
+        }
+        return items;
+    }
+
+    /**
+     * Rows as returned by MaterialReservationRepository.sumReservedQuantityGroupedByMaterial:
+     * [materialId, reservedSum]
+     */
+    public static List<Object[]> reservedSums(List<Material> materials, long seed) {
+        Random random = new Random(seed);
+        List<Object[]> rows = new ArrayList<>();
+        for (Material material : materials) {
+            if (random.nextBoolean()) {
+                rows.add(new Object[]{material.getId(), (double) (1 + random.nextInt(10))});
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Rows as returned by MaterialReservationRepository.findReservedProductionRows:
+     * [materialId, productionId, orderName, partName, deadline, deadlineDate]
+     */
+    public static List<Object[]> reservedProductionRows(List<Object[]> reservedSums, long seed) {
+        Random random = new Random(seed);
+        LocalDate today = LocalDate.now();
+        List<Object[]> rows = new ArrayList<>();
+        int productionId = 1;
+        for (Object[] sum : reservedSums) {
+            int reservations = 1 + random.nextInt(3);
+            for (int i = 0; i < reservations; i++) {
+                LocalDate deadline = today.plusDays(random.nextInt(30) - 5);
+                rows.add(new Object[]{sum[0], productionId, ORDER_NAMES[random.nextInt(ORDER_NAMES.length)],
+                        "Part " + productionId, deadline.toString(), deadline});
+                productionId++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Machine queue: programs with material reservations and MPF/PDF attachments
+     */
+    public static List<ProductionQueueItem> queue(int programs, int filesPerProgram, long seed) {
+        Random random = new Random(seed);
+        List<Material> materials = materials(Math.max(1, programs / 4), suppliers(1), seed);
+        List<ProductionQueueItem> queue = new ArrayList<>(programs);
+        long fileId = 1;
+        for (int i = 1; i <= programs; i++) {
+            ProductionQueueItem program = ProductionQueueItem.builder()
+                    .id(i)
+                    .orderName(ORDER_NAMES[random.nextInt(ORDER_NAMES.length)] + " " + i)
+                    .partName("Korpus łożyska " + i + (random.nextBoolean() ? "_MAC" + random.nextInt(5) : ""))
+                    .quantity(1 + random.nextInt(50))
+                    .camTime(random.nextInt(10) + "h " + random.nextInt(60) + "min")
+                    .deadline(LocalDate.now().plusDays(random.nextInt(30)).toString())
+                    .author("operator" + random.nextInt(5))
+                    .additionalInfo(random.nextInt(3) == 0 ? "Uwaga na mocowanie" : null)
+                    .queueType("1")
+                    .order(i * 1000)
+                    .files(new ArrayList<>())
+                    .build();
+            program.setMaterialReservation(MaterialReservation.builder()
+                    .isCustom(false)
+                    .material(materials.get(random.nextInt(materials.size())))
+                    .reservedQuantity(1 + random.nextInt(5))
+                    .build());
+
+            for (int f = 0; f < filesPerProgram; f++) {
+                String ext = f == filesPerProgram - 1 && random.nextBoolean() ? ".pdf" : ".MPF";
+                program.getFiles().add(ProductionFileInfo.builder()
+                        .id(fileId++)
+                        .fileName(fileName(random, i, f) + ext)
+                        .completed(random.nextInt(3) == 0)
+                        .order(f)
+                        .build());
+            }
+            queue.add(program);
+        }
+        return queue;
+    }
+
+    /**
+     * File names in the shapes operators actually upload (Polish characters, MAC suffixes, long names)
+     */
+    public static List<String> fileNames(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(fileName(random, i, i % 7) + (random.nextInt(4) == 0 ? ".pdf" : ".MPF"));
+        }
+        return names;
+    }
+
+    private static String fileName(Random random, int program, int index) {
+        return switch (random.nextInt(4)) {
+            case 0 -> "Obróbka zgrubna " + program + "_" + index;
+            case 1 -> "KORPUS_" + program + "_OP" + index + "_MAC" + random.nextInt(9) + "_A_V" + random.nextInt(5);
+            case 2 -> "bardzo długa nazwa programu wykańczającego żłobienie " + program + "_MAC" + random.nextInt(9);
+            default -> "P" + program + "-" + index;
+        };
+    }
+
+    private static <T> T pick(List<T> values, Random random) {
+        // A few resources without a preferred supplier, like in real data
+        return values.isEmpty() || random.nextInt(10) == 0 ? null : values.get(random.nextInt(values.size()));
+    }
+}
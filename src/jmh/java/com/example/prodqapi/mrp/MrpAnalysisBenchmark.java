@@ -0,0 +1,119 @@
+package com.example.prodqapi.mrp;
+
+import com.example.prodqapi.accessorieItem.AccessorieItem;
+import com.example.prodqapi.accessorieItem.AccessorieItemRepository;
+import com.example.prodqapi.benchmark.SyntheticData;
+import com.example.prodqapi.material.Material;
+import com.example.prodqapi.material.MaterialRepository;
+import com.example.prodqapi.materialReservation.MaterialReservationRepository;
+import com.example.prodqapi.materialReservation.ReservationStatus;
+import com.example.prodqapi.order.OrderRepository;
+import com.example.prodqapi.supplier.Supplier;
+import com.example.prodqapi.supplier.SupplierRepository;
+import com.example.prodqapi.tool.Tool;
+import com.example.prodqapi.tool.ToolRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+import static org.mockito.Mockito.when;
+
+/**
+ * Full MRP run (analysis of all resource types + grouping/diffing) on synthetic data.
+ * Repositories are stubbed, so this measures the in-memory work only - the
+ * query count is constant and not part of the benchmark.
+ * <ul>
+ *   <li>{@code FIRST_RUN} - no pending suggestions yet, every group and analysis is new</li>
+ *   <li>{@code UNCHANGED} - the previous run's suggestions are pending and nothing changed</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MrpAnalysisBenchmark {
+
+    public enum Scenario { FIRST_RUN, UNCHANGED }
+
+    /**
+     * Number of resources of each type (materials, tools, accessories)
+     */
+    @Param({"1000", "10000"})
+    public int resources;
+
+    @Param({"FIRST_RUN", "UNCHANGED"})
+    public Scenario scenario;
+
+    private MrpService mrpService;
+    private MrpAnalysisEngine analysisEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Supplier> suppliers = SyntheticData.suppliers(25);
+        List<Material> materials = SyntheticData.materials(resources, suppliers, 1L);
+        List<Tool> tools = SyntheticData.tools(resources, suppliers, 2L);
+        List<AccessorieItem> accessories = SyntheticData.accessorieItems(resources, suppliers, 3L);
+        List<Object[]> reservedSums = SyntheticData.reservedSums(materials, 4L);
+        List<Object[]> productionRows = SyntheticData.reservedProductionRows(reservedSums, 5L);
+
+        MaterialRepository materialRepository = stub(MaterialRepository.class);
+        when(materialRepository.findAllForMrp()).thenReturn(materials);
+        ToolRepository toolRepository = stub(ToolRepository.class);
+        when(toolRepository.findAllForMrp()).thenReturn(tools);
+        AccessorieItemRepository accessorieItemRepository = stub(AccessorieItemRepository.class);
+        when(accessorieItemRepository.findAllForMrp()).thenReturn(accessories);
+        MaterialReservationRepository reservationRepository = stub(MaterialReservationRepository.class);
+        when(reservationRepository.sumReservedQuantityGroupedByMaterial(ReservationStatus.RESERVED)).thenReturn(reservedSums);
+        when(reservationRepository.findReservedProductionRows(ReservationStatus.RESERVED)).thenReturn(productionRows);
+
+        MrpOrderSuggestionGroupRepository suggestionGroupRepository = stub(MrpOrderSuggestionGroupRepository.class);
+        when(suggestionGroupRepository.findPendingWithAnalysesByResourceTypes(any())).thenReturn(new ArrayList<>());
+
+        analysisEngine = new MrpAnalysisEngine(materialRepository, reservationRepository, toolRepository,
+                accessorieItemRepository, new ObjectMapper());
+        MrpResultWriter resultWriter = stub(MrpResultWriter.class);
+        mrpService = new MrpService(
+                stub(MrpAnalysisResultRepository.class),
+                suggestionGroupRepository,
+                materialRepository,
+                toolRepository,
+                accessorieItemRepository,
+                stub(SupplierRepository.class),
+                stub(OrderRepository.class),
+                analysisEngine,
+                resultWriter,
+                new MrpResultReconciler(suggestionGroupRepository, resultWriter),
+                new MrpDirtyTracker(),
+                stub(MrpDashboardService.class));
+
+        if (scenario == Scenario.UNCHANGED) {
+            List<MrpOrderSuggestionGroup> previous = mrpService.runFullAnalysisWithGrouping();
+            when(suggestionGroupRepository.findPendingWithAnalysesByResourceTypes(any())).thenReturn(previous);
+        }
+    }
+
+    /**
+     * Stub-only mocks: no invocation recording, so memory stays flat across iterations
+     */
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+
+    @Benchmark
+    public List<MrpOrderSuggestionGroup> fullAnalysisWithGrouping() {
+        return mrpService.runFullAnalysisWithGrouping();
+    }
+
+    @Benchmark
+    public List<MrpAnalysisResult> analyzeMaterials() {
+        return analysisEngine.analyzeMaterials();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.prodqapi.productionQueueItem;
+
+import com.example.prodqapi.benchmark.SyntheticData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Machine queue file round trip: generating the .txt file for a queue and
+ * parsing the operator-edited [OK]/[NOK] statuses back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueueFileBenchmark {
+
+    @Param({"50", "500"})
+    public int programs;
+
+    @Param({"5"})
+    public int filesPerProgram;
+
+    private MountIoGateway mountIoGateway;
+    private MachineQueueFileGeneratorService generatorService;
+    private List<ProductionQueueItem> queue;
+    private List<String> queueFileLines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mountIoGateway = new MountIoGateway(1, 1, 3000, 3, 30_000, System::currentTimeMillis);
+        FileSystemService fileSystemService = new FileSystemService(null, new SanitizerFactory(), mountIoGateway, 120_000);
+        generatorService = new MachineQueueFileGeneratorService(null, null, fileSystemService, mountIoGateway, 120_000);
+        queue = SyntheticData.queue(programs, filesPerProgram, 42L);
+        queueFileLines = generatorService.buildFileContent(queue).lines().toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mountIoGateway.stop();
+    }
+
+    @Benchmark
+    public String buildFileContent() {
+        return generatorService.buildFileContent(queue);
+    }
+
+    @Benchmark
+    public List<QueueFileStatusIngester.QueueFileStatus> parseQueueFile() {
+        return QueueFileStatusIngester.parseQueueFile(queueFileLines);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.prodqapi.productionQueueItem;
+
+import com.example.prodqapi.benchmark.SyntheticData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InframetMpfSanitizer#sanitize} over a batch of realistic file, order and part names.
+ * Called for every file and queue item on each queue file generation and directory sync.
+ * <ul>
+ *   <li>{@code sanitize} - the application setup: names repeat, so they are served from the memo</li>
+ *   <li>{@code sanitizeUncached} - memo disabled, every name is transliterated and truncated</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SanitizerBenchmark {
+
+    private static final Map<String, Object> OPTIONS = Map.of("maxLength", 24);
+
+    @Param({"1000"})
+    public int names;
+
+    private InframetMpfSanitizer sanitizer;
+    private InframetMpfSanitizer uncachedSanitizer;
+    private List<String> fileNames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sanitizer = new InframetMpfSanitizer();
+        uncachedSanitizer = new InframetMpfSanitizer(0);
+        fileNames = SyntheticData.fileNames(names, 7L);
+    }
+
+    @Benchmark
+    public void sanitize(Blackhole blackhole) {
+        for (String name : fileNames) {
+            blackhole.consume(sanitizer.sanitize(name, OPTIONS));
+        }
+    }
+
+    @Benchmark
+    public void sanitizeUncached(Blackhole blackhole) {
+        for (String name : fileNames) {
+            blackhole.consume(uncachedSanitizer.sanitize(name, OPTIONS));
+        }
+    }
+}
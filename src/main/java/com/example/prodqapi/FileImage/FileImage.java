@@ -2,9 +2,12 @@
 
 package com.example.prodqapi.FileImage;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.*;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 
 
 @Getter
@@ -13,7 +16,9 @@ import jakarta.persistence.*;
 @NoArgsConstructor
 @Entity
 @Builder
-@Table(name = "_fileImage")
+@Table(name = "_fileImage", indexes = @Index(name = "idx_file_image_content_hash", columnList = "content_hash"))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@BatchSize(size = 50) // Leniwe obrazki list (maszyny, grupy) ładowane po 50 w jednym zapytaniu, nie po jednym
 public class FileImage {
     @Id
     @GeneratedValue(strategy = jakarta.persistence.GenerationType.IDENTITY)
@@ -22,7 +27,21 @@ public class FileImage {
     private String name;
 
     private String type;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash; // SHA-256 zawartości - klucz pliku w ImageStore
+
+    private Long size;
+
+    @JsonIgnore
     @Lob
     @Column(length = 100000) // Ustaw maksymalną długość kolumny
-    private byte[] imageData;
+    private byte[] imageData; // Po migracji do ImageStore pole do usuniecia
+
+    /**
+     * Address of the image (append ?size=N for a thumbnail)
+     */
+    public String getUrl() {
+        return contentHash != null ? "/api/image/" + contentHash : null;
+    }
 }
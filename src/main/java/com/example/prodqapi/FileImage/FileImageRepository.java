@@ -1,8 +1,20 @@
 package com.example.prodqapi.FileImage;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
-public interface FileImageRepository extends JpaRepository<FileImage, Long> {
+public interface FileImageRepository extends JpaRepository<FileImage, Integer> {
+
+    // Typ MIME obrazu z ImageStore (ten sam plik moze byc podpiety pod kilka encji)
+    @Query("SELECT f.type FROM FileImage f WHERE f.contentHash = :contentHash")
+    List<String> findTypesByContentHash(@Param("contentHash") String contentHash);
+
+    // Obrazy zapisane jeszcze w kolumnie imageData - do przeniesienia do ImageStore
+    @Query("SELECT f.id FROM FileImage f WHERE f.contentHash IS NULL AND f.imageData IS NOT NULL")
+    List<Integer> findLegacyImageIds();
 }
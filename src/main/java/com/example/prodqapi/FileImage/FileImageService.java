@@ -6,17 +6,21 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 @Service
 @AllArgsConstructor
 public class FileImageService {
 
+    private final ImageStore imageStore;
+
     public FileImage createFile(MultipartFile file) throws IOException {
 
         return FileImage.builder()
                 .name(file.getOriginalFilename())
                 .type(file.getContentType())
-                .imageData(file.getBytes())
+                .contentHash(store(file))
+                .size(file.getSize())
                 .build();
     }
 
@@ -27,10 +31,16 @@ public class FileImageService {
         }
         oldFileImage.setName(file.getOriginalFilename());
         oldFileImage.setType(file.getContentType());
-        oldFileImage.setImageData(file.getBytes());
+        oldFileImage.setContentHash(store(file));
+        oldFileImage.setSize(file.getSize());
+        oldFileImage.setImageData(null);
 
         return oldFileImage;
     }
 
-
+    private String store(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return imageStore.store(in);
+        }
+    }
 }
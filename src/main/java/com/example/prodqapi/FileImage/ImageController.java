@@ -0,0 +1,50 @@
+package com.example.prodqapi.FileImage;
+
+import com.example.prodqapi.common.FileDownloadResponder;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Images from the {@link ImageStore} by content hash, optionally as thumbnails (?size=N).
+ * The URL changes with the content, so responses are cacheable for a year.
+ */
+@RestController
+@RequestMapping("/api/image")
+public class ImageController {
+
+    private final ImageStore imageStore;
+    private final FileImageRepository fileImageRepository;
+    private final FileDownloadResponder fileDownloadResponder;
+
+    public ImageController(ImageStore imageStore, FileImageRepository fileImageRepository,
+                           FileDownloadResponder fileDownloadResponder) {
+        this.imageStore = imageStore;
+        this.fileImageRepository = fileImageRepository;
+        this.fileDownloadResponder = fileDownloadResponder;
+    }
+
+    @GetMapping("/{contentHash}")
+    public ResponseEntity<Resource> getImage(@PathVariable String contentHash,
+                                             @RequestParam(required = false) Integer size) throws IOException {
+        if (size != null && size > 0) {
+            Optional<Path> thumbnail = imageStore.findThumbnail(contentHash, size);
+            if (thumbnail.isPresent()) {
+                return fileDownloadResponder.immutable(thumbnail.get(), MediaType.IMAGE_PNG_VALUE,
+                        contentHash + "-" + imageStore.thumbnailSize(size));
+            }
+        }
+        Optional<Path> original = imageStore.find(contentHash);
+        if (original.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        List<String> types = fileImageRepository.findTypesByContentHash(contentHash);
+        return fileDownloadResponder.immutable(original.get(), types.isEmpty() ? null : types.get(0), contentHash);
+    }
+}
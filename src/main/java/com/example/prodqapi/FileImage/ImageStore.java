@@ -0,0 +1,231 @@
+package com.example.prodqapi.FileImage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed image files on disk (app.image-store.dir), keyed by SHA-256 of the content.
+ * <p>
+ * The same image uploaded twice is stored once. Stored files never change, so they can be
+ * cached by clients forever. Thumbnails are rendered on first request and kept under
+ * thumbs/{size}/ next to the originals.
+ * <p>
+ * Rendering reads the dimensions first and skips images above app.image-store.max-pixels. It decodes
+ * with source subsampling close to the target size, so a thumbnail never needs a full-size bitmap.
+ * At most app.image-store.max-concurrent-renders thumbnails are rendered at once.
+ */
+@Component
+public class ImageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageStore.class);
+
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final int MIN_THUMBNAIL_SIZE = 32;
+    private static final long RENDER_WAIT_SECONDS = 10;
+
+    private final Path baseDir;
+    private final int maxThumbnailSize;
+    private final long maxPixels;
+    private final Semaphore renderPermits;
+
+    public ImageStore(@Value("${app.image-store.dir:uploads/images}") String baseDir,
+                      @Value("${app.image-store.max-thumbnail-size:1024}") int maxThumbnailSize,
+                      @Value("${app.image-store.max-pixels:40000000}") long maxPixels,
+                      @Value("${app.image-store.max-concurrent-renders:2}") int maxConcurrentRenders) {
+        this.baseDir = Paths.get(baseDir).toAbsolutePath().normalize();
+        this.maxThumbnailSize = maxThumbnailSize;
+        this.maxPixels = maxPixels;
+        this.renderPermits = new Semaphore(Math.max(1, maxConcurrentRenders));
+    }
+
+    /**
+     * Store the content (if not stored yet)
+     *
+     * @return SHA-256 of the content (hex)
+     */
+    public String store(InputStream content) throws IOException {
+        Path tempDir = baseDir.resolve("tmp");
+        Files.createDirectories(tempDir);
+        Path tempFile = tempDir.resolve(UUID.randomUUID() + ".part");
+        try {
+            MessageDigest digest = sha256();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tempFile), digest)) {
+                content.transferTo(out);
+            }
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            Path target = originalPath(contentHash);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                logger.debug("Stored image {}", contentHash);
+            }
+            return contentHash;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Stored original, empty if unknown
+     */
+    public Optional<Path> find(String contentHash) {
+        if (!isContentHash(contentHash)) {
+            return Optional.empty();
+        }
+        Path path = originalPath(contentHash);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * PNG scaled to fit size x size (rounded up to a power of two); rendered once and cached.
+     * Empty if the image is unknown, can't be decoded (e.g. SVG), exceeds the pixel limit or the
+     * renderers stay busy - callers serve the original.
+     */
+    public Optional<Path> findThumbnail(String contentHash, int size) throws IOException {
+        Optional<Path> original = find(contentHash);
+        if (original.isEmpty()) {
+            return Optional.empty();
+        }
+        int boundedSize = thumbnailSize(size);
+        Path thumbnail = baseDir.resolve("thumbs").resolve(String.valueOf(boundedSize))
+                .resolve(contentHash.substring(0, 2)).resolve(contentHash + ".png");
+        if (Files.isRegularFile(thumbnail)) {
+            return Optional.of(thumbnail);
+        }
+
+        try {
+            if (!renderPermits.tryAcquire(RENDER_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Thumbnail renderers busy, serving original of image {}", contentHash);
+                return Optional.empty();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+        try {
+            // Rendered by a request that held the permit before us
+            if (Files.isRegularFile(thumbnail)) {
+                return Optional.of(thumbnail);
+            }
+            return renderThumbnail(original.get(), contentHash, boundedSize, thumbnail);
+        } finally {
+            renderPermits.release();
+        }
+    }
+
+    private Optional<Path> renderThumbnail(Path original, String contentHash, int boundedSize, Path thumbnail) throws IOException {
+        BufferedImage image = readSubsampled(original, contentHash, boundedSize);
+        if (image == null) {
+            return Optional.empty();
+        }
+        BufferedImage scaled = scale(image, boundedSize);
+
+        Files.createDirectories(thumbnail.getParent());
+        Path tempFile = thumbnail.resolveSibling(contentHash + "." + UUID.randomUUID() + ".part");
+        try {
+            ImageIO.write(scaled, "png", tempFile.toFile());
+            Files.move(tempFile, thumbnail, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        logger.debug("Rendered {}px thumbnail of image {}", boundedSize, contentHash);
+        return Optional.of(thumbnail);
+    }
+
+    public static boolean isContentHash(String value) {
+        return value != null && CONTENT_HASH.matcher(value).matches();
+    }
+
+    int thumbnailSize(int requested) {
+        int size = MIN_THUMBNAIL_SIZE;
+        while (size < requested && size < maxThumbnailSize) {
+            size <<= 1;
+        }
+        return Math.min(size, maxThumbnailSize);
+    }
+
+    /**
+     * Decode the image subsampled to no less than size on both sides; null if it can't be
+     * decoded or has more than maxPixels pixels
+     */
+    private BufferedImage readSubsampled(Path original, String contentHash, int size) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    logger.warn("Image {} has {}x{} pixels, above the limit of {} - no thumbnail",
+                            contentHash, width, height, maxPixels);
+                    return null;
+                }
+                int subsampling = Math.max(1, Math.min(width / size, height / size));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private Path originalPath(String contentHash) {
+        return baseDir.resolve(contentHash.substring(0, 2)).resolve(contentHash);
+    }
+
+    private static BufferedImage scale(BufferedImage image, int size) {
+        double ratio = Math.min(1.0, Math.min((double) size / image.getWidth(), (double) size / image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.prodqapi.FileImage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Moves images still stored in the imageData column into the {@link ImageStore} on startup,
+ * one image per transaction, and clears the column.
+ */
+@Component
+public class LegacyImageMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(LegacyImageMigration.class);
+
+    private final FileImageRepository fileImageRepository;
+    private final ImageStore imageStore;
+    private final TransactionTemplate transactionTemplate;
+
+    public LegacyImageMigration(FileImageRepository fileImageRepository, ImageStore imageStore,
+                                TransactionTemplate transactionTemplate) {
+        this.fileImageRepository = fileImageRepository;
+        this.imageStore = imageStore;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        List<Integer> ids = fileImageRepository.findLegacyImageIds();
+        if (ids.isEmpty()) {
+            return;
+        }
+        logger.info("Moving {} images from the database to the image store", ids.size());
+        int migrated = 0;
+        for (Integer id : ids) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> fileImageRepository.findById(id)
+                        .ifPresent(this::moveToStore));
+                migrated++;
+            } catch (RuntimeException e) {
+                logger.error("Error moving image {} to the image store: {}", id, e.getMessage(), e);
+            }
+        }
+        logger.info("Moved {} of {} images to the image store", migrated, ids.size());
+    }
+
+    private void moveToStore(FileImage image) {
+        byte[] data = image.getImageData();
+        if (data == null) {
+            return;
+        }
+        try {
+            image.setContentHash(imageStore.store(new ByteArrayInputStream(data)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        image.setSize((long) data.length);
+        image.setImageData(null);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.prodqapi.FileProductionItem;
+
+/**
+ * Columns needed to serve a program file - without the legacy fileContent blob
+ */
+public interface ProductionFileDownloadView {
+    String getFileName();
+
+    String getFileType();
+
+    String getFilePath();
+
+    String getContentSha256();
+}
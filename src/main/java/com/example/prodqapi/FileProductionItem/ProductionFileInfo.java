@@ -24,6 +24,9 @@ public class ProductionFileInfo {
     private Long fileSize; // Pole przechowujące rozmiar pliku
     private String filePath; // Nowe pole przechowujące ścieżkę do pliku na dysku
 
+    @Column(name = "content_sha256", length = 64)
+    private String contentSha256; // SHA-256 zawartości, liczony raz przy uploadzie (hex)
+
     @Lob
     private byte[] fileContent;// Po udanej migracji pole do usuniecia
 
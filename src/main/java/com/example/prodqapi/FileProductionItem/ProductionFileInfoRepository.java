@@ -5,10 +5,14 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductionFileInfoRepository extends JpaRepository<ProductionFileInfo, Long> {
 
     @Query("SELECT f FROM ProductionFileInfo f LEFT JOIN FETCH f.productionQueueItem")
     List<ProductionFileInfo> findAllWithQueueItem();
+
+    // Metadane do pobrania pliku jednym zapytaniem, bez kolumny fileContent
+    Optional<ProductionFileDownloadView> findDownloadViewById(Long id);
 }
\ No newline at end of file
@@ -40,6 +40,10 @@ public class ProductionFileInfoService {
         return productionFileInfoRepository.findById(id);
     }
 
+    public Optional<ProductionFileDownloadView> findDownloadView(Long id) {
+        return productionFileInfoRepository.findDownloadViewById(id);
+    }
+
     public List<ProductionFileInfo> findAll() {
         return productionFileInfoRepository.findAll();
     }
@@ -24,7 +24,7 @@ public class Accessorie {
 
     private String name;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private FileImage fileImage;
 
     @OneToMany(cascade = CascadeType.ALL)
@@ -75,7 +75,7 @@ public class AccessorieService {
 
         Accessorie accessorie = accessorieReposotory.findById(accessorieID).orElseThrow(() -> new RuntimeException("Accessorie not found"));
 
-        FileImage fileImage = fileImageRepository.findById(Long.valueOf(fileID)).orElseThrow(() -> new RuntimeException("File not found"));
+        FileImage fileImage = fileImageRepository.findById(fileID).orElseThrow(() -> new RuntimeException("File not found"));
 
         accessorie.setFileImage(null);
 
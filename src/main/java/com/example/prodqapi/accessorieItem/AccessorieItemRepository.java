@@ -3,8 +3,10 @@ package com.example.prodqapi.accessorieItem;
 import com.example.prodqapi.material.Material;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 
@@ -12,4 +14,16 @@ import java.util.List;
 public interface AccessorieItemRepository extends JpaRepository<AccessorieItem, Integer> {
     @Query("SELECT a FROM AccessorieItem a WHERE a.quantity < a.minQuantity")
     List<AccessorieItem> findByQuantityLessThanMinQuantity();
+
+    /**
+     * Load all accessorie items with preferred supplier in one query (MRP)
+     */
+    @Query("SELECT a FROM AccessorieItem a LEFT JOIN FETCH a.preferredSupplier")
+    List<AccessorieItem> findAllForMrp();
+
+    /**
+     * Same as {@link #findAllForMrp} restricted to the given ids (incremental MRP)
+     */
+    @Query("SELECT a FROM AccessorieItem a LEFT JOIN FETCH a.preferredSupplier WHERE a.id IN :ids")
+    List<AccessorieItem> findByIdInForMrp(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,99 @@
+package com.example.prodqapi.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+
+/**
+ * Builds download responses for files stored on disk (program files, order documents, images).
+ * <p>
+ * The body is a {@link FileSystemResource}, so Spring MVC streams it in fixed-size chunks and
+ * answers Range requests with 206/416 on its own. ETag (stored SHA-256, or size and modification
+ * time) and Last-Modified let it answer If-None-Match / If-Modified-Since with 304 without
+ * sending the content.
+ */
+@Component
+public class FileDownloadResponder {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileDownloadResponder.class);
+
+    private static final Duration IMMUTABLE_MAX_AGE = Duration.ofDays(365);
+
+    /**
+     * @param contentSha256 stored digest of the content, or null if unknown
+     * @return 404 if the file is missing on disk
+     */
+    public ResponseEntity<Resource> attachment(Path filePath, String fileName, String contentType, String contentSha256) {
+        return respond(filePath, ContentDisposition.attachment().filename(fileName).build(), contentType,
+                contentSha256, CacheControl.empty());
+    }
+
+    /**
+     * Inline response for content that may change under its URL; clients revalidate with the ETag
+     */
+    public ResponseEntity<Resource> inline(Path filePath, String contentType, String eTag) {
+        return respond(filePath, ContentDisposition.inline().build(), contentType, eTag, CacheControl.noCache());
+    }
+
+    /**
+     * Inline response for content that never changes under its URL (content-addressed images);
+     * clients may cache it for a year
+     */
+    public ResponseEntity<Resource> immutable(Path filePath, String contentType, String eTag) {
+        return respond(filePath, ContentDisposition.inline().build(), contentType, eTag,
+                CacheControl.maxAge(IMMUTABLE_MAX_AGE).cachePrivate().immutable());
+    }
+
+    private ResponseEntity<Resource> respond(Path filePath, ContentDisposition contentDisposition, String contentType,
+                                             String strongETag, CacheControl cacheControl) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        } catch (IOException e) {
+            logger.warn("File for download not found: {}", filePath);
+            return ResponseEntity.notFound().build();
+        }
+        if (!attributes.isRegularFile()) {
+            logger.warn("Path for download is not a file: {}", filePath);
+            return ResponseEntity.notFound().build();
+        }
+
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String eTag = strongETag != null
+                ? "\"" + strongETag + "\""
+                : "W/\"" + Long.toHexString(attributes.size()) + "-" + Long.toHexString(lastModified) + "\"";
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition.toString())
+                .contentType(mediaTypeOf(contentType))
+                .cacheControl(cacheControl)
+                .eTag(eTag)
+                .lastModified(lastModified)
+                .body(new FileSystemResource(filePath));
+    }
+
+    private static MediaType mediaTypeOf(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
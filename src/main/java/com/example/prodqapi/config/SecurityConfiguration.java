@@ -1,5 +1,6 @@
 package com.example.prodqapi.config;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
@@ -30,6 +31,8 @@ public class SecurityConfiguration {
                 .cors(withDefaults())
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
+                        // Completion of streamed responses (e.g. ZIP downloads) - the request itself was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // AUTH
                         .requestMatchers("/").permitAll()
                         .requestMatchers("/api/va/auth/**").permitAll()
@@ -134,7 +137,7 @@ public class SecurityConfiguration {
                         .requestMatchers(HttpMethod.POST, "/api/production-queue-item/add", "/api/sync-with-machine").hasAuthority("ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/production-queue-item/*", "/api/production-queue-item/update-order").hasAuthority("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/production-queue-item/*", "/api/production-queue-item/files/*").hasAuthority("ADMIN")
-                        .requestMatchers(HttpMethod.PATCH, "/api/production-queue-item/*/toggle-complete").hasAuthority("ADMIN")
+                        .requestMatchers(HttpMethod.PATCH, "/api/production-queue-item/*/toggle-complete", "/api/production-queue-item/reorder").hasAuthority("ADMIN")
                         .requestMatchers(HttpMethod.POST, "/api/production-queue-item/*/approve-completion").hasAuthority("ADMIN")
                         .requestMatchers(HttpMethod.PATCH, "/api/production-queue-item/move-completed/*").hasAuthority("ADMIN")
 
@@ -149,6 +152,9 @@ public class SecurityConfiguration {
                         .requestMatchers(HttpMethod.PUT, "/api/machine/{id}").hasAuthority("ADMIN") // PUT update
                         .requestMatchers(HttpMethod.DELETE, "/api/machine/{id}").hasAuthority("ADMIN") // DELETE
 
+                        // IMAGES
+                        .requestMatchers(HttpMethod.GET, "/api/image/*").hasAnyAuthority("ADMIN", "USER")
+
                         // DIRECTORY CLEANUP
                         .requestMatchers("/api/cleanup/all").hasAuthority("ADMIN")
                         .requestMatchers("/api/cleanup/machine/*").hasAuthority("ADMIN")
@@ -20,6 +20,7 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -159,23 +160,15 @@ public class DocumentAttachmentService {
     }
 
     /**
-     * Download document (returns file as byte array)
+     * First document of a category for an order (for download operations)
      *
-     * @param documentId Document ID
-     * @return File contents as byte array
-     * @throws IOException If file read fails
-     * @throws IllegalArgumentException If document not found
+     * @param orderId Order ID
+     * @param category Document category
+     * @return DocumentAttachment entity, empty if the order has none
      */
-    public byte[] downloadDocument(Long documentId) throws IOException {
-        DocumentAttachment document = documentRepository.findById(documentId)
-                .orElseThrow(() -> new IllegalArgumentException("Document not found with ID: " + documentId));
-
-        Path filePath = Paths.get(document.getFilePath());
-        if (!Files.exists(filePath)) {
-            throw new IOException("File not found on filesystem: " + document.getFilePath());
-        }
-
-        return Files.readAllBytes(filePath);
+    public Optional<DocumentAttachment> getFirstDocumentByCategory(Integer orderId, DocumentCategory category) {
+        Long orderIdLong = orderId != null ? orderId.longValue() : null;
+        return documentRepository.findByOrderIdAndCategory(orderIdLong, category).stream().findFirst();
     }
 
     /**
@@ -1,17 +1,16 @@
 package com.example.prodqapi.documentAttachment;
 
+import com.example.prodqapi.common.FileDownloadResponder;
 import lombok.AllArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.List;
 
 /**
@@ -29,6 +28,7 @@ import java.util.List;
 public class OrderDocumentController {
 
     private final DocumentAttachmentService documentService;
+    private final FileDownloadResponder fileDownloadResponder;
 
     /**
      * Upload document for an order
@@ -123,31 +123,12 @@ public class OrderDocumentController {
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
     public ResponseEntity<Resource> downloadDocument(@PathVariable Long documentId) {
         try {
-            // Get document metadata
+            // Single metadata lookup; content is streamed (Range / ETag / Last-Modified supported)
             DocumentAttachment document = documentService.getDocumentById(documentId);
-
-            // Read file contents
-            byte[] fileData = documentService.downloadDocument(documentId);
-            ByteArrayResource resource = new ByteArrayResource(fileData);
-
-            // Determine content type
-            String contentType = document.getFileType();
-            if (contentType == null) {
-                contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
-            }
-
-            // Build response headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(contentType));
-            headers.setContentDispositionFormData("attachment", document.getFileName());
-            headers.setContentLength(fileData.length);
-
-            return new ResponseEntity<>(resource, headers, HttpStatus.OK);
-
+            return fileDownloadResponder.attachment(Paths.get(document.getFilePath()), document.getFileName(),
+                    document.getFileType(), null);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
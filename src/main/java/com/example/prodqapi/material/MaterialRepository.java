@@ -1,10 +1,33 @@
 package com.example.prodqapi.material;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 
 @Repository
 public interface MaterialRepository extends JpaRepository<Material, Integer> {
 
-}
\ No newline at end of file
+    /**
+     * Load all materials with group and preferred supplier in one query (MRP)
+     */
+    @Query("SELECT DISTINCT m FROM Material m " +
+           "LEFT JOIN FETCH m.materialGroup mg " +
+           "LEFT JOIN FETCH mg.materialType " +
+           "LEFT JOIN FETCH m.preferredSupplier")
+    List<Material> findAllForMrp();
+
+    /**
+     * Same as {@link #findAllForMrp} restricted to the given ids (incremental MRP)
+     */
+    @Query("SELECT DISTINCT m FROM Material m " +
+           "LEFT JOIN FETCH m.materialGroup mg " +
+           "LEFT JOIN FETCH mg.materialType " +
+           "LEFT JOIN FETCH m.preferredSupplier " +
+           "WHERE m.id IN :ids")
+    List<Material> findByIdInForMrp(@Param("ids") Collection<Integer> ids);
+}
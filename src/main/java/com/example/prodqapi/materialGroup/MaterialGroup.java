@@ -26,7 +26,7 @@ public class MaterialGroup {
     private String name;
     private String type;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore // Don't serialize image in nested contexts
     private FileImage fileImage;
 
@@ -89,7 +89,7 @@ public class MaterialGroupService {
 
         MaterialGroup materialGroup = materialGroupRepository.findById(materialGroupID).orElseThrow(() -> new RuntimeException("Material Group not found"));
 
-        FileImage fileImage = fileImageRepository.findById(Long.valueOf(id)).orElseThrow(() -> new RuntimeException("File not found"));
+        FileImage fileImage = fileImageRepository.findById(id).orElseThrow(() -> new RuntimeException("File not found"));
 
         materialGroup.setFileImage(null);
 
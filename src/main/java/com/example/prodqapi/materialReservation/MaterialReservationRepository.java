@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,4 +34,62 @@ public interface MaterialReservationRepository extends JpaRepository<MaterialRes
            "WHERE mr.material.id = :materialId " +
            "AND mr.status = 'RESERVED'")
     List<MaterialReservation> findReservationsWithDetailsForMaterial(@Param("materialId") Integer materialId);
-}
\ No newline at end of file
+
+    /**
+     * Reserved amount per material in a single grouped query (MRP).
+     * Each row: [materialId (Integer), reservedSum (Double)]
+     */
+    @Query("SELECT mr.material.id, COALESCE(SUM(COALESCE(mr.reservedQuantity, 0.0) + COALESCE(mr.reservedLength, 0.0)), 0.0) " +
+           "FROM MaterialReservation mr " +
+           "WHERE mr.material IS NOT NULL AND mr.status = :status " +
+           "GROUP BY mr.material.id")
+    List<Object[]> sumReservedQuantityGroupedByMaterial(@Param("status") ReservationStatus status);
+
+    /**
+     * Reservations joined with their production queue items, projected to plain columns (MRP).
+     * Each row: [materialId, productionId, orderName, partName, deadline, deadlineDate]
+     */
+    @Query("SELECT mr.material.id, pqi.id, pqi.orderName, pqi.partName, pqi.deadline, pqi.deadlineDate " +
+           "FROM MaterialReservation mr " +
+           "JOIN mr.productionQueueItem pqi " +
+           "WHERE mr.material IS NOT NULL AND mr.status = :status " +
+           "ORDER BY mr.id ASC")
+    List<Object[]> findReservedProductionRows(@Param("status") ReservationStatus status);
+
+    /**
+     * Same as {@link #sumReservedQuantityGroupedByMaterial} restricted to the given materials
+     */
+    @Query("SELECT mr.material.id, COALESCE(SUM(COALESCE(mr.reservedQuantity, 0.0) + COALESCE(mr.reservedLength, 0.0)), 0.0) " +
+           "FROM MaterialReservation mr " +
+           "WHERE mr.material.id IN :materialIds AND mr.status = :status " +
+           "GROUP BY mr.material.id")
+    List<Object[]> sumReservedQuantityGroupedByMaterialIn(
+        @Param("status") ReservationStatus status,
+        @Param("materialIds") Collection<Integer> materialIds
+    );
+
+    /**
+     * Same as {@link #findReservedProductionRows} restricted to the given materials
+     */
+    @Query("SELECT mr.material.id, pqi.id, pqi.orderName, pqi.partName, pqi.deadline, pqi.deadlineDate " +
+           "FROM MaterialReservation mr " +
+           "JOIN mr.productionQueueItem pqi " +
+           "WHERE mr.material.id IN :materialIds AND mr.status = :status " +
+           "ORDER BY mr.id ASC")
+    List<Object[]> findReservedProductionRowsForMaterials(
+        @Param("status") ReservationStatus status,
+        @Param("materialIds") Collection<Integer> materialIds
+    );
+
+    /**
+     * Reserved quantities with the deadline of their production (MRP projection).
+     * Each row: [materialId, quantity, deadlineDate]; deadlineDate is null for reservations without a queue item
+     */
+    @Query("SELECT mr.material.id, COALESCE(mr.reservedQuantity, 0.0) + COALESCE(mr.reservedLength, 0.0), pqi.deadlineDate " +
+           "FROM MaterialReservation mr LEFT JOIN mr.productionQueueItem pqi " +
+           "WHERE mr.material.id IN :materialIds AND mr.status = :status")
+    List<Object[]> findReservedDemandRowsForMaterials(
+        @Param("status") ReservationStatus status,
+        @Param("materialIds") Collection<Integer> materialIds
+    );
+}
@@ -10,6 +10,8 @@ import com.example.prodqapi.materialReservation.dto.MaterialWithAvailabilityDTO;
 import com.example.prodqapi.materialReservation.exception.InsufficientMaterialException;
 import com.example.prodqapi.materialType.MaterialType;
 import com.example.prodqapi.materialType.MaterialTypeRepository;
+import com.example.prodqapi.mrp.MrpDirtyTracker;
+import com.example.prodqapi.mrp.ResourceType;
 import com.example.prodqapi.productionQueueItem.ProductionQueueItem;
 import com.example.prodqapi.productionQueueItem.ProductionQueueItemRepository;
 import lombok.RequiredArgsConstructor;
@@ -28,6 +30,7 @@ public class MaterialReservationService {
     private final MaterialTypeRepository materialTypeRepository;
     private final ProductionQueueItemRepository productionQueueItemRepository;
     private final MaterialGroupRepository materialGroupRepository;
+    private final MrpDirtyTracker mrpDirtyTracker;
 
     @Transactional(readOnly = true)
     public MaterialReservation findByProductionQueueItemId(Integer productionQueueItemId) {
@@ -85,7 +88,9 @@ public class MaterialReservationService {
         reservation.setCost(dto.getCost());
         reservation.setStatus(ReservationStatus.RESERVED);
 
-        return reservationRepository.save(reservation);
+        MaterialReservation saved = reservationRepository.save(reservation);
+        markMaterialDirty(saved.getMaterial());
+        return saved;
     }
 
     @Transactional
@@ -93,6 +98,9 @@ public class MaterialReservationService {
         MaterialReservation reservation = reservationRepository.findById(reservationId)
             .orElseThrow(() -> new IllegalArgumentException("Reservation not found"));
 
+        // Previous material loses this reservation (no-op when unchanged, the set dedupes)
+        markMaterialDirty(reservation.getMaterial());
+
         // Update material reference
         if (!dto.getIsCustom()) {
             // Note: We don't throw an error for insufficient material
@@ -129,14 +137,24 @@ public class MaterialReservationService {
         reservation.setWeight(dto.getWeight());
         reservation.setCost(dto.getCost());
 
-        return reservationRepository.save(reservation);
+        MaterialReservation saved = reservationRepository.save(reservation);
+        markMaterialDirty(saved.getMaterial());
+        return saved;
     }
 
     @Transactional
     public void deleteReservation(Integer reservationId) {
+        reservationRepository.findById(reservationId)
+            .ifPresent(reservation -> markMaterialDirty(reservation.getMaterial()));
         reservationRepository.deleteById(reservationId);
     }
 
+    private void markMaterialDirty(Material material) {
+        if (material != null) {
+            mrpDirtyTracker.markDirty(ResourceType.MATERIAL, material.getId());
+        }
+    }
+
     @Transactional(readOnly = true)
     public MaterialAvailabilityDTO validateAvailability(
         Integer materialId,
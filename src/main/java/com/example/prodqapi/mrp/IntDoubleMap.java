@@ -0,0 +1,106 @@
+package com.example.prodqapi.mrp;
+
+/**
+ * Minimal open-addressing map from int keys to double values.
+ * Used by the MRP engine to hold per-resource aggregates without boxing
+ * every id and sum into Integer/Double objects.
+ * Not thread-safe.
+ */
+final class IntDoubleMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private double[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    IntDoubleMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Add delta to the value stored under key (missing keys start at 0)
+     */
+    void addTo(int key, double delta) {
+        int slot = findSlot(key);
+        if (used[slot]) {
+            values[slot] += delta;
+            return;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    void put(int key, double value) {
+        int slot = findSlot(key);
+        if (used[slot]) {
+            values[slot] = value;
+            return;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    double getOrDefault(int key, double defaultValue) {
+        int slot = findSlot(key);
+        return used[slot] ? values[slot] : defaultValue;
+    }
+
+    boolean containsKey(int key) {
+        return used[findSlot(key)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int findSlot(int key) {
+        int slot = mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        double[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = findSlot(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new double[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    static int capacityFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2) - 1) << 1;
+        return Math.max(MIN_CAPACITY, capacity);
+    }
+
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.prodqapi.mrp;
+
+import java.util.function.IntFunction;
+
+/**
+ * Minimal open-addressing map from int keys to object values.
+ * Companion of {@link IntDoubleMap} for per-resource lists built during MRP analysis.
+ * Not thread-safe.
+ */
+final class IntObjectMap<V> {
+
+    private int[] keys;
+    private Object[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    IntObjectMap(int expectedSize) {
+        allocate(IntDoubleMap.capacityFor(expectedSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int slot = findSlot(key);
+        return used[slot] ? (V) values[slot] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        int slot = findSlot(key);
+        if (used[slot]) {
+            V previous = (V) values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        insert(slot, key, value);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V computeIfAbsent(int key, IntFunction<V> factory) {
+        int slot = findSlot(key);
+        if (used[slot]) {
+            return (V) values[slot];
+        }
+        V value = factory.apply(key);
+        insert(slot, key, value);
+        return value;
+    }
+
+    boolean containsKey(int key) {
+        return used[findSlot(key)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void insert(int slot, int key, V value) {
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private int findSlot(int key) {
+        int slot = IntDoubleMap.mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = findSlot(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+}
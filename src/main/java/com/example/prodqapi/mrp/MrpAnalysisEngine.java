@@ -0,0 +1,490 @@
+package com.example.prodqapi.mrp;
+
+import com.example.prodqapi.accessorieItem.AccessorieItem;
+import com.example.prodqapi.accessorieItem.AccessorieItemRepository;
+import com.example.prodqapi.material.Material;
+import com.example.prodqapi.material.MaterialRepository;
+import com.example.prodqapi.materialGroup.MaterialGroup;
+import com.example.prodqapi.materialReservation.MaterialReservationRepository;
+import com.example.prodqapi.materialReservation.ReservationStatus;
+import com.example.prodqapi.tool.Tool;
+import com.example.prodqapi.tool.ToolRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Set-based MRP calculation.
+ * Loads every resource together with its reservation data in a fixed number of
+ * queries (one per resource table plus two grouped reservation queries) and
+ * computes the analyses in memory. Nothing is persisted here - see {@link MrpResultWriter}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MrpAnalysisEngine {
+
+    private final MaterialRepository materialRepository;
+    private final MaterialReservationRepository reservationRepository;
+    private final ToolRepository toolRepository;
+    private final AccessorieItemRepository accessorieItemRepository;
+    private final ObjectMapper objectMapper;
+
+    private static final int HIGH_DAYS_THRESHOLD = 3;       // Within 3 days
+    private static final double SAFETY_STOCK_FACTOR = 1.2;  // 20% buffer
+
+    /**
+     * Production linked to a material reservation (projection, not an entity)
+     */
+    record AffectedProduction(Integer id, String orderName, String partName, String deadline, LocalDate deadlineDate) {
+    }
+
+    /**
+     * Analyze all materials. Returns only results that need action.
+     */
+    @Transactional(readOnly = true)
+    public List<MrpAnalysisResult> analyzeMaterials() {
+        List<Material> materials = materialRepository.findAllForMrp();
+        List<MrpAnalysisResult> results = analyzeMaterialList(
+                materials,
+                reservationRepository.sumReservedQuantityGroupedByMaterial(ReservationStatus.RESERVED),
+                reservationRepository.findReservedProductionRows(ReservationStatus.RESERVED));
+
+        log.info("Material analysis completed: {} results from {} materials", results.size(), materials.size());
+        return results;
+    }
+
+    /**
+     * Analyze all tools. Returns only results that need action.
+     */
+    @Transactional(readOnly = true)
+    public List<MrpAnalysisResult> analyzeTools() {
+        List<Tool> tools = toolRepository.findAllForMrp();
+        List<MrpAnalysisResult> results = analyzeToolList(tools);
+        log.info("Tool analysis completed: {} results from {} tools", results.size(), tools.size());
+        return results;
+    }
+
+    /**
+     * Analyze all accessorie items. Returns only results that need action.
+     */
+    @Transactional(readOnly = true)
+    public List<MrpAnalysisResult> analyzeAccessories() {
+        List<AccessorieItem> accessories = accessorieItemRepository.findAllForMrp();
+        List<MrpAnalysisResult> results = analyzeAccessorieList(accessories);
+        log.info("Accessorie analysis completed: {} results from {} items", results.size(), accessories.size());
+        return results;
+    }
+
+    /**
+     * Analyze only the given resources (incremental recalculation).
+     * Resources that no longer exist or have no issue produce no result.
+     */
+    @Transactional(readOnly = true)
+    public List<MrpAnalysisResult> analyzeResources(ResourceType type, Collection<Integer> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return switch (type) {
+            case MATERIAL -> analyzeMaterialList(
+                    materialRepository.findByIdInForMrp(ids),
+                    reservationRepository.sumReservedQuantityGroupedByMaterialIn(ReservationStatus.RESERVED, ids),
+                    reservationRepository.findReservedProductionRowsForMaterials(ReservationStatus.RESERVED, ids));
+            case TOOL -> analyzeToolList(toolRepository.findByIdInForMrp(ids));
+            case ACCESSORIE -> analyzeAccessorieList(accessorieItemRepository.findByIdInForMrp(ids));
+        };
+    }
+
+    private List<MrpAnalysisResult> analyzeMaterialList(
+            List<Material> materials,
+            List<Object[]> reservedRows,
+            List<Object[]> productionRows
+    ) {
+        // Reserved sums grouped by material
+        IntDoubleMap reservedByMaterial = new IntDoubleMap(materials.size());
+        for (Object[] row : reservedRows) {
+            reservedByMaterial.put((Integer) row[0], ((Number) row[1]).doubleValue());
+        }
+
+        // Reservations joined to queue items
+        IntObjectMap<List<AffectedProduction>> productionsByMaterial = new IntObjectMap<>(materials.size());
+        for (Object[] row : productionRows) {
+            productionsByMaterial
+                    .computeIfAbsent((Integer) row[0], k -> new ArrayList<>())
+                    .add(new AffectedProduction((Integer) row[1], (String) row[2], (String) row[3],
+                            (String) row[4], (LocalDate) row[5]));
+        }
+
+        List<MrpAnalysisResult> results = new ArrayList<>();
+        for (Material material : materials) {
+            List<AffectedProduction> productions = productionsByMaterial.get(material.getId());
+            MrpAnalysisResult analysis = analyzeMaterial(
+                    material,
+                    reservedByMaterial.getOrDefault(material.getId(), 0.0),
+                    productions != null ? productions : List.of()
+            );
+            if (analysis != null) {
+                results.add(analysis);
+            }
+        }
+        return results;
+    }
+
+    private List<MrpAnalysisResult> analyzeToolList(List<Tool> tools) {
+        List<MrpAnalysisResult> results = new ArrayList<>();
+        for (Tool tool : tools) {
+            MrpAnalysisResult analysis = analyzeTool(tool);
+            if (analysis != null) {
+                results.add(analysis);
+            }
+        }
+        return results;
+    }
+
+    private List<MrpAnalysisResult> analyzeAccessorieList(List<AccessorieItem> accessories) {
+        List<MrpAnalysisResult> results = new ArrayList<>();
+        for (AccessorieItem accessorie : accessories) {
+            MrpAnalysisResult analysis = analyzeAccessorie(accessorie);
+            if (analysis != null) {
+                results.add(analysis);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Analyze a single material using preloaded reservation data
+     */
+    MrpAnalysisResult analyzeMaterial(Material material, double reservedRaw, List<AffectedProduction> affectedProductions) {
+        MaterialGroup group = material.getMaterialGroup();
+        String groupType = group != null ? group.getType() : "Plate";
+        boolean isPlate = "Plate".equalsIgnoreCase(groupType);
+
+        // Get stock quantity
+        BigDecimal currentStock;
+        String unit;
+        if (isPlate) {
+            currentStock = material.getStockQuantity() != null
+                    ? BigDecimal.valueOf(material.getStockQuantity())
+                    : BigDecimal.ZERO;
+            unit = "szt";
+        } else {
+            currentStock = material.getTotalStockLength() != null
+                    ? BigDecimal.valueOf(material.getTotalStockLength())
+                    : BigDecimal.ZERO;
+            unit = "mm";
+        }
+
+        BigDecimal reserved = BigDecimal.valueOf(reservedRaw);
+
+        // Calculate available
+        BigDecimal available = currentStock.subtract(reserved);
+
+        // Get in transit
+        BigDecimal inTransit = BigDecimal.valueOf(material.getQuantityInTransit());
+
+        // Effective stock = available + in transit
+        BigDecimal effectiveStock = available.add(inTransit);
+
+        // Min quantity
+        BigDecimal minQuantity = BigDecimal.valueOf(material.getMinQuantity());
+
+        // Get required from reservations
+        BigDecimal required = reserved;
+
+        LocalDate earliestNeedDate = findEarliestDeadline(affectedProductions);
+
+        // Determine priority
+        MrpPriority priority = determinePriority(available, required, minQuantity, effectiveStock, earliestNeedDate);
+
+        if (priority == null) {
+            return null; // No issue, skip
+        }
+
+        // Calculate shortage
+        BigDecimal shortage = BigDecimal.ZERO;
+        if (available.compareTo(required) < 0) {
+            shortage = required.subtract(available);
+        } else if (effectiveStock.compareTo(minQuantity) < 0) {
+            shortage = minQuantity.subtract(effectiveStock);
+        }
+
+        // Calculate suggested order quantity
+        BigDecimal suggestedQty = calculateSuggestedOrderQuantity(shortage, minQuantity, effectiveStock);
+
+        // Calculate estimated cost
+        BigDecimal estimatedCost = BigDecimal.ZERO;
+        if (material.getPrice() != null) {
+            estimatedCost = material.getPrice().multiply(suggestedQty);
+        }
+
+        return MrpAnalysisResult.builder()
+                .resourceType(ResourceType.MATERIAL)
+                .resourceId(material.getId())
+                .resourceName(buildMaterialName(material))
+                .priority(priority)
+                .currentStock(currentStock)
+                .reservedQuantity(reserved)
+                .availableQuantity(available)
+                .inTransit(inTransit)
+                .minQuantity(minQuantity)
+                .requiredQuantity(required)
+                .shortageQuantity(shortage)
+                .suggestedOrderQty(suggestedQty)
+                .unit(unit)
+                .earliestNeedDate(earliestNeedDate)
+                .affectedProductions(serializeAffectedProductions(affectedProductions))
+                .status(MrpAnalysisStatus.PENDING)
+                .analyzedAt(LocalDateTime.now())
+                .preferredSupplier(material.getPreferredSupplier())
+                .estimatedCost(estimatedCost)
+                .build();
+    }
+
+    /**
+     * Analyze a single tool
+     */
+    MrpAnalysisResult analyzeTool(Tool tool) {
+        BigDecimal currentStock = BigDecimal.valueOf(tool.getQuantity());
+        BigDecimal minQuantity = BigDecimal.valueOf(tool.getMinQuantity());
+        BigDecimal inTransit = BigDecimal.valueOf(tool.getQuantityInTransit());
+        BigDecimal reserved = BigDecimal.ZERO; // Tools don't have reservations currently
+        BigDecimal available = currentStock.subtract(reserved);
+        BigDecimal effectiveStock = available.add(inTransit);
+
+        // Tools don't have production reservations, so no deadline-based priority
+        // Only check against min quantity
+        MrpPriority priority = determineStockPriority(minQuantity, effectiveStock);
+
+        if (priority == null) {
+            return null;
+        }
+
+        BigDecimal shortage = minQuantity.subtract(effectiveStock).max(BigDecimal.ZERO);
+        BigDecimal suggestedQty = calculateSuggestedOrderQuantity(shortage, minQuantity, effectiveStock);
+
+        BigDecimal estimatedCost = BigDecimal.ZERO;
+        if (tool.getPrice() != null) {
+            estimatedCost = tool.getPrice().multiply(suggestedQty);
+        }
+
+        return MrpAnalysisResult.builder()
+                .resourceType(ResourceType.TOOL)
+                .resourceId(tool.getId())
+                .resourceName(tool.getName() + (tool.getToolID() != null ? " (" + tool.getToolID() + ")" : ""))
+                .priority(priority)
+                .currentStock(currentStock)
+                .reservedQuantity(reserved)
+                .availableQuantity(available)
+                .inTransit(inTransit)
+                .minQuantity(minQuantity)
+                .requiredQuantity(BigDecimal.ZERO)
+                .shortageQuantity(shortage)
+                .suggestedOrderQty(suggestedQty)
+                .unit("szt")
+                .earliestNeedDate(null)
+                .affectedProductions(null)
+                .status(MrpAnalysisStatus.PENDING)
+                .analyzedAt(LocalDateTime.now())
+                .preferredSupplier(tool.getPreferredSupplier())
+                .estimatedCost(estimatedCost)
+                .build();
+    }
+
+    /**
+     * Analyze a single accessorie item
+     */
+    MrpAnalysisResult analyzeAccessorie(AccessorieItem accessorie) {
+        BigDecimal currentStock = BigDecimal.valueOf(accessorie.getQuantity());
+        BigDecimal minQuantity = BigDecimal.valueOf(accessorie.getMinQuantity());
+        BigDecimal inTransit = BigDecimal.valueOf(accessorie.getQuantityInTransit());
+        BigDecimal reserved = BigDecimal.ZERO;
+        BigDecimal available = currentStock.subtract(reserved);
+        BigDecimal effectiveStock = available.add(inTransit);
+
+        MrpPriority priority = determineStockPriority(minQuantity, effectiveStock);
+
+        if (priority == null) {
+            return null;
+        }
+
+        BigDecimal shortage = minQuantity.subtract(effectiveStock).max(BigDecimal.ZERO);
+        BigDecimal suggestedQty = calculateSuggestedOrderQuantity(shortage, minQuantity, effectiveStock);
+
+        BigDecimal estimatedCost = BigDecimal.ZERO;
+        if (accessorie.getPrice() != null) {
+            estimatedCost = accessorie.getPrice().multiply(suggestedQty);
+        }
+
+        return MrpAnalysisResult.builder()
+                .resourceType(ResourceType.ACCESSORIE)
+                .resourceId(accessorie.getId())
+                .resourceName(accessorie.getName())
+                .priority(priority)
+                .currentStock(currentStock)
+                .reservedQuantity(reserved)
+                .availableQuantity(available)
+                .inTransit(inTransit)
+                .minQuantity(minQuantity)
+                .requiredQuantity(BigDecimal.ZERO)
+                .shortageQuantity(shortage)
+                .suggestedOrderQty(suggestedQty)
+                .unit("szt")
+                .earliestNeedDate(null)
+                .affectedProductions(null)
+                .status(MrpAnalysisStatus.PENDING)
+                .analyzedAt(LocalDateTime.now())
+                .preferredSupplier(accessorie.getPreferredSupplier())
+                .estimatedCost(estimatedCost)
+                .build();
+    }
+
+    /**
+     * Determine MRP priority based on availability and deadlines
+     */
+    private MrpPriority determinePriority(
+            BigDecimal available,
+            BigDecimal required,
+            BigDecimal minQuantity,
+            BigDecimal effectiveStock,
+            LocalDate earliestNeedDate
+    ) {
+        LocalDate today = LocalDate.now();
+
+        boolean hasShortage = available.compareTo(required) < 0;
+
+        // CRITICAL: Shortage on production starting today or overdue
+        if (hasShortage && earliestNeedDate != null) {
+            if (!earliestNeedDate.isAfter(today)) {
+                return MrpPriority.CRITICAL;
+            }
+
+            // HIGH: Shortage on production within 3 days
+            if (earliestNeedDate.isBefore(today.plusDays(HIGH_DAYS_THRESHOLD + 1))) {
+                return MrpPriority.HIGH;
+            }
+        }
+
+        // MEDIUM / LOW: Below minimum stock or within safety buffer
+        MrpPriority stockPriority = determineStockPriority(minQuantity, effectiveStock);
+        if (stockPriority != null) {
+            return stockPriority;
+        }
+
+        // If there's a shortage but deadline is far, it's still worth noting
+        if (hasShortage) {
+            return MrpPriority.LOW;
+        }
+
+        return null; // No issue
+    }
+
+    /**
+     * MEDIUM when below minimum stock, LOW when approaching minimum (within safety buffer)
+     */
+    private MrpPriority determineStockPriority(BigDecimal minQuantity, BigDecimal effectiveStock) {
+        if (effectiveStock.compareTo(minQuantity) < 0) {
+            return MrpPriority.MEDIUM;
+        }
+        BigDecimal safetyThreshold = minQuantity.multiply(BigDecimal.valueOf(SAFETY_STOCK_FACTOR));
+        if (effectiveStock.compareTo(safetyThreshold) < 0) {
+            return MrpPriority.LOW;
+        }
+        return null;
+    }
+
+    /**
+     * Calculate suggested order quantity
+     */
+    private BigDecimal calculateSuggestedOrderQuantity(
+            BigDecimal shortage,
+            BigDecimal minQuantity,
+            BigDecimal effectiveStock
+    ) {
+        // Base: cover the shortage
+        BigDecimal baseQty = shortage.max(BigDecimal.ZERO);
+
+        // Target: minQuantity + 20% safety buffer
+        BigDecimal targetStock = minQuantity.multiply(BigDecimal.valueOf(SAFETY_STOCK_FACTOR));
+
+        // If after covering shortage we're still below target, add more
+        BigDecimal afterShortage = effectiveStock.add(baseQty);
+        if (afterShortage.compareTo(targetStock) < 0) {
+            baseQty = baseQty.add(targetStock.subtract(afterShortage));
+        }
+
+        // Round up to whole units
+        return baseQty.setScale(0, RoundingMode.CEILING);
+    }
+
+    private String buildMaterialName(Material material) {
+        // Simply use material name - it already contains all needed information
+        if (material.getName() != null && !material.getName().isBlank()) {
+            return material.getName();
+        }
+
+        // Fallback: if no name, build from group and dimensions
+        StringBuilder name = new StringBuilder();
+        MaterialGroup group = material.getMaterialGroup();
+
+        if (group != null) {
+            name.append(group.getName()).append(" ");
+
+            if ("Plate".equalsIgnoreCase(group.getType())) {
+                name.append(String.format("%.0fx%.0fx%.0fmm", material.getX(), material.getY(), material.getZ()));
+            } else if ("Rod".equalsIgnoreCase(group.getType())) {
+                name.append(String.format("ø%.0f L%.0fmm", material.getDiameter(), material.getLength()));
+            } else if ("Tube".equalsIgnoreCase(group.getType())) {
+                Float inner = material.getInnerDiameter();
+                name.append(String.format("ø%.0f/%.0f L%.0fmm",
+                        material.getDiameter(),
+                        inner != null ? inner : 0f,
+                        material.getLength()));
+            }
+        }
+
+        return name.toString().trim();
+    }
+
+    private LocalDate findEarliestDeadline(List<AffectedProduction> productions) {
+        LocalDate earliest = null;
+        for (AffectedProduction production : productions) {
+            LocalDate deadline = production.deadlineDate();
+            if (deadline != null && (earliest == null || deadline.isBefore(earliest))) {
+                earliest = deadline;
+            }
+        }
+        return earliest;
+    }
+
+    private String serializeAffectedProductions(List<AffectedProduction> productions) {
+        if (productions == null || productions.isEmpty()) {
+            return null;
+        }
+        try {
+            List<Map<String, Object>> simplified = productions.stream()
+                    .map(p -> {
+                        Map<String, Object> map = new HashMap<>();
+                        map.put("id", p.id());
+                        map.put("name", p.orderName() + " - " + p.partName());
+                        map.put("deadline", p.deadline());
+                        return map;
+                    })
+                    .collect(Collectors.toList());
+            return objectMapper.writeValueAsString(simplified);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize affected productions", e);
+            return null;
+        }
+    }
+}
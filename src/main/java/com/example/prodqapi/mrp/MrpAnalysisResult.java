@@ -96,6 +96,12 @@ public class MrpAnalysisResult {
     @Column(name = "estimated_cost", precision = 12, scale = 2)
     private BigDecimal estimatedCost;
 
+    /**
+     * Content fingerprint ({@link MrpFingerprint#of}), used to skip rewriting unchanged results
+     */
+    @Column(name = "fingerprint", length = 16)
+    private String fingerprint;
+
     @PrePersist
     protected void onCreate() {
         if (analyzedAt == null) {
@@ -1,5 +1,6 @@
 package com.example.prodqapi.mrp;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -7,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -74,4 +76,43 @@ public interface MrpAnalysisResultRepository extends JpaRepository<MrpAnalysisRe
             @Param("resourceType") ResourceType resourceType,
             @Param("resourceId") Integer resourceId,
             @Param("resolvedAt") LocalDateTime resolvedAt);
+
+    /**
+     * Dashboard aggregates over unresolved analyses.
+     * Each row: [priority, resourceType, status, count, sum(estimatedCost), max(analyzedAt)]
+     */
+    @Query("SELECT a.priority, a.resourceType, a.status, COUNT(a), COALESCE(SUM(a.estimatedCost), 0), MAX(a.analyzedAt) " +
+           "FROM MrpAnalysisResult a " +
+           "WHERE a.status <> 'RESOLVED' " +
+           "GROUP BY a.priority, a.resourceType, a.status")
+    List<Object[]> summarizeUnresolved();
+
+    /**
+     * Most urgent active analyses (critical first, then high) for the dashboard
+     */
+    @Query("SELECT a FROM MrpAnalysisResult a " +
+           "LEFT JOIN FETCH a.preferredSupplier " +
+           "LEFT JOIN FETCH a.suggestionGroup " +
+           "WHERE a.status IN ('PENDING', 'DRAFT_CREATED') AND a.priority IN ('CRITICAL', 'HIGH') " +
+           "ORDER BY a.priority ASC, a.earliestNeedDate ASC NULLS LAST")
+    List<MrpAnalysisResult> findTopUrgentActiveAnalyses(Pageable pageable);
+
+    /**
+     * Ids of analyses resolved before the given date, oldest first (retention, chunked)
+     */
+    @Query("SELECT a.id FROM MrpAnalysisResult a " +
+           "WHERE a.status = 'RESOLVED' AND a.resolvedAt < :beforeDate " +
+           "ORDER BY a.id ASC")
+    List<Integer> findResolvedIdsBefore(@Param("beforeDate") LocalDateTime beforeDate, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM MrpAnalysisResult a WHERE a.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Delete all analyses belonging to the given suggestion groups
+     */
+    @Modifying
+    @Query("DELETE FROM MrpAnalysisResult a WHERE a.suggestionGroup.id IN :groupIds")
+    int deleteBySuggestionGroupIdIn(@Param("groupIds") Collection<Integer> groupIds);
 }
@@ -5,8 +5,10 @@ import com.example.prodqapi.order.Order;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -19,25 +21,63 @@ import java.util.Map;
 public class MrpController {
 
     private final MrpService mrpService;
+    private final MrpJobCoordinator jobCoordinator;
+    private final MrpProjectionService projectionService;
+    private final MrpDashboardService dashboardService;
 
     /**
-     * Run full MRP analysis and return dashboard summary
+     * Run full MRP analysis and return dashboard summary.
+     * Blocking variant kept for existing clients - prefer POST /jobs.
      */
     @GetMapping("/analyze")
-    public ResponseEntity<MrpDashboardDTO> runAnalysis() {
+    public ResponseEntity<MrpDashboardDTO> runAnalysis() throws Exception {
         log.info("Running MRP analysis on demand");
-        mrpService.runFullAnalysisWithGrouping();
+        MrpJob job = jobCoordinator.submitFullAnalysis("MANUAL");
+        job.getCompletion().get();
         MrpDashboardDTO dashboard = mrpService.getDashboard();
         return ResponseEntity.ok(dashboard);
     }
 
+    /**
+     * Start a full MRP analysis in the background (or join the one in progress)
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<MrpJobDTO> startAnalysisJob() {
+        MrpJob job = jobCoordinator.submitFullAnalysis("MANUAL");
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toDTO());
+    }
+
+    /**
+     * Get progress, timings and result of an analysis job
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<MrpJobDTO> getAnalysisJob(@PathVariable String jobId) {
+        return jobCoordinator.findJob(jobId)
+                .map(job -> ResponseEntity.ok(job.toDTO()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get the most recent analysis job
+     */
+    @GetMapping("/jobs/latest")
+    public ResponseEntity<MrpJobDTO> getLatestAnalysisJob() {
+        return jobCoordinator.findLatestJob()
+                .map(job -> ResponseEntity.ok(job.toDTO()))
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
     /**
      * Get dashboard summary without running new analysis
      */
     @GetMapping("/dashboard")
-    public ResponseEntity<MrpDashboardDTO> getDashboard() {
-        MrpDashboardDTO dashboard = mrpService.getDashboard();
-        return ResponseEntity.ok(dashboard);
+    public ResponseEntity<MrpDashboardDTO> getDashboard(WebRequest request) {
+        MrpDashboardService.Snapshot snapshot = dashboardService.getSnapshot();
+        String eTag = "\"mrp-dashboard-" + snapshot.revision() + "\"";
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(snapshot.dashboard());
     }
 
     /**
@@ -102,4 +142,18 @@ public class MrpController {
         List<MrpAnalysisResult> results = mrpService.analyzeAccessories();
         return ResponseEntity.ok(results);
     }
+
+    /**
+     * Time-phased projection (daily demand, supply and projected on-hand) for one resource
+     */
+    @GetMapping("/projection/{type}/{id}")
+    public ResponseEntity<MrpProjectionDTO> getProjection(
+            @PathVariable ResourceType type,
+            @PathVariable Integer id,
+            @RequestParam(defaultValue = "" + MrpProjectionService.DEFAULT_HORIZON_DAYS) int days
+    ) {
+        return projectionService.getProjection(type, id, days)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 }
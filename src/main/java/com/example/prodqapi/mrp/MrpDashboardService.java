@@ -0,0 +1,211 @@
+package com.example.prodqapi.mrp;
+
+import com.example.prodqapi.mrp.dto.MrpAnalysisResultDTO;
+import com.example.prodqapi.mrp.dto.MrpDashboardDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the precomputed {@link MrpDashboardSummary}.
+ * Every flow that changes analyses or suggestion groups calls {@link #refresh};
+ * reading the dashboard is a single-row lookup.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MrpDashboardService {
+
+    private static final int TOP_CRITICAL_LIMIT = 5;
+
+    private final MrpDashboardSummaryRepository summaryRepository;
+    private final MrpAnalysisResultRepository analysisResultRepository;
+    private final MrpOrderSuggestionGroupRepository suggestionGroupRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Dashboard with the summary revision (used as ETag)
+     */
+    public record Snapshot(MrpDashboardDTO dashboard, long revision) {
+    }
+
+    @Transactional
+    public Snapshot getSnapshot() {
+        MrpDashboardSummary summary = summaryRepository.findById(MrpDashboardSummary.SINGLETON_ID)
+                .orElseGet(() -> refreshSummary(null));
+        return new Snapshot(toDTO(summary), summary.getRevision());
+    }
+
+    /**
+     * Recompute the summary after a full analysis started at the given time
+     */
+    @Transactional
+    public void recordAnalysisRun(LocalDateTime analysisStartedAt) {
+        refreshSummary(analysisStartedAt);
+    }
+
+    /**
+     * Recompute the summary from current analyses and suggestion groups.
+     * Joins the caller's transaction, so it sees the caller's (flushed) changes.
+     */
+    @Transactional
+    public void refresh() {
+        refreshSummary(null);
+    }
+
+    /**
+     * Remember the critical/high set a notification is about to be sent for.
+     * Returns false when the set is the same as the last notified one.
+     */
+    @Transactional
+    public boolean markUrgentSetNotified(String urgentFingerprint) {
+        MrpDashboardSummary summary = summaryRepository.findByIdForUpdate(MrpDashboardSummary.SINGLETON_ID)
+                .orElseGet(() -> refreshSummary(null));
+        if (urgentFingerprint.equals(summary.getNotifiedUrgentFingerprint())) {
+            return false;
+        }
+        summary.setNotifiedUrgentFingerprint(urgentFingerprint);
+        summaryRepository.save(summary);
+        return true;
+    }
+
+    private MrpDashboardSummary refreshSummary(LocalDateTime analysisStartedAt) {
+        MrpDashboardSummary summary = summaryRepository.findByIdForUpdate(MrpDashboardSummary.SINGLETON_ID)
+                .orElseGet(() -> MrpDashboardSummary.builder().id(MrpDashboardSummary.SINGLETON_ID).build());
+
+        long critical = 0, high = 0, medium = 0, low = 0;
+        long materials = 0, tools = 0, accessories = 0;
+        BigDecimal totalValue = BigDecimal.ZERO;
+        BigDecimal criticalValue = BigDecimal.ZERO;
+        LocalDateTime latestAnalyzedAt = null;
+
+        for (Object[] row : analysisResultRepository.summarizeUnresolved()) {
+            MrpPriority priority = (MrpPriority) row[0];
+            ResourceType type = (ResourceType) row[1];
+            MrpAnalysisStatus status = (MrpAnalysisStatus) row[2];
+            long count = ((Number) row[3]).longValue();
+            BigDecimal value = toBigDecimal(row[4]);
+            LocalDateTime analyzedAt = (LocalDateTime) row[5];
+
+            // Priority counters cover every unresolved analysis
+            switch (priority) {
+                case CRITICAL -> critical += count;
+                case HIGH -> high += count;
+                case MEDIUM -> medium += count;
+                case LOW -> low += count;
+            }
+
+            // Type counters and values only cover active ones
+            if (status != MrpAnalysisStatus.PENDING && status != MrpAnalysisStatus.DRAFT_CREATED) {
+                continue;
+            }
+            switch (type) {
+                case MATERIAL -> materials += count;
+                case TOOL -> tools += count;
+                case ACCESSORIE -> accessories += count;
+            }
+            totalValue = totalValue.add(value);
+            if (priority == MrpPriority.CRITICAL) {
+                criticalValue = criticalValue.add(value);
+            }
+            if (analyzedAt != null && (latestAnalyzedAt == null || analyzedAt.isAfter(latestAnalyzedAt))) {
+                latestAnalyzedAt = analyzedAt;
+            }
+        }
+
+        List<MrpAnalysisResultDTO> topCritical = analysisResultRepository
+                .findTopUrgentActiveAnalyses(PageRequest.of(0, TOP_CRITICAL_LIMIT)).stream()
+                .map(MrpService::mapToAnalysisDTO)
+                .collect(Collectors.toList());
+
+        summary.setCriticalCount(critical);
+        summary.setHighCount(high);
+        summary.setMediumCount(medium);
+        summary.setLowCount(low);
+        summary.setMaterialCount(materials);
+        summary.setToolCount(tools);
+        summary.setAccessorieCount(accessories);
+        summary.setTotalShortageValue(totalValue);
+        summary.setCriticalShortageValue(criticalValue);
+        summary.setPendingSuggestionGroups(suggestionGroupRepository.countByStatus(SuggestionStatus.PENDING));
+        summary.setTopCriticalItems(writeItems(topCritical));
+        if (analysisStartedAt != null) {
+            summary.setLastAnalysisAt(analysisStartedAt);
+        } else if (summary.getLastAnalysisAt() == null) {
+            summary.setLastAnalysisAt(latestAnalyzedAt);
+        }
+        summary.setRefreshedAt(LocalDateTime.now());
+        summary.setRevision(summary.getRevision() + 1);
+
+        return summaryRepository.save(summary);
+    }
+
+    private MrpDashboardDTO toDTO(MrpDashboardSummary summary) {
+        return MrpDashboardDTO.builder()
+                .criticalCount(summary.getCriticalCount())
+                .highCount(summary.getHighCount())
+                .mediumCount(summary.getMediumCount())
+                .lowCount(summary.getLowCount())
+                .totalCount(summary.getCriticalCount() + summary.getHighCount()
+                        + summary.getMediumCount() + summary.getLowCount())
+                .materialCount(summary.getMaterialCount())
+                .toolCount(summary.getToolCount())
+                .accessorieCount(summary.getAccessorieCount())
+                .totalShortageValue(summary.getTotalShortageValue())
+                .criticalShortageValue(summary.getCriticalShortageValue())
+                .pendingSuggestionGroups(summary.getPendingSuggestionGroups())
+                .topCriticalItems(readItems(summary.getTopCriticalItems()))
+                .lastAnalysisAt(summary.getLastAnalysisAt())
+                .statusMessage(buildStatusMessage(summary.getCriticalCount(), summary.getHighCount()))
+                .build();
+    }
+
+    private String buildStatusMessage(long criticalCount, long highCount) {
+        if (criticalCount > 0) {
+            return String.format("⚠️ UWAGA: %d krytycznych pozycji wymaga natychmiastowej akcji!", criticalCount);
+        } else if (highCount > 0) {
+            return String.format("⚡ %d pozycji wymaga pilnej uwagi (< 3 dni)", highCount);
+        } else {
+            return "✅ Brak krytycznych niedoborów";
+        }
+    }
+
+    private String writeItems(List<MrpAnalysisResultDTO> items) {
+        try {
+            return objectMapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing dashboard items", e);
+            return "[]";
+        }
+    }
+
+    private List<MrpAnalysisResultDTO> readItems(String json) {
+        if (json == null || json.isBlank()) {
+            return List.of();
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {
+            });
+        } catch (JsonProcessingException e) {
+            log.error("Error reading dashboard items", e);
+            return List.of();
+        }
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        return value != null ? new BigDecimal(value.toString()) : BigDecimal.ZERO;
+    }
+}
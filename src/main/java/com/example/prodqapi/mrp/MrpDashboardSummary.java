@@ -0,0 +1,83 @@
+package com.example.prodqapi.mrp;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Precomputed MRP dashboard figures (single row).
+ * Refreshed whenever analyses or suggestion groups change, so polling the
+ * dashboard is one primary-key read. The revision doubles as the ETag.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "mrp_dashboard_summary")
+public class MrpDashboardSummary {
+
+    public static final Integer SINGLETON_ID = 1;
+
+    @Id
+    private Integer id;
+
+    // Unresolved analyses by priority
+    @Column(name = "critical_count")
+    private long criticalCount;
+
+    @Column(name = "high_count")
+    private long highCount;
+
+    @Column(name = "medium_count")
+    private long mediumCount;
+
+    @Column(name = "low_count")
+    private long lowCount;
+
+    // Active (pending / draft created) analyses by resource type
+    @Column(name = "material_count")
+    private long materialCount;
+
+    @Column(name = "tool_count")
+    private long toolCount;
+
+    @Column(name = "accessorie_count")
+    private long accessorieCount;
+
+    @Column(name = "total_shortage_value", precision = 14, scale = 2)
+    private BigDecimal totalShortageValue;
+
+    @Column(name = "critical_shortage_value", precision = 14, scale = 2)
+    private BigDecimal criticalShortageValue;
+
+    @Column(name = "pending_suggestion_groups")
+    private long pendingSuggestionGroups;
+
+    /**
+     * JSON array of MrpAnalysisResultDTO - top 5 critical/high active analyses
+     */
+    @Lob
+    @Column(name = "top_critical_items", columnDefinition = "TEXT")
+    private String topCriticalItems;
+
+    @Column(name = "last_analysis_at")
+    private LocalDateTime lastAnalysisAt;
+
+    @Column(name = "refreshed_at")
+    private LocalDateTime refreshedAt;
+
+    /**
+     * Fingerprint of the critical/high set the last MRP notification was sent for
+     */
+    @Column(name = "notified_urgent_fingerprint", length = 16)
+    private String notifiedUrgentFingerprint;
+
+    /**
+     * Incremented on every refresh
+     */
+    @Column(name = "revision", nullable = false)
+    private long revision;
+}
@@ -0,0 +1,21 @@
+package com.example.prodqapi.mrp;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface MrpDashboardSummaryRepository extends JpaRepository<MrpDashboardSummary, Integer> {
+
+    /**
+     * Load the summary row with a write lock so concurrent refreshes are serialized
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM MrpDashboardSummary s WHERE s.id = :id")
+    Optional<MrpDashboardSummary> findByIdForUpdate(@Param("id") Integer id);
+}
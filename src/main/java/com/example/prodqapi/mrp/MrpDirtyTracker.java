@@ -0,0 +1,79 @@
+package com.example.prodqapi.mrp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dirty set of resources whose stock situation changed since the last MRP pass.
+ * Write paths (deliveries, reservations, completed programs) call {@link #markDirty};
+ * {@link MrpScheduler} drains the set and re-analyzes only those resources.
+ * <p>
+ * Inside a transaction the mark is recorded after commit, so the incremental
+ * pass never sees uncommitted (or rolled back) stock.
+ */
+@Component
+@Slf4j
+public class MrpDirtyTracker {
+
+    // (resourceType ordinal << 32) | resourceId
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    public void markDirty(ResourceType type, Integer resourceId) {
+        if (type == null || resourceId == null) {
+            return;
+        }
+        long key = encode(type, resourceId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirty.add(key);
+                }
+            });
+        } else {
+            dirty.add(key);
+        }
+    }
+
+    /**
+     * Put resources back into the dirty set (e.g. after a failed pass)
+     */
+    public void markAllDirty(Map<ResourceType, Set<Integer>> resources) {
+        resources.forEach((type, ids) -> ids.forEach(id -> dirty.add(encode(type, id))));
+    }
+
+    /**
+     * Remove and return all dirty resources grouped by type
+     */
+    public Map<ResourceType, Set<Integer>> drain() {
+        Map<ResourceType, Set<Integer>> result = new EnumMap<>(ResourceType.class);
+        Iterator<Long> it = dirty.iterator();
+        while (it.hasNext()) {
+            long key = it.next();
+            it.remove();
+            ResourceType type = ResourceType.values()[(int) (key >>> 32)];
+            result.computeIfAbsent(type, t -> new HashSet<>()).add((int) key);
+        }
+        return result;
+    }
+
+    /**
+     * Discard everything - a full analysis covers all resources anyway
+     */
+    public void clear() {
+        dirty.clear();
+    }
+
+    public boolean isEmpty() {
+        return dirty.isEmpty();
+    }
+
+    private static long encode(ResourceType type, int resourceId) {
+        return ((long) type.ordinal() << 32) | (resourceId & 0xFFFFFFFFL);
+    }
+}
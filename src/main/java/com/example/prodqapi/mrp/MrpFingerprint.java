@@ -0,0 +1,109 @@
+package com.example.prodqapi.mrp;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Stable content fingerprints of MRP results, used to detect what actually
+ * changed between two runs. Ids and timestamps are not part of a fingerprint;
+ * decimals are normalized to the column scale so a value read back from the
+ * database fingerprints the same as the freshly calculated one.
+ */
+final class MrpFingerprint {
+
+    private static final char SEPARATOR = '\u001F';
+    private static final char NULL_MARKER = '\u0000';
+
+    private MrpFingerprint() {
+    }
+
+    /**
+     * Fingerprint of everything an analysis shows to the user
+     */
+    static String of(MrpAnalysisResult analysis) {
+        StringBuilder sb = new StringBuilder(256);
+        append(sb, analysis.getResourceType());
+        append(sb, analysis.getResourceId());
+        append(sb, analysis.getResourceName());
+        append(sb, analysis.getPriority());
+        append(sb, analysis.getCurrentStock());
+        append(sb, analysis.getReservedQuantity());
+        append(sb, analysis.getAvailableQuantity());
+        append(sb, analysis.getInTransit());
+        append(sb, analysis.getMinQuantity());
+        append(sb, analysis.getRequiredQuantity());
+        append(sb, analysis.getShortageQuantity());
+        append(sb, analysis.getSuggestedOrderQty());
+        append(sb, analysis.getUnit());
+        append(sb, analysis.getEarliestNeedDate());
+        append(sb, analysis.getAffectedProductions());
+        append(sb, analysis.getPreferredSupplier() != null ? analysis.getPreferredSupplier().getId() : null);
+        append(sb, analysis.getEstimatedCost());
+        return digest(sb);
+    }
+
+    /**
+     * Fingerprint of a (supplier, resource type) group: its key plus the fingerprints of its members
+     */
+    static String ofGroup(String groupKey, Collection<MrpAnalysisResult> analyses) {
+        List<String> members = new ArrayList<>(analyses.size());
+        for (MrpAnalysisResult analysis : analyses) {
+            members.add(analysis.getFingerprint() != null ? analysis.getFingerprint() : of(analysis));
+        }
+        Collections.sort(members);
+
+        StringBuilder sb = new StringBuilder(32 + members.size() * 17);
+        append(sb, groupKey);
+        members.forEach(member -> append(sb, member));
+        return digest(sb);
+    }
+
+    /**
+     * Fingerprint of the set of critical and high priority resources across the given groups
+     */
+    static String ofUrgentSet(Collection<MrpOrderSuggestionGroup> groups) {
+        List<String> urgent = new ArrayList<>();
+        for (MrpOrderSuggestionGroup group : groups) {
+            for (MrpAnalysisResult analysis : group.pendingAnalyses()) {
+                if (analysis.getPriority() == MrpPriority.CRITICAL || analysis.getPriority() == MrpPriority.HIGH) {
+                    urgent.add(analysis.getResourceType() + "_" + analysis.getResourceId() + "_" + analysis.getPriority());
+                }
+            }
+        }
+        Collections.sort(urgent);
+
+        StringBuilder sb = new StringBuilder(urgent.size() * 24);
+        urgent.forEach(key -> append(sb, key));
+        return digest(sb);
+    }
+
+    private static void append(StringBuilder sb, Object value) {
+        if (value instanceof BigDecimal decimal) {
+            sb.append(decimal.setScale(2, RoundingMode.HALF_UP).toPlainString());
+        } else if (value != null) {
+            sb.append(value);
+        } else {
+            sb.append(NULL_MARKER);
+        }
+        sb.append(SEPARATOR);
+    }
+
+    private static String digest(CharSequence content) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            // 64 bits are plenty to tell two versions of the same resource apart
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.prodqapi.mrp;
+
+import com.example.prodqapi.mrp.dto.MrpDashboardDTO;
+import com.example.prodqapi.mrp.dto.MrpJobDTO;
+import com.example.prodqapi.mrp.dto.MrpJobPhaseDTO;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-memory state of one full MRP analysis run started through {@link MrpJobCoordinator}.
+ * Updated by the job thread, read by HTTP requests - all access is synchronized.
+ */
+public class MrpJob implements MrpProgressListener {
+
+    private final String id = UUID.randomUUID().toString();
+    private final String trigger;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final Map<MrpPhase, PhaseState> phases = new EnumMap<>(MrpPhase.class);
+    private final CompletableFuture<List<MrpOrderSuggestionGroup>> completion = new CompletableFuture<>();
+
+    private MrpJobStatus status = MrpJobStatus.QUEUED;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private MrpPhase currentPhase;
+    private int suggestionGroupCount;
+    private MrpDashboardDTO result;
+    private String error;
+
+    MrpJob(String trigger) {
+        this.trigger = trigger;
+        for (MrpPhase phase : MrpPhase.values()) {
+            phases.put(phase, new PhaseState());
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized MrpJobStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Completes with the suggestion groups once the run has finished
+     */
+    public CompletableFuture<List<MrpOrderSuggestionGroup>> getCompletion() {
+        return completion;
+    }
+
+    synchronized void markRunning() {
+        status = MrpJobStatus.RUNNING;
+        startedAt = LocalDateTime.now();
+    }
+
+    @Override
+    public synchronized void phaseStarted(MrpPhase phase) {
+        currentPhase = phase;
+        phases.get(phase).startedAt = LocalDateTime.now();
+    }
+
+    @Override
+    public synchronized void phaseCompleted(MrpPhase phase, int itemCount) {
+        PhaseState state = phases.get(phase);
+        state.finishedAt = LocalDateTime.now();
+        state.itemCount = itemCount;
+    }
+
+    void complete(List<MrpOrderSuggestionGroup> groups, MrpDashboardDTO dashboard) {
+        synchronized (this) {
+            status = MrpJobStatus.COMPLETED;
+            finishedAt = LocalDateTime.now();
+            currentPhase = null;
+            suggestionGroupCount = groups.size();
+            result = dashboard;
+        }
+        completion.complete(groups);
+    }
+
+    void fail(Throwable cause) {
+        synchronized (this) {
+            status = MrpJobStatus.FAILED;
+            finishedAt = LocalDateTime.now();
+            error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        }
+        completion.completeExceptionally(cause);
+    }
+
+    public synchronized MrpJobDTO toDTO() {
+        List<MrpJobPhaseDTO> phaseDTOs = new ArrayList<>();
+        int completedPhases = 0;
+        for (Map.Entry<MrpPhase, PhaseState> entry : phases.entrySet()) {
+            PhaseState state = entry.getValue();
+            String phaseStatus;
+            if (state.finishedAt != null) {
+                phaseStatus = "COMPLETED";
+                completedPhases++;
+            } else if (state.startedAt != null) {
+                phaseStatus = status == MrpJobStatus.FAILED ? "FAILED" : "RUNNING";
+            } else {
+                phaseStatus = "PENDING";
+            }
+            phaseDTOs.add(MrpJobPhaseDTO.builder()
+                    .phase(entry.getKey())
+                    .status(phaseStatus)
+                    .itemCount(state.finishedAt != null ? state.itemCount : null)
+                    .durationMs(millisBetween(state.startedAt, state.finishedAt))
+                    .build());
+        }
+
+        return MrpJobDTO.builder()
+                .id(id)
+                .trigger(trigger)
+                .status(status)
+                .currentPhase(currentPhase)
+                .progressPercent(completedPhases * 100 / phases.size())
+                .phases(phaseDTOs)
+                .createdAt(createdAt)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .durationMs(millisBetween(startedAt, finishedAt))
+                .suggestionGroupCount(status == MrpJobStatus.COMPLETED ? suggestionGroupCount : null)
+                .result(result)
+                .error(error)
+                .build();
+    }
+
+    private static Long millisBetween(LocalDateTime from, LocalDateTime to) {
+        if (from == null) {
+            return null;
+        }
+        return Duration.between(from, to != null ? to : LocalDateTime.now()).toMillis();
+    }
+
+    private static class PhaseState {
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private int itemCount;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.prodqapi.mrp;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Single entry point for running MRP work.
+ * <p>
+ * All MRP runs (on-demand jobs, the daily schedule and incremental passes) execute
+ * on one dedicated thread, so they never overlap. A full analysis requested while
+ * another one is queued or running joins that job instead of starting a second one.
+ */
+@Component
+@Slf4j
+public class MrpJobCoordinator {
+
+    private static final int MAX_RETAINED_JOBS = 20;
+
+    private final MrpService mrpService;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "mrp-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Recently started jobs, oldest evicted first
+    private final Map<String, MrpJob> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MrpJob> eldest) {
+            return size() > MAX_RETAINED_JOBS;
+        }
+    };
+
+    private MrpJob activeJob;
+
+    public MrpJobCoordinator(MrpService mrpService) {
+        this.mrpService = mrpService;
+    }
+
+    /**
+     * Start a full analysis, or return the job already queued/running
+     */
+    public synchronized MrpJob submitFullAnalysis(String trigger) {
+        if (activeJob != null && !activeJob.getStatus().isFinished()) {
+            log.info("MRP analysis already in progress (job {}), joining it", activeJob.getId());
+            return activeJob;
+        }
+
+        MrpJob job = new MrpJob(trigger);
+        jobs.put(job.getId(), job);
+        activeJob = job;
+        executor.execute(() -> runJob(job));
+        log.info("Queued MRP analysis job {} ({})", job.getId(), trigger);
+        return job;
+    }
+
+    public synchronized Optional<MrpJob> findJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    public synchronized Optional<MrpJob> findLatestJob() {
+        return Optional.ofNullable(activeJob);
+    }
+
+    /**
+     * Run an incremental pass on the MRP thread and wait for it
+     */
+    public void runIncremental(Map<ResourceType, Set<Integer>> resources) throws Exception {
+        Future<?> future = executor.submit(() -> mrpService.reanalyzeResources(resources));
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private void runJob(MrpJob job) {
+        job.markRunning();
+        try {
+            List<MrpOrderSuggestionGroup> groups = mrpService.runFullAnalysisWithGrouping(job);
+            job.complete(groups, mrpService.getDashboard());
+            log.info("MRP analysis job {} completed", job.getId());
+        } catch (Exception e) {
+            log.error("MRP analysis job {} failed", job.getId(), e);
+            job.fail(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
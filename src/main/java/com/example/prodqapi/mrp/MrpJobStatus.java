@@ -0,0 +1,15 @@
+package com.example.prodqapi.mrp;
+
+/**
+ * Lifecycle of an MRP analysis job.
+ */
+public enum MrpJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
@@ -89,6 +89,12 @@ public class MrpOrderSuggestionGroup {
     @Column(name = "dismissed_reason")
     private String dismissedReason;
 
+    /**
+     * Fingerprint of the group key and its analyses ({@link MrpFingerprint#ofGroup})
+     */
+    @Column(name = "fingerprint", length = 16)
+    private String fingerprint;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -117,6 +123,51 @@ public class MrpOrderSuggestionGroup {
         updateEarliestNeedDate(analysis.getEarliestNeedDate());
     }
 
+    /**
+     * Analyses this group still suggests - resolved rows stay linked to it until retention removes them
+     */
+    public List<MrpAnalysisResult> pendingAnalyses() {
+        if (analyses == null) {
+            return new ArrayList<>();
+        }
+        return analyses.stream()
+                .filter(analysis -> analysis.getStatus() == MrpAnalysisStatus.PENDING)
+                .toList();
+    }
+
+    /**
+     * Remove an analysis result from this group's summary and refresh count, priority and need date.
+     * The analysis keeps its link to the group: resolved rows stay attached to the group they were
+     * suggested in (retention deletes them together).
+     */
+    public void removeAnalysis(MrpAnalysisResult analysis) {
+        if (analyses == null) {
+            return;
+        }
+        // Identity comparison: @Data equals/hashCode would recurse through the bidirectional link
+        if (analyses.removeIf(a -> a == analysis)) {
+            refreshSummary();
+        }
+    }
+
+    /**
+     * Recompute item count, highest priority and earliest need date from current analyses
+     */
+    public void refreshSummary() {
+        highestPriority = null;
+        earliestNeedDate = null;
+        if (analyses != null) {
+            for (MrpAnalysisResult analysis : analyses) {
+                updateHighestPriority(analysis.getPriority());
+                updateEarliestNeedDate(analysis.getEarliestNeedDate());
+            }
+        }
+        if (highestPriority == null) {
+            highestPriority = MrpPriority.LOW;
+        }
+        updateItemCount();
+    }
+
     private void updateItemCount() {
         this.itemCount = analyses != null ? analyses.size() : 0;
     }
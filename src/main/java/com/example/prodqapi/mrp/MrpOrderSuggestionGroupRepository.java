@@ -1,5 +1,6 @@
 package com.example.prodqapi.mrp;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -7,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -41,6 +43,11 @@ public interface MrpOrderSuggestionGroupRepository extends JpaRepository<MrpOrde
      */
     long countByHighestPriorityAndStatus(MrpPriority priority, SuggestionStatus status);
 
+    /**
+     * Count groups by status
+     */
+    long countByStatus(SuggestionStatus status);
+
     /**
      * Find suggestion group with analyses loaded
      */
@@ -50,6 +57,15 @@ public interface MrpOrderSuggestionGroupRepository extends JpaRepository<MrpOrde
            "WHERE g.id = :id")
     MrpOrderSuggestionGroup findByIdWithAnalyses(@Param("id") Integer id);
 
+    /**
+     * Find pending suggestion groups of the given resource types with analyses loaded (incremental MRP)
+     */
+    @Query("SELECT DISTINCT g FROM MrpOrderSuggestionGroup g " +
+           "LEFT JOIN FETCH g.analyses " +
+           "LEFT JOIN FETCH g.supplier " +
+           "WHERE g.status = 'PENDING' AND g.resourceType IN :types")
+    List<MrpOrderSuggestionGroup> findPendingWithAnalysesByResourceTypes(@Param("types") Collection<ResourceType> types);
+
     /**
      * Delete old dismissed suggestions (cleanup)
      */
@@ -57,6 +73,26 @@ public interface MrpOrderSuggestionGroupRepository extends JpaRepository<MrpOrde
     @Query("DELETE FROM MrpOrderSuggestionGroup g WHERE g.status = 'DISMISSED' AND g.dismissedAt < :beforeDate")
     int deleteDismissedBefore(@Param("beforeDate") LocalDateTime beforeDate);
 
+    /**
+     * Ids of groups dismissed before the given date, oldest first (retention, chunked)
+     */
+    @Query("SELECT g.id FROM MrpOrderSuggestionGroup g " +
+           "WHERE g.status = 'DISMISSED' AND g.dismissedAt < :beforeDate " +
+           "ORDER BY g.id ASC")
+    List<Integer> findDismissedIdsBefore(@Param("beforeDate") LocalDateTime beforeDate, Pageable pageable);
+
+    /**
+     * Ids of groups converted to an order and last updated before the given date (retention, chunked)
+     */
+    @Query("SELECT g.id FROM MrpOrderSuggestionGroup g " +
+           "WHERE g.status = 'CONVERTED_TO_ORDER' AND g.updatedAt < :beforeDate " +
+           "ORDER BY g.id ASC")
+    List<Integer> findConvertedIdsBefore(@Param("beforeDate") LocalDateTime beforeDate, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM MrpOrderSuggestionGroup g WHERE g.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Integer> ids);
+
     /**
      * Mark all pending suggestions as dismissed before running new analysis
      */
@@ -0,0 +1,11 @@
+package com.example.prodqapi.mrp;
+
+/**
+ * Phases of a full MRP analysis run, in execution order.
+ */
+public enum MrpPhase {
+    MATERIALS,
+    TOOLS,
+    ACCESSORIES,
+    GROUPING
+}
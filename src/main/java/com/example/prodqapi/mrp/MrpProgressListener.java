@@ -0,0 +1,16 @@
+package com.example.prodqapi.mrp;
+
+/**
+ * Callback for phase progress of a full MRP analysis run.
+ */
+public interface MrpProgressListener {
+
+    MrpProgressListener NONE = new MrpProgressListener() {
+    };
+
+    default void phaseStarted(MrpPhase phase) {
+    }
+
+    default void phaseCompleted(MrpPhase phase, int itemCount) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.prodqapi.mrp;
+
+import com.example.prodqapi.accessorieItem.AccessorieItemRepository;
+import com.example.prodqapi.material.Material;
+import com.example.prodqapi.material.MaterialRepository;
+import com.example.prodqapi.materialGroup.MaterialGroup;
+import com.example.prodqapi.materialReservation.MaterialReservationRepository;
+import com.example.prodqapi.materialReservation.ReservationStatus;
+import com.example.prodqapi.mrp.dto.MrpProjectionBucketDTO;
+import com.example.prodqapi.mrp.dto.MrpProjectionDTO;
+import com.example.prodqapi.order.OrderRepository;
+import com.example.prodqapi.productionQueueItem.DeadlineParser;
+import com.example.prodqapi.tool.ToolRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Time-phased MRP projection: day buckets of demand (material reservations by
+ * production deadline) and supply (in-transit order lines by expected delivery date),
+ * and the projected on-hand curve that follows from them.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MrpProjectionService {
+
+    public static final int DEFAULT_HORIZON_DAYS = 90;
+    private static final int MAX_HORIZON_DAYS = 365;
+
+    private final MaterialRepository materialRepository;
+    private final ToolRepository toolRepository;
+    private final AccessorieItemRepository accessorieItemRepository;
+    private final MaterialReservationRepository reservationRepository;
+    private final OrderRepository orderRepository;
+
+    /**
+     * Project one resource over the given number of days, starting today
+     */
+    @Transactional(readOnly = true)
+    public Optional<MrpProjectionDTO> getProjection(ResourceType type, Integer resourceId, int horizonDays) {
+        int horizon = Math.max(1, Math.min(horizonDays, MAX_HORIZON_DAYS));
+        TimePhasedProjection projection = new TimePhasedProjection(LocalDate.now(), horizon);
+        List<Integer> ids = List.of(resourceId);
+
+        return switch (type) {
+            case MATERIAL -> materialRepository.findById(resourceId).map(material -> {
+                boolean isPlate = isPlate(material);
+                double onHand = isPlate
+                        ? valueOrZero(material.getStockQuantity())
+                        : valueOrZero(material.getTotalStockLength());
+                addDemandRows(projection, reservationRepository.findReservedDemandRowsForMaterials(ReservationStatus.RESERVED, ids));
+                addSupplyRows(projection, orderRepository.findInTransitRowsForMaterials(ids));
+                return toDTO(projection, type, resourceId, material.getName(), isPlate ? "szt" : "mm",
+                        onHand, material.getMinQuantity());
+            });
+            case TOOL -> toolRepository.findById(resourceId).map(tool -> {
+                addSupplyRows(projection, orderRepository.findInTransitRowsForTools(ids));
+                return toDTO(projection, type, resourceId, tool.getName(), "szt",
+                        tool.getQuantity(), tool.getMinQuantity());
+            });
+            case ACCESSORIE -> accessorieItemRepository.findById(resourceId).map(item -> {
+                addSupplyRows(projection, orderRepository.findInTransitRowsForAccessorieItems(ids));
+                return toDTO(projection, type, resourceId, item.getName(), "szt",
+                        item.getQuantity(), item.getMinQuantity());
+            });
+        };
+    }
+
+    /**
+     * Rows: [resourceId, quantity, deadlineDate]
+     */
+    private void addDemandRows(TimePhasedProjection projection, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            projection.addDemand((LocalDate) row[2], ((Number) row[1]).doubleValue());
+        }
+    }
+
+    /**
+     * Rows: [resourceId, quantity, receivedQuantity, expectedDeliveryDate] - only the undelivered rest counts
+     */
+    private void addSupplyRows(TimePhasedProjection projection, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            double remaining = ((Number) row[1]).doubleValue() - ((Number) row[2]).doubleValue();
+            if (remaining > 0) {
+                projection.addSupply(DeadlineParser.parse((String) row[3]), remaining);
+            }
+        }
+    }
+
+    private MrpProjectionDTO toDTO(TimePhasedProjection projection, ResourceType type, Integer resourceId,
+                                   String name, String unit, double onHand, double minQuantity) {
+        projection.compute(onHand);
+
+        int horizon = projection.horizonDays();
+        List<MrpProjectionBucketDTO> buckets = new ArrayList<>(horizon);
+        double lowest = Double.MAX_VALUE;
+        for (int day = 0; day < horizon; day++) {
+            double projected = projection.projectedAt(day);
+            lowest = Math.min(lowest, projected);
+            buckets.add(new MrpProjectionBucketDTO(
+                    projection.dateOf(day),
+                    projection.demandAt(day),
+                    projection.supplyAt(day),
+                    projected));
+        }
+
+        return MrpProjectionDTO.builder()
+                .resourceType(type)
+                .resourceId(resourceId)
+                .resourceName(name)
+                .unit(unit)
+                .startDate(projection.dateOf(0))
+                .horizonDays(horizon)
+                .onHand(onHand)
+                .minQuantity(minQuantity)
+                .firstShortageDate(projection.dateOf(projection.firstDayBelow(0.0)))
+                .firstBelowMinDate(projection.dateOf(projection.firstDayBelow(minQuantity)))
+                .lowestProjectedOnHand(lowest)
+                .demandBeyondHorizon(projection.demandBeyondHorizon())
+                .supplyBeyondHorizon(projection.supplyBeyondHorizon())
+                .buckets(buckets)
+                .build();
+    }
+
+    private static boolean isPlate(Material material) {
+        MaterialGroup group = material.getMaterialGroup();
+        return group == null || "Plate".equalsIgnoreCase(group.getType());
+    }
+
+    private static double valueOrZero(Number value) {
+        return value != null ? value.doubleValue() : 0.0;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.prodqapi.mrp;
+
+import com.example.prodqapi.supplier.Supplier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Applies freshly calculated analyses to the stored pending suggestions,
+ * writing only what changed:
+ * <ul>
+ *   <li>same fingerprint, same supplier group - nothing is written</li>
+ *   <li>values changed, same supplier group - analysis row updated</li>
+ *   <li>new issue (or changed supplier) - added to the matching pending group, created if needed</li>
+ *   <li>issue gone - analysis resolved and removed from its group</li>
+ * </ul>
+ * Existing groups keep their ids; groups left empty are dismissed. Analyses
+ * going into new groups are batch-inserted by {@link MrpResultWriter}, the
+ * rest are managed entities flushed by Hibernate.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MrpResultReconciler {
+
+    private final MrpOrderSuggestionGroupRepository suggestionGroupRepository;
+    private final MrpResultWriter resultWriter;
+
+    /**
+     * What a reconcile pass did; {@code pendingGroups} are all pending groups of the reconciled resource types
+     */
+    public record Outcome(List<MrpOrderSuggestionGroup> pendingGroups,
+                          int unchanged, int updated, int inserted, int resolved,
+                          int groupsCreated, int groupsUpdated, int groupsDismissed) {
+    }
+
+    /**
+     * Reconcile a full run: every resource without a fresh analysis is considered resolved
+     */
+    @Transactional
+    public Outcome reconcileAll(List<MrpAnalysisResult> freshAnalyses) {
+        return reconcile(freshAnalyses, EnumSet.allOf(ResourceType.class), null);
+    }
+
+    /**
+     * Reconcile only the given resources; analyses of other resources are left untouched
+     */
+    @Transactional
+    public Outcome reconcileResources(List<MrpAnalysisResult> freshAnalyses, Map<ResourceType, Set<Integer>> resources) {
+        return reconcile(freshAnalyses, resources.keySet(), resources);
+    }
+
+    private Outcome reconcile(List<MrpAnalysisResult> freshAnalyses, Set<ResourceType> types,
+                              Map<ResourceType, Set<Integer>> scope) {
+        Map<String, MrpAnalysisResult> freshByResource = new LinkedHashMap<>();
+        for (MrpAnalysisResult analysis : freshAnalyses) {
+            analysis.setFingerprint(MrpFingerprint.of(analysis));
+            freshByResource.put(buildResourceKey(analysis.getResourceType(), analysis.getResourceId()), analysis);
+        }
+
+        // Current pending groups (with their analyses) for the affected resource types
+        List<MrpOrderSuggestionGroup> pendingGroups = suggestionGroupRepository.findPendingWithAnalysesByResourceTypes(types);
+        Map<String, MrpOrderSuggestionGroup> groupsByKey = new HashMap<>();
+        Map<String, MrpAnalysisResult> activeByResource = new LinkedHashMap<>();
+        for (MrpOrderSuggestionGroup group : pendingGroups) {
+            groupsByKey.putIfAbsent(buildGroupKey(group.getSupplier(), group.getResourceType()), group);
+            // Resolved rows stay linked to their group but don't count towards its totals or fingerprint
+            // (inverse side of the relation - nothing is written for this)
+            group.getAnalyses().removeIf(analysis -> analysis.getStatus() != MrpAnalysisStatus.PENDING);
+            for (MrpAnalysisResult analysis : group.getAnalyses()) {
+                activeByResource.put(buildResourceKey(analysis.getResourceType(), analysis.getResourceId()), analysis);
+            }
+        }
+
+        Set<String> resourceKeys = new LinkedHashSet<>();
+        if (scope == null) {
+            resourceKeys.addAll(activeByResource.keySet());
+            resourceKeys.addAll(freshByResource.keySet());
+        } else {
+            scope.forEach((type, ids) -> ids.forEach(id -> resourceKeys.add(buildResourceKey(type, id))));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Set<MrpOrderSuggestionGroup> touchedGroups = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<MrpOrderSuggestionGroup> newGroups = new ArrayList<>();
+        int unchanged = 0, updated = 0, inserted = 0, resolved = 0;
+
+        for (String resourceKey : resourceKeys) {
+            MrpAnalysisResult existing = activeByResource.get(resourceKey);
+            MrpAnalysisResult fresh = freshByResource.get(resourceKey);
+            String targetGroupKey = fresh != null ? buildGroupKey(fresh.getPreferredSupplier(), fresh.getResourceType()) : null;
+
+            if (existing != null) {
+                MrpOrderSuggestionGroup currentGroup = existing.getSuggestionGroup();
+                if (fresh != null && targetGroupKey.equals(buildGroupKey(currentGroup.getSupplier(), currentGroup.getResourceType()))) {
+                    if (fresh.getFingerprint().equals(existing.getFingerprint())) {
+                        unchanged++;
+                    } else {
+                        copyAnalysisValues(fresh, existing);
+                        touchedGroups.add(currentGroup);
+                        updated++;
+                    }
+                    continue;
+                }
+                // Issue gone or supplier changed - resolve the old row
+                currentGroup.removeAnalysis(existing);
+                existing.setStatus(MrpAnalysisStatus.RESOLVED);
+                existing.setResolvedAt(now);
+                touchedGroups.add(currentGroup);
+                resolved++;
+            }
+
+            if (fresh != null) {
+                MrpOrderSuggestionGroup target = groupsByKey.get(targetGroupKey);
+                if (target == null) {
+                    target = newGroup(fresh.getPreferredSupplier(), fresh.getResourceType(), fresh.getPriority());
+                    groupsByKey.put(targetGroupKey, target);
+                    newGroups.add(target);
+                } else {
+                    touchedGroups.add(target);
+                }
+                target.addAnalysis(fresh);
+                inserted++;
+            }
+        }
+
+        // Brand-new groups: groups first (ids needed for the FK), then their analyses, in two batches
+        for (MrpOrderSuggestionGroup group : newGroups) {
+            recalculateGroupTotals(group);
+            group.setFingerprint(MrpFingerprint.ofGroup(buildGroupKey(group.getSupplier(), group.getResourceType()), group.getAnalyses()));
+        }
+        resultWriter.insertGroups(newGroups);
+        resultWriter.insertAnalyses(newGroups.stream()
+                .flatMap(g -> g.getAnalyses().stream())
+                .collect(Collectors.toList()));
+
+        // Existing groups: managed, Hibernate writes only the ones changed here
+        int groupsUpdated = 0, groupsDismissed = 0;
+        for (MrpOrderSuggestionGroup group : touchedGroups) {
+            if (group.getAnalyses().isEmpty()) {
+                recalculateGroupTotals(group);
+                group.setStatus(SuggestionStatus.DISMISSED);
+                group.setDismissedAt(now);
+                group.setDismissedReason("Resolved by stock change");
+                groupsDismissed++;
+                continue;
+            }
+            String fingerprint = MrpFingerprint.ofGroup(buildGroupKey(group.getSupplier(), group.getResourceType()), group.getAnalyses());
+            if (!fingerprint.equals(group.getFingerprint())) {
+                recalculateGroupTotals(group);
+                group.setFingerprint(fingerprint);
+                groupsUpdated++;
+            }
+        }
+
+        List<MrpOrderSuggestionGroup> result = new ArrayList<>(pendingGroups.size() + newGroups.size());
+        for (MrpOrderSuggestionGroup group : pendingGroups) {
+            if (group.getStatus() == SuggestionStatus.PENDING) {
+                result.add(group);
+            }
+        }
+        result.addAll(newGroups);
+        // Sort by priority, then by earliest need date
+        result.sort(Comparator
+                .comparing((MrpOrderSuggestionGroup g) -> g.getHighestPriority().getOrder())
+                .thenComparing(g -> g.getEarliestNeedDate() != null ? g.getEarliestNeedDate() : LocalDate.MAX));
+
+        log.info("MRP reconcile: {} unchanged, {} updated, {} inserted, {} resolved; groups: {} created, {} updated, {} dismissed",
+                unchanged, updated, inserted, resolved, newGroups.size(), groupsUpdated, groupsDismissed);
+
+        return new Outcome(result, unchanged, updated, inserted, resolved,
+                newGroups.size(), groupsUpdated, groupsDismissed);
+    }
+
+    // ==================== Helper Methods ====================
+
+    private MrpOrderSuggestionGroup newGroup(Supplier supplier, ResourceType type, MrpPriority priority) {
+        return MrpOrderSuggestionGroup.builder()
+                .supplier(supplier)
+                .resourceType(type)
+                .groupName(buildGroupName(supplier, type))
+                .highestPriority(priority)
+                .itemCount(0)
+                .estimatedTotalNet(BigDecimal.ZERO)
+                .estimatedTotalGross(BigDecimal.ZERO)
+                .status(SuggestionStatus.PENDING)
+                .analyses(new ArrayList<>())
+                .build();
+    }
+
+    private String buildGroupKey(Supplier supplier, ResourceType type) {
+        String supplierId = supplier != null ? String.valueOf(supplier.getId()) : "no_supplier";
+        return supplierId + "_" + type.name();
+    }
+
+    private String buildResourceKey(ResourceType type, Integer resourceId) {
+        return type.name() + "_" + resourceId;
+    }
+
+    private String buildGroupName(Supplier supplier, ResourceType type) {
+        String supplierName = supplier != null ? supplier.getCompanyName() : "Brak dostawcy";
+        return supplierName + " - " + type.getDisplayName();
+    }
+
+    /**
+     * Recalculate all derived group fields from the analyses currently in the group
+     */
+    private void recalculateGroupTotals(MrpOrderSuggestionGroup group) {
+        group.refreshSummary();
+        group.setGroupName(buildGroupName(group.getSupplier(), group.getResourceType()));
+        BigDecimal totalNet = group.getAnalyses().stream()
+                .map(a -> a.getEstimatedCost() != null ? a.getEstimatedCost() : BigDecimal.ZERO)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        group.setEstimatedTotalNet(totalNet);
+        // Assume 23% VAT
+        group.setEstimatedTotalGross(totalNet.multiply(BigDecimal.valueOf(1.23)));
+        group.setSuggestedOrderDate(null);
+        calculateSuggestedOrderDate(group);
+    }
+
+    /**
+     * Copy calculated values of a fresh analysis onto an existing (managed) row
+     */
+    private void copyAnalysisValues(MrpAnalysisResult source, MrpAnalysisResult target) {
+        target.setResourceName(source.getResourceName());
+        target.setPriority(source.getPriority());
+        target.setCurrentStock(source.getCurrentStock());
+        target.setReservedQuantity(source.getReservedQuantity());
+        target.setAvailableQuantity(source.getAvailableQuantity());
+        target.setInTransit(source.getInTransit());
+        target.setMinQuantity(source.getMinQuantity());
+        target.setRequiredQuantity(source.getRequiredQuantity());
+        target.setShortageQuantity(source.getShortageQuantity());
+        target.setSuggestedOrderQty(source.getSuggestedOrderQty());
+        target.setUnit(source.getUnit());
+        target.setEarliestNeedDate(source.getEarliestNeedDate());
+        target.setAffectedProductions(source.getAffectedProductions());
+        target.setAnalyzedAt(source.getAnalyzedAt());
+        target.setPreferredSupplier(source.getPreferredSupplier());
+        target.setEstimatedCost(source.getEstimatedCost());
+        target.setFingerprint(source.getFingerprint());
+    }
+
+    private void calculateSuggestedOrderDate(MrpOrderSuggestionGroup group) {
+        LocalDate earliestNeed = group.getEarliestNeedDate();
+        Integer leadTime = group.getEstimatedLeadTimeDays();
+
+        if (earliestNeed != null && leadTime != null && leadTime > 0) {
+            group.setSuggestedOrderDate(earliestNeed.minusDays(leadTime));
+        } else if (earliestNeed != null) {
+            // No lead time info, suggest ordering today if critical
+            if (group.getHighestPriority() == MrpPriority.CRITICAL ||
+                    group.getHighestPriority() == MrpPriority.HIGH) {
+                group.setSuggestedOrderDate(LocalDate.now());
+            }
+        }
+    }
+}
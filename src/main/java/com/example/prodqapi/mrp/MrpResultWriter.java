@@ -0,0 +1,162 @@
+package com.example.prodqapi.mrp;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Batched JDBC inserts for MRP results.
+ * Both MRP tables use IDENTITY keys, so Hibernate would insert them row by row;
+ * here they are written with JDBC batches and the generated ids are copied back
+ * onto the (unmanaged) entities. Must be called inside the caller's transaction.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MrpResultWriter {
+
+    private static final int BATCH_SIZE = 200;
+
+    private static final String INSERT_GROUP_SQL =
+            "INSERT INTO mrp_order_suggestion_group (group_name, supplier_id, resource_type, highest_priority, " +
+            "item_count, estimated_total_net, estimated_total_gross, estimated_lead_time_days, suggested_order_date, " +
+            "earliest_need_date, status, created_at, updated_at, fingerprint) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ANALYSIS_SQL =
+            "INSERT INTO mrp_analysis_result (resource_type, resource_id, resource_name, priority, current_stock, " +
+            "reserved_quantity, available_quantity, in_transit, min_quantity, required_quantity, shortage_quantity, " +
+            "suggested_order_qty, unit, earliest_need_date, affected_productions, status, analyzed_at, resolved_at, " +
+            "suggestion_group_id, preferred_supplier_id, estimated_cost, fingerprint) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert new suggestion groups (analyses are not cascaded - use {@link #insertAnalyses})
+     */
+    public void insertGroups(Collection<MrpOrderSuggestionGroup> groups) {
+        LocalDateTime now = LocalDateTime.now();
+        List<MrpOrderSuggestionGroup> rows = new ArrayList<>(groups);
+        for (MrpOrderSuggestionGroup group : rows) {
+            if (group.getCreatedAt() == null) {
+                group.setCreatedAt(now);
+            }
+            group.setUpdatedAt(now);
+            if (group.getStatus() == null) {
+                group.setStatus(SuggestionStatus.PENDING);
+            }
+        }
+
+        insertBatched(INSERT_GROUP_SQL, rows, (ps, g) -> {
+            set(ps, 1, g.getGroupName());
+            set(ps, 2, g.getSupplier() != null ? g.getSupplier().getId() : null);
+            set(ps, 3, g.getResourceType().name());
+            set(ps, 4, g.getHighestPriority().name());
+            set(ps, 5, g.getItemCount());
+            set(ps, 6, g.getEstimatedTotalNet());
+            set(ps, 7, g.getEstimatedTotalGross());
+            set(ps, 8, g.getEstimatedLeadTimeDays());
+            set(ps, 9, g.getSuggestedOrderDate());
+            set(ps, 10, g.getEarliestNeedDate());
+            set(ps, 11, g.getStatus().name());
+            set(ps, 12, g.getCreatedAt());
+            set(ps, 13, g.getUpdatedAt());
+            set(ps, 14, g.getFingerprint());
+        }, MrpOrderSuggestionGroup::setId);
+    }
+
+    /**
+     * Insert new analysis results, including the link to their suggestion group if set
+     */
+    public void insertAnalyses(List<MrpAnalysisResult> analyses) {
+        LocalDateTime now = LocalDateTime.now();
+        for (MrpAnalysisResult analysis : analyses) {
+            if (analysis.getAnalyzedAt() == null) {
+                analysis.setAnalyzedAt(now);
+            }
+            if (analysis.getStatus() == null) {
+                analysis.setStatus(MrpAnalysisStatus.PENDING);
+            }
+        }
+
+        insertBatched(INSERT_ANALYSIS_SQL, analyses, (ps, a) -> {
+            set(ps, 1, a.getResourceType().name());
+            set(ps, 2, a.getResourceId());
+            set(ps, 3, a.getResourceName());
+            set(ps, 4, a.getPriority().name());
+            set(ps, 5, a.getCurrentStock());
+            set(ps, 6, a.getReservedQuantity());
+            set(ps, 7, a.getAvailableQuantity());
+            set(ps, 8, a.getInTransit());
+            set(ps, 9, a.getMinQuantity());
+            set(ps, 10, a.getRequiredQuantity());
+            set(ps, 11, a.getShortageQuantity());
+            set(ps, 12, a.getSuggestedOrderQty());
+            set(ps, 13, a.getUnit());
+            set(ps, 14, a.getEarliestNeedDate());
+            set(ps, 15, a.getAffectedProductions());
+            set(ps, 16, a.getStatus().name());
+            set(ps, 17, a.getAnalyzedAt());
+            set(ps, 18, a.getResolvedAt());
+            set(ps, 19, a.getSuggestionGroup() != null ? a.getSuggestionGroup().getId() : null);
+            set(ps, 20, a.getPreferredSupplier() != null ? a.getPreferredSupplier().getId() : null);
+            set(ps, 21, a.getEstimatedCost());
+            set(ps, 22, a.getFingerprint());
+        }, MrpAnalysisResult::setId);
+    }
+
+    private <T> void insertBatched(String sql, List<T> rows, RowBinder<T> binder, BiConsumer<T, Integer> idSetter) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            List<T> chunk = rows.subList(from, Math.min(from + BATCH_SIZE, rows.size()));
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+
+            jdbcTemplate.batchUpdate(
+                    con -> con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            binder.bind(ps, chunk.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    },
+                    keyHolder);
+
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < chunk.size() && i < keys.size(); i++) {
+                Object key = keys.get(i).values().iterator().next();
+                idSetter.accept(chunk.get(i), ((Number) key).intValue());
+            }
+        }
+        log.debug("Batch-inserted {} rows", rows.size());
+    }
+
+    private static void set(PreparedStatement ps, int index, Object value) throws SQLException {
+        StatementCreatorUtils.setParameterValue(ps, index, SqlTypeValue.TYPE_UNKNOWN, value);
+    }
+
+    @FunctionalInterface
+    private interface RowBinder<T> {
+        void bind(PreparedStatement ps, T row) throws SQLException;
+    }
+}
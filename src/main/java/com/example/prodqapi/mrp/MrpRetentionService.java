@@ -0,0 +1,142 @@
+package com.example.prodqapi.mrp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Retention for MRP results. Every full analysis inserts a fresh set of analyses and
+ * groups, so old resolved analyses and dismissed / converted groups are purged after
+ * a configurable number of days. Deletes run in bounded chunks, each in its own short
+ * transaction, so no long locks are held on the MRP tables.
+ * <p>
+ * Metrics: {@code mrp.retention.purged} (rows, tagged by table and reason) and
+ * {@code mrp.retention.duration}.
+ */
+@Service
+@Slf4j
+public class MrpRetentionService {
+
+    private static final String ANALYSIS_TABLE = "mrp_analysis_result";
+    private static final String GROUP_TABLE = "mrp_order_suggestion_group";
+
+    private final MrpAnalysisResultRepository analysisResultRepository;
+    private final MrpOrderSuggestionGroupRepository suggestionGroupRepository;
+    private final MrpDashboardService dashboardService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer purgeTimer;
+
+    @Value("${mrp.retention.resolved-analyses-days:30}")
+    private int resolvedAnalysesDays;
+
+    @Value("${mrp.retention.dismissed-groups-days:30}")
+    private int dismissedGroupsDays;
+
+    @Value("${mrp.retention.converted-groups-days:365}")
+    private int convertedGroupsDays;
+
+    @Value("${mrp.retention.chunk-size:500}")
+    private int chunkSize;
+
+    public MrpRetentionService(MrpAnalysisResultRepository analysisResultRepository,
+                               MrpOrderSuggestionGroupRepository suggestionGroupRepository,
+                               MrpDashboardService dashboardService,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry) {
+        this.analysisResultRepository = analysisResultRepository;
+        this.suggestionGroupRepository = suggestionGroupRepository;
+        this.dashboardService = dashboardService;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.purgeTimer = Timer.builder("mrp.retention.duration")
+                .description("Time taken by an MRP retention run")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Purge everything past its retention window. Returns the number of rows deleted.
+     */
+    public int purgeExpired() {
+        return purgeTimer.record(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            long start = System.currentTimeMillis();
+
+            int resolved = purgeInChunks(ANALYSIS_TABLE, "resolved",
+                    page -> analysisResultRepository.findResolvedIdsBefore(now.minusDays(resolvedAnalysesDays), page),
+                    analysisResultRepository::deleteByIdIn);
+
+            int dismissed = purgeInChunks(GROUP_TABLE, "dismissed",
+                    page -> suggestionGroupRepository.findDismissedIdsBefore(now.minusDays(dismissedGroupsDays), page),
+                    this::deleteGroupsWithAnalyses);
+
+            int converted = purgeInChunks(GROUP_TABLE, "converted",
+                    page -> suggestionGroupRepository.findConvertedIdsBefore(now.minusDays(convertedGroupsDays), page),
+                    this::deleteGroupsWithAnalyses);
+
+            int total = resolved + dismissed + converted;
+            if (total > 0) {
+                // Dismissed groups may still carry unresolved analyses that were counted
+                dashboardService.refresh();
+            }
+
+            log.info("MRP retention: purged {} resolved analyses, {} dismissed and {} converted groups in {} ms",
+                    resolved, dismissed, converted, System.currentTimeMillis() - start);
+            return total;
+        });
+    }
+
+    /**
+     * Repeatedly load up to chunkSize ids and delete them in their own transaction until none are left
+     */
+    private int purgeInChunks(String table, String reason,
+                              Function<Pageable, List<Integer>> idLoader,
+                              ToIntFunction<List<Integer>> deleter) {
+        Counter counter = Counter.builder("mrp.retention.purged")
+                .description("Rows deleted by MRP retention")
+                .tag("table", table)
+                .tag("reason", reason)
+                .register(meterRegistry);
+
+        Pageable firstChunk = PageRequest.of(0, chunkSize);
+        int purged = 0;
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status -> {
+                List<Integer> ids = idLoader.apply(firstChunk);
+                return ids.isEmpty() ? 0 : deleter.applyAsInt(ids);
+            });
+            if (deleted == null || deleted == 0) {
+                break;
+            }
+            purged += deleted;
+            counter.increment(deleted);
+            if (deleted < chunkSize) {
+                break;
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * Analyses reference their group, so they go first. Returns the number of groups deleted.
+     */
+    private int deleteGroupsWithAnalyses(List<Integer> groupIds) {
+        int analyses = analysisResultRepository.deleteBySuggestionGroupIdIn(groupIds);
+        if (analyses > 0) {
+            meterRegistry.counter("mrp.retention.purged", "table", ANALYSIS_TABLE, "reason", "group_removed")
+                    .increment(analyses);
+        }
+        return suggestionGroupRepository.deleteByIdIn(groupIds);
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Scheduler for automatic MRP analysis.
@@ -19,8 +20,11 @@ import java.util.Map;
 @Slf4j
 public class MrpScheduler {
 
-    private final MrpService mrpService;
+    private final MrpJobCoordinator jobCoordinator;
     private final NotificationService notificationService;
+    private final MrpDirtyTracker dirtyTracker;
+    private final MrpRetentionService retentionService;
+    private final MrpDashboardService dashboardService;
 
     /**
      * Daily MRP analysis at 6:00 AM (Warsaw timezone)
@@ -31,7 +35,10 @@ public class MrpScheduler {
         log.info("=== Starting scheduled daily MRP analysis ===");
 
         try {
-            List<MrpOrderSuggestionGroup> suggestions = mrpService.runFullAnalysisWithGrouping();
+            // Joins an on-demand run if one is already in progress
+            List<MrpOrderSuggestionGroup> suggestions = jobCoordinator.submitFullAnalysis("SCHEDULED")
+                    .getCompletion()
+                    .get();
 
             // Count by priority
             long criticalCount = suggestions.stream()
@@ -44,6 +51,12 @@ public class MrpScheduler {
             log.info("Daily MRP analysis completed. Found {} suggestion groups ({} critical, {} high priority)",
                     suggestions.size(), criticalCount, highCount);
 
+            // Notify only when the set of critical/high items differs from the last notified one
+            if (!dashboardService.markUrgentSetNotified(MrpFingerprint.ofUrgentSet(suggestions))) {
+                log.info("Critical/high priority items unchanged since the last notification");
+                return;
+            }
+
             // Send system notification if there are critical or high priority items
             if (criticalCount > 0) {
                 notificationService.sendSystemNotification(NotificationDescription.MrpCriticalShortage,
@@ -58,6 +71,36 @@ public class MrpScheduler {
         }
     }
 
+    /**
+     * Incremental MRP: re-analyze resources changed by deliveries, reservations
+     * and completed programs since the last pass. Cheap no-op when nothing changed.
+     */
+    @Scheduled(fixedDelayString = "${mrp.incremental.delay-ms:5000}")
+    public void processChangedResources() {
+        if (dirtyTracker.isEmpty()) {
+            return;
+        }
+        Map<ResourceType, Set<Integer>> changed = dirtyTracker.drain();
+        try {
+            jobCoordinator.runIncremental(changed);
+        } catch (Exception e) {
+            log.error("Error during incremental MRP analysis, will retry", e);
+            dirtyTracker.markAllDirty(changed);
+        }
+    }
+
+    /**
+     * Nightly purge of old MRP results (3:30 AM Warsaw time by default)
+     */
+    @Scheduled(cron = "${mrp.retention.cron:0 30 3 * * *}", zone = "Europe/Warsaw")
+    public void purgeOldResults() {
+        try {
+            retentionService.purgeExpired();
+        } catch (Exception e) {
+            log.error("Error during MRP retention", e);
+        }
+    }
+
     /**
      * Optional: Run analysis at noon for critical items check
      * Uncomment if needed
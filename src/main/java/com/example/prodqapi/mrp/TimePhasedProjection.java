@@ -0,0 +1,118 @@
+package com.example.prodqapi.mrp;
+
+import java.time.LocalDate;
+
+/**
+ * Daily demand/supply buckets and projected on-hand curve for one resource.
+ * Plain double arrays sized to the horizon, allocated once per projection.
+ * Day 0 is the start date; anything dated earlier (overdue) lands in day 0,
+ * anything past the horizon is only counted in the beyond-horizon totals.
+ * Not thread-safe.
+ */
+final class TimePhasedProjection {
+
+    private final LocalDate startDate;
+    private final long startEpochDay;
+    private final int horizonDays;
+    private final double[] demand;
+    private final double[] supply;
+    private final double[] projected;
+
+    private double demandBeyondHorizon;
+    private double supplyBeyondHorizon;
+
+    TimePhasedProjection(LocalDate startDate, int horizonDays) {
+        this.startDate = startDate;
+        this.startEpochDay = startDate.toEpochDay();
+        this.horizonDays = horizonDays;
+        this.demand = new double[horizonDays];
+        this.supply = new double[horizonDays];
+        this.projected = new double[horizonDays];
+    }
+
+    /**
+     * Demand without a date is treated as needed immediately
+     */
+    void addDemand(LocalDate date, double quantity) {
+        int day = dayIndex(date);
+        if (day < horizonDays) {
+            demand[day] += quantity;
+        } else {
+            demandBeyondHorizon += quantity;
+        }
+    }
+
+    /**
+     * Supply without a date (or already late) is treated as arriving immediately
+     */
+    void addSupply(LocalDate date, double quantity) {
+        int day = dayIndex(date);
+        if (day < horizonDays) {
+            supply[day] += quantity;
+        } else {
+            supplyBeyondHorizon += quantity;
+        }
+    }
+
+    /**
+     * Fill the projected on-hand curve: onHand + cumulative supply - cumulative demand
+     */
+    void compute(double onHand) {
+        double running = onHand;
+        for (int day = 0; day < horizonDays; day++) {
+            running += supply[day] - demand[day];
+            projected[day] = running;
+        }
+    }
+
+    /**
+     * First day whose projected on-hand is below the threshold, or -1
+     */
+    int firstDayBelow(double threshold) {
+        for (int day = 0; day < horizonDays; day++) {
+            if (projected[day] < threshold) {
+                return day;
+            }
+        }
+        return -1;
+    }
+
+    LocalDate dateOf(int day) {
+        return day < 0 ? null : startDate.plusDays(day);
+    }
+
+    int horizonDays() {
+        return horizonDays;
+    }
+
+    double demandAt(int day) {
+        return demand[day];
+    }
+
+    double supplyAt(int day) {
+        return supply[day];
+    }
+
+    double projectedAt(int day) {
+        return projected[day];
+    }
+
+    double demandBeyondHorizon() {
+        return demandBeyondHorizon;
+    }
+
+    double supplyBeyondHorizon() {
+        return supplyBeyondHorizon;
+    }
+
+    private int dayIndex(LocalDate date) {
+        if (date == null) {
+            return 0;
+        }
+        long offset = date.toEpochDay() - startEpochDay;
+        if (offset < 0) {
+            return 0;
+        }
+        return offset >= horizonDays ? horizonDays : (int) offset;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.prodqapi.mrp.dto;
+
+import com.example.prodqapi.mrp.MrpJobStatus;
+import com.example.prodqapi.mrp.MrpPhase;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MrpJobDTO {
+
+    private String id;
+    private String trigger;         // MANUAL or SCHEDULED
+    private MrpJobStatus status;
+    private MrpPhase currentPhase;
+    private int progressPercent;
+    private List<MrpJobPhaseDTO> phases;
+
+    // Timings
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Long durationMs;
+
+    // Result (only when COMPLETED)
+    private Integer suggestionGroupCount;
+    private MrpDashboardDTO result;
+
+    // Failure message (only when FAILED)
+    private String error;
+}
@@ -0,0 +1,19 @@
+package com.example.prodqapi.mrp.dto;
+
+import com.example.prodqapi.mrp.MrpPhase;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MrpJobPhaseDTO {
+
+    private MrpPhase phase;
+    private String status;          // PENDING, RUNNING, COMPLETED, FAILED
+    private Integer itemCount;      // Analyses produced by the phase (groups for GROUPING)
+    private Long durationMs;
+}
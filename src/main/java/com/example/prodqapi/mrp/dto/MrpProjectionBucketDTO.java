@@ -0,0 +1,18 @@
+package com.example.prodqapi.mrp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MrpProjectionBucketDTO {
+
+    private LocalDate date;
+    private double demand;
+    private double supply;
+    private double projectedOnHand;
+}
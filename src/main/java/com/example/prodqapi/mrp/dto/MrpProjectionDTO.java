@@ -0,0 +1,39 @@
+package com.example.prodqapi.mrp.dto;
+
+import com.example.prodqapi.mrp.ResourceType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MrpProjectionDTO {
+
+    private ResourceType resourceType;
+    private Integer resourceId;
+    private String resourceName;
+    private String unit;
+
+    private LocalDate startDate;
+    private int horizonDays;
+
+    private double onHand;              // Physical stock at start date
+    private double minQuantity;
+
+    // First day projected on-hand drops below zero / below min quantity (null = not within horizon)
+    private LocalDate firstShortageDate;
+    private LocalDate firstBelowMinDate;
+    private double lowestProjectedOnHand;
+
+    // Dated after the horizon end, not part of the curve
+    private double demandBeyondHorizon;
+    private double supplyBeyondHorizon;
+
+    private List<MrpProjectionBucketDTO> buckets;
+}
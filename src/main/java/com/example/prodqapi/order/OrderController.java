@@ -2,6 +2,7 @@ package com.example.prodqapi.order;
 
 
 import com.example.prodqapi.common.CommonService;
+import com.example.prodqapi.common.FileDownloadResponder;
 import com.example.prodqapi.documentAttachment.DocumentAttachmentDTO;
 import com.example.prodqapi.documentAttachment.DocumentAttachmentService;
 import com.example.prodqapi.documentAttachment.DocumentCategory;
@@ -18,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 
 @RestController
@@ -28,6 +30,7 @@ public class OrderController {
     private final OrderService orderService;
     private final CommonService commonService;
     private final DocumentAttachmentService documentAttachmentService;
+    private final FileDownloadResponder fileDownloadResponder;
 
     @GetMapping("/all")
     public ResponseEntity<List<Order>> getAllOrders() {
@@ -269,27 +272,14 @@ public class OrderController {
      * GET /api/order/{orderId}/invoice/download
      */
     @GetMapping("/{orderId}/invoice/download")
-    public ResponseEntity<byte[]> downloadInvoice(@PathVariable Integer orderId) {
+    public ResponseEntity<Resource> downloadInvoice(@PathVariable Integer orderId) {
 
         try {
-            // Get invoice documents for this order
-            List<DocumentAttachmentDTO> invoices = documentAttachmentService.getDocumentsByCategory(
-                    orderId, DocumentCategory.INVOICE);
-
-            if (invoices.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-
             // Get the first invoice (latest)
-            DocumentAttachmentDTO invoice = invoices.get(0);
-
-            // Download document bytes
-            byte[] content = documentAttachmentService.downloadDocument(invoice.getId());
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + invoice.getFileName() + "\"")
-                    .body(content);
+            return documentAttachmentService.getFirstDocumentByCategory(orderId, DocumentCategory.INVOICE)
+                    .map(invoice -> fileDownloadResponder.attachment(Paths.get(invoice.getFilePath()), invoice.getFileName(),
+                            MediaType.APPLICATION_OCTET_STREAM_VALUE, null))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
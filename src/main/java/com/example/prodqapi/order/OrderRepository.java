@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -53,4 +54,32 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT o FROM Order o WHERE o.id = :orderId")
     Optional<Order> findByIdWithLock(@Param("orderId") Integer orderId);
+
+    /**
+     * In-transit order lines for the given materials (MRP projection).
+     * Each row: [materialId, quantity, receivedQuantity, expectedDeliveryDate]
+     */
+    @Query("SELECT oi.material.id, oi.quantity, oi.receivedQuantity, o.expectedDeliveryDate " +
+           "FROM Order o JOIN o.orderItems oi " +
+           "WHERE o.transitQuantitySet = true AND oi.material.id IN :materialIds")
+    List<Object[]> findInTransitRowsForMaterials(@Param("materialIds") Collection<Integer> materialIds);
+
+    /**
+     * In-transit order lines for the given tools (MRP projection).
+     * Each row: [toolId, quantity, receivedQuantity, expectedDeliveryDate]
+     */
+    @Query("SELECT oi.tool.id, oi.quantity, oi.receivedQuantity, o.expectedDeliveryDate " +
+           "FROM Order o JOIN o.orderItems oi " +
+           "WHERE o.transitQuantitySet = true AND oi.tool.id IN :toolIds")
+    List<Object[]> findInTransitRowsForTools(@Param("toolIds") Collection<Integer> toolIds);
+
+    /**
+     * In-transit order lines for the given accessorie items (MRP projection).
+     * Order items point at the accessorie, the item is matched by name - same rule as the transit bookkeeping.
+     * Each row: [accessorieItemId, quantity, receivedQuantity, expectedDeliveryDate]
+     */
+    @Query("SELECT ai.id, oi.quantity, oi.receivedQuantity, o.expectedDeliveryDate " +
+           "FROM Order o JOIN o.orderItems oi JOIN oi.accessorie a JOIN a.accessorieItems ai " +
+           "WHERE o.transitQuantitySet = true AND ai.id IN :itemIds AND oi.name = ai.name")
+    List<Object[]> findInTransitRowsForAccessorieItems(@Param("itemIds") Collection<Integer> itemIds);
 }
@@ -8,6 +8,8 @@ import com.example.prodqapi.documentAttachment.DocumentAttachment;
 import com.example.prodqapi.documentAttachment.DocumentCategory;
 import com.example.prodqapi.material.Material;
 import com.example.prodqapi.material.MaterialRepository;
+import com.example.prodqapi.mrp.MrpDirtyTracker;
+import com.example.prodqapi.mrp.ResourceType;
 import com.example.prodqapi.notification.NotificationDescription;
 import com.example.prodqapi.notification.NotificationService;
 import com.example.prodqapi.orderChangeLog.OrderChangeLog;
@@ -66,6 +68,7 @@ public class OrderService {
     private final InvoiceReconciliationRepository invoiceReconciliationRepository;
     private final ObjectMapper objectMapper;
     private final SupplierPerformanceService supplierPerformanceService;
+    private final MrpDirtyTracker mrpDirtyTracker;
 
     // ============================================
     // Document Attachment Helper Methods
@@ -448,6 +451,7 @@ public class OrderService {
                         material.setQuantityInTransit(Math.max(material.getQuantityInTransit() - orderItem.getQuantity(), 0));
 
                         materialRepository.save(material);
+                        mrpDirtyTracker.markDirty(ResourceType.MATERIAL, material.getId());
                     }
                 } else if (orderItem.getTool() != null) {
 
@@ -461,6 +465,7 @@ public class OrderService {
                         }
 
                         toolRepository.save(tool);
+                        mrpDirtyTracker.markDirty(ResourceType.TOOL, tool.getId());
                     }
                 } else if (orderItem.getAccessorie() != null) {
                     // Handle accessories
@@ -471,6 +476,7 @@ public class OrderService {
                             if (accessorieItem.getName().equals(orderItem.getName())) {
                                 accessorieItem.setQuantityInTransit(Math.max(accessorieItem.getQuantityInTransit() - orderItem.getQuantity(), 0));
                                 accessorieItemRepository.save(accessorieItem);
+                                mrpDirtyTracker.markDirty(ResourceType.ACCESSORIE, accessorieItem.getId());
                                 break;
                             }
                         }
@@ -495,6 +501,7 @@ public class OrderService {
                         material.setQuantityInTransit(material.getQuantityInTransit() + orderItem.getQuantity());
 
                         materialRepository.save(material);
+                        mrpDirtyTracker.markDirty(ResourceType.MATERIAL, material.getId());
                     }
                 } else if (orderItem.getTool() != null) {
 
@@ -504,6 +511,7 @@ public class OrderService {
                         tool.setQuantityInTransit(tool.getQuantityInTransit() + orderItem.getQuantity());
 
                         toolRepository.save(tool);
+                        mrpDirtyTracker.markDirty(ResourceType.TOOL, tool.getId());
                     }
                 } else if (orderItem.getAccessorie() != null) {
                     // Handle accessories
@@ -514,6 +522,7 @@ public class OrderService {
                             if (accessorieItem.getName().equals(orderItem.getName())) {
                                 accessorieItem.setQuantityInTransit(accessorieItem.getQuantityInTransit() + orderItem.getQuantity());
                                 accessorieItemRepository.save(accessorieItem);
+                                mrpDirtyTracker.markDirty(ResourceType.ACCESSORIE, accessorieItem.getId());
                                 break;
                             }
                         }
@@ -571,6 +580,7 @@ public class OrderService {
                         }
 
                         materialRepository.save(material);
+                        mrpDirtyTracker.markDirty(ResourceType.MATERIAL, material.getId());
                     }
                 } else if (orderItem.getTool() != null) {
 
@@ -590,6 +600,7 @@ public class OrderService {
                         }
 
                         toolRepository.save(tool);
+                        mrpDirtyTracker.markDirty(ResourceType.TOOL, tool.getId());
                     }
                 } else if (orderItem.getAccessorie() != null) {
                     // Handle accessories
@@ -611,6 +622,7 @@ public class OrderService {
                                 }
 
                                 accessorieItemRepository.save(accessorieItem);
+                                mrpDirtyTracker.markDirty(ResourceType.ACCESSORIE, accessorieItem.getId());
                                 break;
                             }
                         }
@@ -1189,12 +1201,14 @@ public class OrderService {
                     if (material != null) {
                         material.setQuantityInTransit(Math.max(material.getQuantityInTransit() - quantityToRemove, 0));
                         materialRepository.save(material);
+                        mrpDirtyTracker.markDirty(ResourceType.MATERIAL, material.getId());
                     }
                 } else if (orderItem.getTool() != null) {
                     Tool tool = toolRepository.findById(orderItem.getTool().getId()).orElse(null);
                     if (tool != null) {
                         tool.setQuantityInTransit(Math.max(tool.getQuantityInTransit() - quantityToRemove, 0));
                         toolRepository.save(tool);
+                        mrpDirtyTracker.markDirty(ResourceType.TOOL, tool.getId());
                     }
                 } else if (orderItem.getAccessorie() != null) {
                     Accessorie accessorie = accessorieRepository.findById(orderItem.getAccessorie().getId()).orElse(null);
@@ -1203,6 +1217,7 @@ public class OrderService {
                             if (accessorieItem.getName().equals(orderItem.getName())) {
                                 accessorieItem.setQuantityInTransit(Math.max(accessorieItem.getQuantityInTransit() - quantityToRemove, 0));
                                 accessorieItemRepository.save(accessorieItem);
+                                mrpDirtyTracker.markDirty(ResourceType.ACCESSORIE, accessorieItem.getId());
                                 break;
                             }
                         }
@@ -0,0 +1,377 @@
+package com.example.prodqapi.productionQueueItem;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory index of the directories on the CNC mount (/cnc, ./cnc locally) down to
+ * {@link #DIRECTORY_SCAN_DEPTH} levels, offered as machine program/queue locations.
+ * <p>
+ * Built by one walk at startup, then kept current by a WatchService on the upper levels and a
+ * periodic reconciliation walk (cnc-index.reconcile-interval-ms) for mounts that don't deliver
+ * events. The structure hash is maintained incrementally (sum of per-path digests), so reading
+ * the locations or the hash never touches the share. Walks and probes run through the
+ * {@link MountIoGateway}; while the share doesn't answer, the last index stays in place.
+ */
+@Component
+public class CncDirectoryIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CncDirectoryIndex.class);
+
+    // Levels below the mount that are listed (the mount itself is level 0)
+    static final int DIRECTORY_SCAN_DEPTH = 3;
+    // Retry interval while the mount is missing (share not mounted yet)
+    private static final long MOUNT_RETRY_MS = 30_000;
+
+    private final Path mountDir;
+    private final MountIoGateway mountIoGateway;
+    private final long reconcileIntervalMs;
+    private final long transferTimeoutMs;
+
+    // Guarded by this; readers only see the published snapshot and hash
+    private final Set<String> locations = new HashSet<>();
+    private long hashHigh;
+    private long hashLow;
+
+    private volatile List<String> snapshot = List.of();
+    private volatile String structureHash = "empty";
+
+    private final Map<Path, WatchKey> watchKeys = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private Thread watchThread;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean mountAvailable = true;
+    private final AtomicBoolean retryScheduled = new AtomicBoolean();
+
+    /**
+     * Directories found by one walk: all locations, and the ones shallow enough to be watched
+     */
+    private record WalkResult(Set<String> locations, Set<Path> watchable) {
+    }
+
+    public CncDirectoryIndex(
+            MountIoGateway mountIoGateway,
+            @Value("${cnc-index.reconcile-interval-ms:600000}") long reconcileIntervalMs,
+            @Value("${mount-io.transfer-timeout-ms:120000}") long transferTimeoutMs) {
+        String appEnv = System.getenv("APP_ENV");
+        boolean isProdEnv = "prod".equalsIgnoreCase(appEnv) || "docker-local".equalsIgnoreCase(appEnv);
+        this.mountDir = (isProdEnv ? Paths.get("/cnc") : Paths.get("./cnc")).toAbsolutePath().normalize();
+        this.mountIoGateway = mountIoGateway;
+        this.reconcileIntervalMs = reconcileIntervalMs;
+        this.transferTimeoutMs = transferTimeoutMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cnc-directory-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            watchThread = new Thread(this::watchLoop, "cnc-directory-watcher");
+            watchThread.setDaemon(true);
+            watchThread.start();
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("WatchService not available, CNC directory index relies on periodic walks: {}", e.getMessage());
+            watchService = null;
+        }
+        scheduler.scheduleWithFixedDelay(this::reconcileSafely, 0, reconcileIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Error closing CNC directory watch service: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sorted locations ("cnc", "cnc/a", "cnc/a/b", ...)
+     */
+    public List<String> getLocations() {
+        return snapshot;
+    }
+
+    /**
+     * Changes whenever a directory appears or disappears; "empty" if there is none
+     */
+    public String getStructureHash() {
+        return structureHash;
+    }
+
+    private void reconcileSafely() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("Error walking CNC directory tree {}: {}", mountDir, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Full walk - replaces the index and (re)registers watches
+     */
+    void reconcile() throws IOException {
+        long startTime = System.nanoTime();
+        WalkResult walk;
+
+        try {
+            boolean readable = mountIoGateway.call(mountDir, "isReadable",
+                    () -> Files.isDirectory(mountDir) && Files.isReadable(mountDir));
+            walk = readable
+                    ? mountIoGateway.call(mountDir, "walkCncTree", this::walk, transferTimeoutMs)
+                    : null;
+        } catch (MountIoGateway.MountUnavailableException e) {
+            // A hung share is not an empty one - keep serving the last index
+            logger.warn("CNC mount {} not responding, keeping the current directory index: {}", mountDir, e.getMessage());
+            scheduleRetry();
+            return;
+        }
+
+        if (walk != null) {
+            mountAvailable = true;
+        } else {
+            if (mountAvailable) {
+                logger.warn("Root directory {} does not exist or is not accessible.", mountDir);
+            }
+            mountAvailable = false;
+            scheduleRetry();
+            walk = new WalkResult(Set.of(), Set.of());
+        }
+
+        Set<String> walked = walk.locations();
+        boolean changed;
+        synchronized (this) {
+            changed = !walked.equals(locations);
+            if (changed) {
+                locations.clear();
+                hashHigh = 0;
+                hashLow = 0;
+                walked.forEach(this::addLocation);
+                publish();
+            }
+        }
+
+        // Every existing watchable directory was seen by the walk
+        Set<Path> watchable = walk.watchable();
+        watchKeys.keySet().removeIf(dir -> {
+            if (!watchable.contains(dir)) {
+                watchKeys.get(dir).cancel();
+                return true;
+            }
+            return false;
+        });
+        watchable.forEach(this::register);
+
+        logger.info("CNC directory index: {} locations ({}), walked in {} ms", walked.size(),
+                changed ? "changed" : "unchanged", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    /**
+     * Walk the mount down to {@link #DIRECTORY_SCAN_DEPTH}; runs on a gateway thread
+     */
+    private WalkResult walk() throws IOException {
+        Set<String> walked = new HashSet<>();
+        Set<Path> watchable = new HashSet<>();
+        Files.walkFileTree(mountDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                int level = levelOf(dir);
+                if (level >= DIRECTORY_SCAN_DEPTH) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                walked.add(toLocation(dir));
+                if (level < DIRECTORY_SCAN_DEPTH - 1) {
+                    watchable.add(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                if (exc instanceof AccessDeniedException) {
+                    logger.warn("Access denied to directory, skipping: {}. Reason: {}", file, exc.getMessage());
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                logger.error("Error visiting file/directory: {}", file, exc);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return new WalkResult(walked, watchable);
+    }
+
+    private void scheduleRetry() {
+        if (retryScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> {
+                retryScheduled.set(false);
+                reconcileSafely();
+            }, MOUNT_RETRY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void watchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                try {
+                    handleEvent(dir, event);
+                } catch (Exception e) {
+                    logger.warn("Error handling directory event in {}: {}", dir, e.getMessage());
+                }
+            }
+            if (!key.reset()) {
+                watchKeys.remove(dir);
+            }
+        }
+    }
+
+    private void handleEvent(Path dir, WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            scheduler.execute(this::reconcileSafely);
+            return;
+        }
+        Path child = dir.resolve((Path) event.context());
+        int level = levelOf(child);
+        if (level >= DIRECTORY_SCAN_DEPTH) {
+            return;
+        }
+
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+            List<Path> created = new ArrayList<>();
+            try {
+                if (!mountIoGateway.call(child, "isDirectory", () -> Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS))) {
+                    return;
+                }
+                created.add(child);
+                if (level < DIRECTORY_SCAN_DEPTH - 1) {
+                    register(child);
+                    // Subdirectories created before the watch was in place
+                    created.addAll(mountIoGateway.call(child, "listDirectories", () -> {
+                        List<Path> children = new ArrayList<>();
+                        try (DirectoryStream<Path> stream = Files.newDirectoryStream(child, Files::isDirectory)) {
+                            stream.forEach(children::add);
+                        }
+                        return children;
+                    }));
+                }
+            } catch (IOException e) {
+                // The next reconciliation walk picks up what was missed here
+                logger.debug("Could not inspect new directory {}: {}", child, e.getMessage());
+                if (created.isEmpty()) {
+                    return;
+                }
+            }
+            synchronized (this) {
+                created.forEach(path -> addLocation(toLocation(path)));
+                publish();
+            }
+        } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+            String location = toLocation(child);
+            synchronized (this) {
+                if (!locations.contains(location)) {
+                    return;
+                }
+                String prefix = location + "/";
+                List<String> removed = locations.stream()
+                        .filter(existing -> existing.equals(location) || existing.startsWith(prefix))
+                        .toList();
+                removed.forEach(this::removeLocation);
+                publish();
+            }
+            WatchKey key = watchKeys.remove(child);
+            if (key != null) {
+                key.cancel();
+            }
+        }
+    }
+
+    private void register(Path dir) {
+        if (watchService == null || watchKeys.containsKey(dir)) {
+            return;
+        }
+        try {
+            watchKeys.put(dir, mountIoGateway.call(dir, "registerWatch", () -> dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE)));
+        } catch (IOException | ClosedWatchServiceException e) {
+            logger.debug("Could not watch {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private void addLocation(String location) {
+        if (locations.add(location)) {
+            long[] digest = digest(location);
+            hashHigh += digest[0];
+            hashLow += digest[1];
+        }
+    }
+
+    private void removeLocation(String location) {
+        if (locations.remove(location)) {
+            long[] digest = digest(location);
+            hashHigh -= digest[0];
+            hashLow -= digest[1];
+        }
+    }
+
+    private void publish() {
+        List<String> sorted = new ArrayList<>(locations);
+        Collections.sort(sorted);
+        snapshot = Collections.unmodifiableList(sorted);
+        structureHash = locations.isEmpty() ? "empty" : String.format("%016x%016x", hashHigh, hashLow);
+    }
+
+    private int levelOf(Path dir) {
+        Path relative = mountDir.relativize(dir.toAbsolutePath().normalize());
+        return relative.toString().isEmpty() ? 0 : relative.getNameCount();
+    }
+
+    private String toLocation(Path dir) {
+        String relative = mountDir.relativize(dir.toAbsolutePath().normalize()).toString().replace("\\", "/");
+        return relative.isEmpty() ? "cnc" : "cnc/" + relative;
+    }
+
+    private static long[] digest(String location) {
+        try {
+            ByteBuffer hash = ByteBuffer.wrap(MessageDigest.getInstance("MD5").digest(location.getBytes(StandardCharsets.UTF_8)));
+            return new long[]{hash.getLong(), hash.getLong()};
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.prodqapi.productionQueueItem;
+
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * Parser for the free-text dates users type into deadlines (and order delivery dates).
+ * The common fixed-width layouts - yyyy-MM-dd, dd.MM.yyyy, dd-MM-yyyy, optionally followed
+ * by a time part - are decoded directly from the characters; other layouts fall back to
+ * pre-compiled formatters parsed without exceptions. Unparseable input yields null.
+ */
+public final class DeadlineParser {
+
+    // Fallback for short forms like 5.3.2025 / 2025-3-5 (built once, thread-safe)
+    private static final DateTimeFormatter[] FALLBACK_FORMATTERS = {
+            DateTimeFormatter.ofPattern("d.M.uuuu").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ofPattern("d-M-uuuu").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ofPattern("uuuu-M-d").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ofPattern("d/M/uuuu").withResolverStyle(ResolverStyle.STRICT)
+    };
+
+    private DeadlineParser() {
+    }
+
+    public static LocalDate parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        String value = text.strip();
+        if (value.length() < 8) {
+            return null;
+        }
+
+        LocalDate fast = parseFixedWidth(value);
+        if (fast != null) {
+            return fast;
+        }
+
+        for (DateTimeFormatter formatter : FALLBACK_FORMATTERS) {
+            ParsePosition position = new ParsePosition(0);
+            TemporalAccessor parsed = formatter.parseUnresolved(value, position);
+            if (parsed != null && position.getErrorIndex() < 0 && position.getIndex() == value.length()) {
+                try {
+                    return LocalDate.from(formatter.parse(value));
+                } catch (DateTimeException ignored) {
+                    // e.g. 31.02.2025 - layout matched but the date does not exist
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * yyyy-MM-dd[...], dd.MM.yyyy[...] and dd-MM-yyyy[...] without any allocation
+     */
+    private static LocalDate parseFixedWidth(String value) {
+        if (value.length() < 10 || (value.length() > 10 && !isTimeSeparator(value.charAt(10)))) {
+            return null;
+        }
+        char c2 = value.charAt(2);
+        char c4 = value.charAt(4);
+        if (c4 == '-' && value.charAt(7) == '-') {
+            return toDate(digits(value, 0, 4), digits(value, 5, 2), digits(value, 8, 2));
+        }
+        if ((c2 == '.' || c2 == '-') && value.charAt(5) == c2) {
+            return toDate(digits(value, 6, 4), digits(value, 3, 2), digits(value, 0, 2));
+        }
+        return null;
+    }
+
+    private static boolean isTimeSeparator(char c) {
+        return c == 'T' || c == ' ';
+    }
+
+    private static int digits(String value, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private static LocalDate toDate(int year, int month, int day) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.prodqapi.productionQueueItem;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Pageable; // Dodany import
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -12,14 +14,21 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service responsible for intelligently cleaning up unused directories in the machine's programPath structure,
  * handling locked files and sending system notifications.
+ * <p>
+ * Active [orderName]/[partName] directories come from one index built with a single query. Distinct
+ * program paths are scanned concurrently, with at most directory-cleanup.parallelism-per-mount scans
+ * per filesystem so a single network share isn't flooded. Every listing and delete runs through the
+ * {@link MountIoGateway}, so a hung share ends its scan with an error instead of stalling the cleanup.
  */
 @Service
 public class DirectoryCleanupService {
@@ -30,16 +39,44 @@ public class DirectoryCleanupService {
     private final ProductionQueueItemRepository productionQueueItemRepository;
     private final FileSystemService fileSystemService;
     private final BlockedDirectoryRepository blockedDirectoryRepository;
+    private final MountIoGateway mountIoGateway;
+    private final Timer cleanupTimer;
+
+    private final int threads;
+    private final int parallelismPerMount;
+    private final long transferTimeoutMs;
+
+    /**
+     * Outcome of deleting a program directory on the share
+     */
+    private enum Deletion {
+        DELETED,
+        // Locked files or a locked directory - registered as blocked and retried later
+        BLOCKED,
+        NOT_DELETED
+    }
 
     public DirectoryCleanupService(
             MachineRepository machineRepository,
             ProductionQueueItemRepository productionQueueItemRepository,
             FileSystemService fileSystemService,
-            BlockedDirectoryRepository blockedDirectoryRepository) {
+            BlockedDirectoryRepository blockedDirectoryRepository,
+            MountIoGateway mountIoGateway,
+            MeterRegistry meterRegistry,
+            @Value("${directory-cleanup.threads:4}") int threads,
+            @Value("${directory-cleanup.parallelism-per-mount:2}") int parallelismPerMount,
+            @Value("${mount-io.transfer-timeout-ms:120000}") long transferTimeoutMs) {
         this.machineRepository = machineRepository;
         this.productionQueueItemRepository = productionQueueItemRepository;
         this.fileSystemService = fileSystemService;
         this.blockedDirectoryRepository = blockedDirectoryRepository;
+        this.mountIoGateway = mountIoGateway;
+        this.cleanupTimer = Timer.builder("directory.cleanup.duration")
+                .description("Time taken by a cleanup of unused program directories on all machines")
+                .register(meterRegistry);
+        this.threads = Math.max(1, threads);
+        this.parallelismPerMount = Math.max(1, parallelismPerMount);
+        this.transferTimeoutMs = transferTimeoutMs;
     }
 
     /**
@@ -47,20 +84,71 @@ public class DirectoryCleanupService {
      * This method is invoked automatically after application startup.
      */
     @Async
-    @Transactional
     public void cleanupAllMachines() {
+        cleanupTimer.record(this::cleanupAllProgramPaths);
+    }
+
+    private void cleanupAllProgramPaths() {
+        long started = System.nanoTime();
         logger.info("Started cleanup of unused directories for all machines.");
         List<Machine> machines = machineRepository.findAll();
-        int totalDeleted = 0;
-        int totalBlocked = 0;
+        Map<Path, Set<String>> activeIndex = buildActiveDirectoryIndex(machines);
+        FileTime indexBuiltAt = FileTime.from(Instant.now());
 
+        // One scan per distinct programPath - machines sharing a directory are covered by the same scan
+        Map<Path, String> programPaths = new LinkedHashMap<>();
         for (Machine machine : machines) {
+            if (machine.getProgramPath() != null) {
+                programPaths.putIfAbsent(normalize(machine.getProgramPath()), String.valueOf(machine.getId()));
+            }
+        }
+        logger.info("Active directory index: {} directories in {} program paths, built in {} ms",
+                activeIndex.values().stream().mapToInt(Set::size).sum(), programPaths.size(), elapsedMs(started));
+
+        int totalDeleted = 0;
+        int totalBlocked = 0;
+        if (!programPaths.isEmpty()) {
+            AtomicInteger finished = new AtomicInteger();
+            Map<String, Semaphore> mountPermits = new ConcurrentHashMap<>();
+            AtomicInteger threadNumber = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, programPaths.size()), r -> {
+                Thread thread = new Thread(r, "dir-cleanup-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
             try {
-                CleanupResult result = cleanUnusedDirectories(machine.getProgramPath(), String.valueOf(machine.getId()));
-                totalDeleted += result.deletedDirectories;
-                totalBlocked += result.blockedDirectories;
-            } catch (IOException e) {
-                logger.error("Error during directory cleanup for machine {}: {}", machine.getId(), e.getMessage(), e);
+                List<Future<CleanupResult>> futures = new ArrayList<>();
+                programPaths.forEach((basePath, queueType) -> futures.add(executor.submit(() -> {
+                    Semaphore permits = mountPermits.computeIfAbsent(mountOf(basePath), mount -> new Semaphore(parallelismPerMount));
+                    permits.acquire();
+                    try {
+                        long scanStarted = System.nanoTime();
+                        CleanupResult result = cleanProgramPath(basePath, queueType,
+                                activeIndex.getOrDefault(basePath, Set.of()), indexBuiltAt);
+                        logger.info("Directory cleanup {}/{}: {} - deleted {}, blocked {} in {} ms",
+                                finished.incrementAndGet(), programPaths.size(), basePath,
+                                result.deletedDirectories, result.blockedDirectories, elapsedMs(scanStarted));
+                        return result;
+                    } finally {
+                        permits.release();
+                    }
+                })));
+
+                for (Future<CleanupResult> future : futures) {
+                    try {
+                        CleanupResult result = future.get();
+                        totalDeleted += result.deletedDirectories;
+                        totalBlocked += result.blockedDirectories;
+                    } catch (ExecutionException e) {
+                        logger.error("Error during directory cleanup: {}", e.getCause().getMessage(), e.getCause());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Directory cleanup interrupted");
+                return;
+            } finally {
+                executor.shutdownNow();
             }
         }
 
@@ -69,7 +157,8 @@ public class DirectoryCleanupService {
         totalDeleted += blockedResult.deletedDirectories;
         totalBlocked += blockedResult.blockedDirectories;
 
-        logger.info("Completed cleanup of unused directories. Deleted: {}, Blocked: {}", totalDeleted, totalBlocked);
+        logger.info("Completed cleanup of unused directories in {} ms. Deleted: {}, Blocked: {}",
+                elapsedMs(started), totalDeleted, totalBlocked);
     }
 
     /**
@@ -83,64 +172,62 @@ public class DirectoryCleanupService {
     @Transactional
     public CleanupResult cleanUnusedDirectories(String programPath, String queueType) throws IOException {
         logger.info("Cleaning unused directories for queueType: {} in path: {}", queueType, programPath);
+        Path basePath = normalize(programPath);
+        Set<String> activePaths = buildActiveDirectoryIndex(machineRepository.findAll()).getOrDefault(basePath, Set.of());
+        return cleanProgramPath(basePath, queueType, activePaths, FileTime.from(Instant.now()));
+    }
+
+    /**
+     * Removes [orderName]/[partName] directories under basePath that no program uses. Directories
+     * modified after the active index was built are kept - they may belong to a program added meanwhile.
+     */
+    private CleanupResult cleanProgramPath(Path basePath, String queueType, Set<String> activePaths, FileTime indexBuiltAt) throws IOException {
         int deletedDirectories = 0;
         int blockedDirectories = 0;
 
-        // Retrieve active orderName/partName pairs for all machines using this programPath
-        Set<String> activePaths = getActiveDirectoryPathsForProgramPath(programPath);
-        Path basePath = Paths.get(programPath).toAbsolutePath().normalize();
-
-        if (!Files.exists(basePath) || !Files.isDirectory(basePath)) {
+        if (!mountIoGateway.call(basePath, "isDirectory", () -> Files.isDirectory(basePath))) {
             logger.debug("Directory {} does not exist or is not a directory", basePath);
             return new CleanupResult(deletedDirectories, blockedDirectories);
         }
 
         // Scan orderName directories
-        try (DirectoryStream<Path> orderStream = Files.newDirectoryStream(basePath)) {
-            for (Path orderPath : orderStream) {
-                if (!Files.isDirectory(orderPath)) {
-                    continue;
-                }
-                String orderName = orderPath.getFileName().toString();
-
-                // Scan partName subdirectories
-                try (DirectoryStream<Path> partStream = Files.newDirectoryStream(orderPath)) {
-                    for (Path partPath : partStream) {
-                        if (!Files.isDirectory(partPath)) {
-                            continue;
-                        }
-                        String partName = partPath.getFileName().toString();
-                        String relativePath = String.format("%s/%s", orderName, partName);
-
-                        // Check if the directory is in use by any machine
-                        if (!activePaths.contains(relativePath)) {
-                            if (attemptDirectoryDeletion(partPath, queueType)) {
-                                deletedDirectories++;
-                            } else {
-                                blockedDirectories++;
-                            }
-                        }
+        for (Path orderPath : listDirectories(basePath)) {
+            String orderName = orderPath.getFileName().toString();
+
+            // Scan partName subdirectories
+            for (Path partPath : listDirectories(orderPath)) {
+                String partName = partPath.getFileName().toString();
+                String relativePath = orderName + "/" + partName;
+
+                // Check if the directory is in use by any machine
+                if (!activePaths.contains(relativePath) && !isModifiedAfter(partPath, indexBuiltAt)) {
+                    if (attemptDirectoryDeletion(partPath, queueType)) {
+                        deletedDirectories++;
+                    } else {
+                        blockedDirectories++;
                     }
                 }
+            }
 
-                // Delete orderName directory if it is empty
-                if (fileSystemService.isDirectoryAccessible(orderPath) && isDirectoryEmpty(orderPath)) {
-                    try {
-                        if (Files.deleteIfExists(orderPath)) {
-                            auditDeletion(orderPath, queueType);
-                            logger.info("Deleted empty orderName directory: {}", orderPath);
-                            deletedDirectories++;
-                        } else {
-                            logger.warn("Failed to delete orderName directory {}, possibly already removed or inaccessible", orderPath);
-                        }
-                    } catch (IOException e) {
-                        logger.warn("Failed to delete orderName directory {}: {}", orderPath, e.getMessage());
-                        blockedDirectories++;
+            // Delete orderName directory if it is empty
+            if (fileSystemService.isDirectoryAccessible(orderPath) && isDirectoryEmpty(orderPath)) {
+                try {
+                    if (mountIoGateway.call(orderPath, "deleteDirectory", () -> Files.deleteIfExists(orderPath))) {
+                        auditDeletion(orderPath, queueType);
+                        logger.info("Deleted empty orderName directory: {}", orderPath);
+                        deletedDirectories++;
+                    } else {
+                        logger.warn("Failed to delete orderName directory {}, possibly already removed or inaccessible", orderPath);
                     }
-                } else if (!fileSystemService.isDirectoryAccessible(orderPath)) {
-                    logger.warn("OrderName directory {} is blocked and cannot be deleted", orderPath);
+                } catch (MountIoGateway.MountUnavailableException e) {
+                    throw e;
+                } catch (IOException e) {
+                    logger.warn("Failed to delete orderName directory {}: {}", orderPath, e.getMessage());
                     blockedDirectories++;
                 }
+            } else if (!fileSystemService.isDirectoryAccessible(orderPath)) {
+                logger.warn("OrderName directory {} is blocked and cannot be deleted", orderPath);
+                blockedDirectories++;
             }
         }
 
@@ -164,10 +251,18 @@ public class DirectoryCleanupService {
 
         for (BlockedDirectory blockedDir : blockedDirs) {
             Path dirPath = Paths.get(blockedDir.getPath());
-            if (!Files.exists(dirPath)) {
-                blockedDirectoryRepository.delete(blockedDir);
-                logger.info("Removed entry for non-existent blocked directory: {}", dirPath);
-                deletedDirectories++;
+
+            // Drop entries whose directory is already gone
+            try {
+                if (!mountIoGateway.call(dirPath, "exists", () -> Files.exists(dirPath))) {
+                    blockedDirectoryRepository.delete(blockedDir);
+                    logger.info("Removed entry for non-existent blocked directory: {}", dirPath);
+                    deletedDirectories++;
+                    continue;
+                }
+            } catch (IOException e) {
+                logger.warn("Cannot check blocked directory {}: {}", dirPath, e.getMessage());
+                blockedDirectories++;
                 continue;
             }
 
@@ -208,32 +303,77 @@ public class DirectoryCleanupService {
     }
 
     /**
-     * Retrieves active directory paths ([orderName]/[partName]) for all machines using the specified programPath.
+     * Active [orderName]/[partName] paths per program directory, for all machines, from one query.
+     * Machines sharing a programPath share one entry.
      *
-     * @param programPath Path to the machine's program directory
-     * @return Set of active paths
+     * @param machines All machines
+     * @return Normalized programPath -> active relative paths
      */
-    private Set<String> getActiveDirectoryPathsForProgramPath(String programPath) {
-        // Find all machines using this programPath
-        List<Machine> machines = machineRepository.findByProgramPath(programPath);
-        Set<String> activePaths = new HashSet<>();
-
-        // Collect active paths for each machine
+    private Map<Path, Set<String>> buildActiveDirectoryIndex(List<Machine> machines) {
+        Map<String, Path> programPathByQueueType = new HashMap<>();
         for (Machine machine : machines) {
-            String queueType = String.valueOf(machine.getId());
-            // --- TUTAJ JEST POPRAWKA ---
-            List<ProductionQueueItem> items = productionQueueItemRepository.findByQueueType(queueType, Pageable.unpaged()).getContent();
-            activePaths.addAll(items.stream()
-                    .map(item -> {
-                        String orderName = fileSystemService.sanitizeName(item.getOrderName(), "NoOrderName_" + item.getId());
-                        String partName = fileSystemService.sanitizeName(item.getPartName(), "NoPartName_" + item.getId());
-                        return String.format("%s/%s", orderName, partName);
-                    })
-                    .collect(Collectors.toSet()));
+            if (machine.getProgramPath() != null) {
+                programPathByQueueType.put(String.valueOf(machine.getId()), normalize(machine.getProgramPath()));
+            }
         }
 
-        logger.debug("Active directory paths for programPath {}: {}", programPath, activePaths);
-        return activePaths;
+        Map<Path, Set<String>> index = new HashMap<>();
+        for (ProgramDirectoryView program : productionQueueItemRepository.findMachineProgramDirectories()) {
+            Path programPath = programPathByQueueType.get(program.getQueueType());
+            if (programPath == null) {
+                continue;
+            }
+            String orderName = fileSystemService.sanitizeName(program.getOrderName(), "NoOrderName_" + program.getId());
+            String partName = fileSystemService.sanitizeName(program.getPartName(), "NoPartName_" + program.getId());
+            index.computeIfAbsent(programPath, path -> new HashSet<>()).add(orderName + "/" + partName);
+        }
+        return index;
+    }
+
+    private static Path normalize(String programPath) {
+        return Paths.get(programPath).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Filesystem (mount) holding the path - scans of the same share are throttled together
+     */
+    private String mountOf(Path path) {
+        try {
+            return mountIoGateway.call(path, "getFileStore", () -> Files.getFileStore(path).toString());
+        } catch (IOException e) {
+            return path.toString();
+        }
+    }
+
+    private boolean isModifiedAfter(Path path, FileTime time) throws IOException {
+        try {
+            return mountIoGateway.call(path, "getLastModifiedTime", () -> Files.getLastModifiedTime(path)).compareTo(time) > 0;
+        } catch (MountIoGateway.MountUnavailableException e) {
+            throw e;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Subdirectories of dir, listed in one call to the share
+     */
+    private List<Path> listDirectories(Path dir) throws IOException {
+        return mountIoGateway.call(dir, "listDirectories", () -> {
+            List<Path> directories = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path path : stream) {
+                    if (Files.isDirectory(path)) {
+                        directories.add(path);
+                    }
+                }
+            }
+            return directories;
+        }, transferTimeoutMs);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
     }
 
     /**
@@ -245,9 +385,36 @@ public class DirectoryCleanupService {
      * @throws IOException If a filesystem operation fails
      */
     private boolean attemptDirectoryDeletion(Path dirPath, String queueType) throws IOException {
+        // Exclusive per directory - never alongside a program file sync of the same directory
+        Deletion deletion;
+        try {
+            deletion = mountIoGateway.callExclusive(dirPath, "deleteDirectory",
+                    () -> deleteDirectoryOnMount(dirPath, queueType), transferTimeoutMs);
+        } catch (MountIoGateway.PathBusyException e) {
+            logger.debug("Directory {} is being synchronized, retrying on the next cleanup", dirPath);
+            return false;
+        }
+        if (deletion == Deletion.BLOCKED) {
+            BlockedDirectory blockedDir = BlockedDirectory.builder()
+                    .path(dirPath.toString())
+                    .queueType(queueType)
+                    .attempts(1)
+                    .createdAt(LocalDateTime.now())
+                    .lastAttempt(LocalDateTime.now())
+                    .build();
+            blockedDirectoryRepository.save(blockedDir);
+            logger.info("Registered blocked directory: {}. Attempt: 1", dirPath);
+        }
+        return deletion == Deletion.DELETED;
+    }
+
+    /**
+     * Filesystem part of {@link #attemptDirectoryDeletion}; runs on a mount gateway thread
+     */
+    private Deletion deleteDirectoryOnMount(Path dirPath, String queueType) throws IOException {
         if (!Files.exists(dirPath) || !Files.isDirectory(dirPath)) {
             logger.debug("Directory {} does not exist or is not a directory", dirPath);
-            return true;
+            return Deletion.DELETED;
         }
 
         boolean hasLockedFiles = false;
@@ -281,42 +448,24 @@ public class DirectoryCleanupService {
                 if (Files.deleteIfExists(dirPath)) {
                     auditDeletion(dirPath, queueType);
                     logger.info("Successfully deleted unused directory: {}", dirPath);
-                    return true;
+                    return Deletion.DELETED;
                 } else {
                     logger.warn("Failed to delete directory {}, possibly already removed or inaccessible", dirPath);
                     if (Files.exists(dirPath)) {
                         logger.error("Directory {} still exists after deletion attempt", dirPath);
-                        return false;
+                        return Deletion.NOT_DELETED;
                     }
-                    return true;
+                    return Deletion.DELETED;
                 }
             } else {
                 logger.warn("Directory {} is locked and cannot be deleted", dirPath);
-                BlockedDirectory blockedDir = BlockedDirectory.builder()
-                        .path(dirPath.toString())
-                        .queueType(queueType)
-                        .attempts(1)
-                        .createdAt(LocalDateTime.now())
-                        .lastAttempt(LocalDateTime.now())
-                        .build();
-                blockedDirectoryRepository.save(blockedDir);
-                logger.info("Registered blocked directory: {}. Attempt: 1", dirPath);
-                return false;
+                return Deletion.BLOCKED;
             }
         } else if (hasLockedFiles) {
-            BlockedDirectory blockedDir = BlockedDirectory.builder()
-                    .path(dirPath.toString())
-                    .queueType(queueType)
-                    .attempts(1)
-                    .createdAt(LocalDateTime.now())
-                    .lastAttempt(LocalDateTime.now())
-                    .build();
-            blockedDirectoryRepository.save(blockedDir);
-            logger.info("Registered blocked directory: {}. Attempt: 1", dirPath);
-            return false;
+            return Deletion.BLOCKED;
         }
 
-        return false;
+        return Deletion.NOT_DELETED;
     }
 
     /**
@@ -327,9 +476,11 @@ public class DirectoryCleanupService {
      * @throws IOException If a filesystem operation fails
      */
     private boolean isDirectoryEmpty(Path dirPath) throws IOException {
-        try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(dirPath)) {
-            return !dirStream.iterator().hasNext();
-        }
+        return mountIoGateway.call(dirPath, "isDirectoryEmpty", () -> {
+            try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(dirPath)) {
+                return !dirStream.iterator().hasNext();
+            }
+        });
     }
 
     /**
@@ -0,0 +1,125 @@
+package com.example.prodqapi.productionQueueItem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * What the last sync wrote into an order/part directory on the machine share:
+ * file name, size, modification time and SHA-256 of the content.
+ * <p>
+ * A file whose size and modification time still match its entry is known to hold the
+ * recorded content, so an unchanged sync costs one stat per file plus one read of this
+ * manifest instead of reading both copies of every file.
+ */
+class DirectoryManifest {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryManifest.class);
+
+    static final String FILE_NAME = ".prodq-manifest";
+
+    record Entry(long size, long modifiedMillis, String sha256) {
+    }
+
+    private final Path directory;
+    private final Map<String, Entry> entries;
+    private boolean changed;
+
+    private DirectoryManifest(Path directory, Map<String, Entry> entries) {
+        this.directory = directory;
+        this.entries = entries;
+    }
+
+    /**
+     * Load the manifest of a directory; a missing or unreadable manifest is treated as empty
+     */
+    static DirectoryManifest load(Path directory) {
+        Map<String, Entry> entries = new HashMap<>();
+        Path manifestPath = directory.resolve(FILE_NAME);
+        if (Files.exists(manifestPath)) {
+            try {
+                for (String line : Files.readAllLines(manifestPath, StandardCharsets.UTF_8)) {
+                    String[] parts = line.split("\t");
+                    if (parts.length == 4) {
+                        entries.put(parts[0], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                logger.warn("Ignoring unreadable manifest {}: {}", manifestPath, e.getMessage());
+                entries.clear();
+            }
+        }
+        return new DirectoryManifest(directory, entries);
+    }
+
+    static boolean isManifest(String fileName) {
+        return fileName.startsWith(FILE_NAME);
+    }
+
+    /**
+     * True if the file on disk is unchanged since it was recorded with the given content digest
+     */
+    boolean matches(String fileName, String sha256) {
+        Entry entry = entries.get(fileName);
+        if (entry == null || sha256 == null || !sha256.equals(entry.sha256())) {
+            return false;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(directory.resolve(fileName), BasicFileAttributes.class);
+            return attributes.size() == entry.size() && attributes.lastModifiedTime().toMillis() == entry.modifiedMillis();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Record the current size and modification time of a file holding the given content
+     */
+    void record(String fileName, String sha256) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(directory.resolve(fileName), BasicFileAttributes.class);
+        Entry entry = new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), sha256);
+        if (!entry.equals(entries.put(fileName, entry))) {
+            changed = true;
+        }
+    }
+
+    void remove(String fileName) {
+        if (entries.remove(fileName) != null) {
+            changed = true;
+        }
+    }
+
+    /**
+     * Write the manifest if anything was recorded or removed since it was loaded
+     */
+    void saveIfChanged() {
+        if (!changed) {
+            return;
+        }
+        StringBuilder content = new StringBuilder();
+        new TreeMap<>(entries).forEach((name, entry) -> content.append(name).append('\t')
+                .append(entry.size()).append('\t')
+                .append(entry.modifiedMillis()).append('\t')
+                .append(entry.sha256()).append('\n'));
+
+        Path manifestPath = directory.resolve(FILE_NAME);
+        Path tempPath = directory.resolve(FILE_NAME + ".tmp");
+        try {
+            Files.writeString(tempPath, content, StandardCharsets.UTF_8);
+            Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            changed = false;
+        } catch (IOException e) {
+            // Not fatal - the next sync falls back to comparing content
+            logger.warn("Failed to write manifest {}: {}", manifestPath, e.getMessage());
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -3,29 +3,47 @@ package com.example.prodqapi.productionQueueItem;
 import com.example.prodqapi.FileProductionItem.ProductionFileInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.*;
 import java.security.MessageDigest;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
-import javax.xml.bind.DatatypeConverter;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
 
 @Service
 public class FileSystemService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileSystemService.class);
 
+    private static final Map<String, Object> SANITIZE_OPTIONS = Map.of("maxLength", 24);
+
     private final ProductionQueueItemRepository productionQueueItemRepository;
     private final SanitizerFactory sanitizerFactory;
+    private final MountIoGateway mountIoGateway;
+    private final long transferTimeoutMs;
+
+    /**
+     * Attachment to copy, read from the entity on the calling thread
+     */
+    record FileToSync(String fileName, Path source, Long fileSize, String contentSha256) {
+    }
+
+    /**
+     * Program directory sync read from the database by {@link #prepareSync}, applied by {@link #applySync}
+     */
+    record DirectorySync(Path basePath, Set<String> allAppFiles, List<FileToSync> files) {
+    }
 
-    public FileSystemService(ProductionQueueItemRepository productionQueueItemRepository, SanitizerFactory sanitizerFactory) {
+    public FileSystemService(ProductionQueueItemRepository productionQueueItemRepository, SanitizerFactory sanitizerFactory,
+                             MountIoGateway mountIoGateway,
+                             @Value("${mount-io.transfer-timeout-ms:120000}") long transferTimeoutMs) {
         this.productionQueueItemRepository = productionQueueItemRepository;
         this.sanitizerFactory = sanitizerFactory;
+        this.mountIoGateway = mountIoGateway;
+        this.transferTimeoutMs = transferTimeoutMs;
     }
 
     public String sanitizeName(String name, String defaultName) {
@@ -35,9 +53,7 @@ public class FileSystemService {
 
         FileNameSanitizerStrategy strategy = sanitizerFactory.getStrategy("inframet");
 
-        Map<String, Object> options = Map.of("maxLength", 24);
-
-        return strategy.sanitize(name, options);
+        return strategy.sanitize(name, SANITIZE_OPTIONS);
     }
 
     public String sanitizeName(String name, String defaultName, boolean isMpf) {
@@ -45,46 +61,70 @@ public class FileSystemService {
     }
 
     // ... reszta pliku bez zmian
-    public void synchronizeFiles(String programPath, String orderName, String partName, List<ProductionFileInfo> files) throws IOException {
-        Path basePath = createDirectoryStructure(programPath, orderName, partName);
+    /**
+     * Read what a program directory on the share should contain. Needs the caller's transaction
+     * (attachment names, lazily computed digests); touches only the local upload files.
+     */
+    DirectorySync prepareSync(String programPath, String orderName, String partName, List<ProductionFileInfo> files) {
+        Set<String> allAppFiles = productionQueueItemRepository.findFileNamesByOrderNameAndPartName(orderName, partName);
+        List<FileToSync> filesToSync = new ArrayList<>();
+        if (files != null) {
+            for (ProductionFileInfo file : files) {
+                validateAttachment(file);
+                filesToSync.add(new FileToSync(file.getFileName(), Paths.get(file.getFilePath()), file.getFileSize(), contentSha256(file)));
+            }
+        }
 
-        long existingFilesCount = Files.exists(basePath)
-                ? Files.list(basePath).filter(Files::isRegularFile).count()
-                : 0;
-        logger.debug("Before synchronization: {} files in directory {}", existingFilesCount, basePath);
+        return new DirectorySync(Paths.get(programPath, orderName, partName), allAppFiles, filesToSync);
+    }
 
-        Set<String> allAppFiles = productionQueueItemRepository.findFileNamesByOrderNameAndPartName(orderName, partName);
-        Set<String> existingFiles = Files.exists(basePath)
-                ? Files.list(basePath)
-                .filter(Files::isRegularFile)
-                .map(path -> path.getFileName().toString())
-                .collect(Collectors.toSet())
-                : Collections.emptySet();
-
-        Path tempDir = Paths.get(basePath.toString(), ".temp_" + System.currentTimeMillis());
-        try {
-            if (!Files.isWritable(basePath)) {
-                logger.error("Directory {} is not writable", basePath);
-                throw new IOException("No write permissions for directory: " + basePath);
+    /**
+     * Bring the program directory on the share in line with a prepared sync. Call it outside a
+     * transaction: the file work runs through the mount gateway and may take up to
+     * mount-io.transfer-timeout-ms before a hung share fails it. A sync of the same directory
+     * still running on the share makes this one fail fast.
+     */
+    void applySync(DirectorySync sync) throws IOException {
+        mountIoGateway.callExclusive(sync.basePath(), "synchronizeFiles", () -> {
+            synchronizeFilesOnMount(sync.basePath(), sync.allAppFiles(), sync.files());
+            return null;
+        }, transferTimeoutMs);
+    }
+
+    private void synchronizeFilesOnMount(Path basePath, Set<String> allAppFiles, List<FileToSync> files) throws IOException {
+        createDirectoryStructure(basePath);
+
+        Set<String> existingFiles = listFiles(basePath);
+        logger.debug("Before synchronization: {} files in directory {}", existingFiles.size(), basePath);
+
+        // Files whose content on the share differs from the upload (or that are missing)
+        DirectoryManifest manifest = DirectoryManifest.load(basePath);
+        List<FileToSync> filesToWrite = new ArrayList<>();
+        for (FileToSync file : files) {
+            if (isUpToDate(basePath, manifest, file)) {
+                logger.debug("File content in {} is unchanged, skipping write", basePath.resolve(file.fileName()));
+            } else {
+                filesToWrite.add(file);
             }
-            Files.createDirectories(tempDir);
-            logger.trace("Created temporary directory: {}", tempDir);
-
-            if (files != null && !files.isEmpty()) {
-                for (ProductionFileInfo file : files) {
-                    String fileName = file.getFileName();
-                    validateAttachment(file);
-                    Path tempFilePath = tempDir.resolve(fileName);
-                    Path sourceFilePath = Paths.get(file.getFilePath());
-                    Path destinationFilePath = basePath.resolve(fileName);
-
-                    if (Files.exists(destinationFilePath) && isFileAccessible(destinationFilePath) && contentMatches(destinationFilePath, sourceFilePath)) {
-                        logger.debug("File content in {} is unchanged, skipping write", destinationFilePath);
-                        continue;
-                    }
+        }
 
+        // Staging directory only when something has to be written
+        Path tempDir = null;
+        try {
+            if (!filesToWrite.isEmpty()) {
+                if (!Files.isWritable(basePath)) {
+                    logger.error("Directory {} is not writable", basePath);
+                    throw new IOException("No write permissions for directory: " + basePath);
+                }
+                tempDir = Paths.get(basePath.toString(), ".temp_" + System.currentTimeMillis());
+                Files.createDirectories(tempDir);
+                logger.trace("Created temporary directory: {}", tempDir);
+
+                for (FileToSync file : filesToWrite) {
+                    Path tempFilePath = tempDir.resolve(file.fileName());
+                    Path sourceFilePath = file.source();
                     try {
-                        logger.debug("Attempting to write temporary file: {}, size: {} bytes", tempFilePath, file.getFileSize());
+                        logger.debug("Attempting to write temporary file: {}, size: {} bytes", tempFilePath, file.fileSize());
                         Files.copy(sourceFilePath, tempFilePath, StandardCopyOption.REPLACE_EXISTING);
                         logger.debug("Wrote temporary file: {}", tempFilePath);
                     } catch (IOException e) {
@@ -99,6 +139,7 @@ public class FileSystemService {
                     Path filePath = basePath.resolve(diskFile);
                     if (isFileAccessible(filePath)) {
                         Files.deleteIfExists(filePath);
+                        manifest.remove(diskFile);
                         logger.debug("Deleted unused file: {}", filePath);
                     } else {
                         logger.warn("Cannot delete file {}, it is locked", filePath);
@@ -106,43 +147,41 @@ public class FileSystemService {
                 }
             }
 
-            if (files != null && !files.isEmpty()) {
-                for (ProductionFileInfo file : files) {
-                    String fileName = file.getFileName();
-                    Path tempFilePath = tempDir.resolve(fileName);
-                    Path filePath = basePath.resolve(fileName);
+            for (FileToSync file : filesToWrite) {
+                String fileName = file.fileName();
+                Path tempFilePath = tempDir.resolve(fileName);
+                Path filePath = basePath.resolve(fileName);
 
-                    if (!Files.exists(tempFilePath)) {
-                        continue;
+                if (Files.exists(filePath)) {
+                    if (!isFileAccessible(filePath)) {
+                        logger.warn("File {} is locked, saving under unique name", filePath);
+                        filePath = getUniqueFilePath(basePath, fileName);
+                    } else {
+                        logger.debug("File {} exists, will be overwritten", filePath);
                     }
+                }
 
-                    if (Files.exists(filePath)) {
-                        if (!isFileAccessible(filePath)) {
-                            logger.warn("File {} is locked, saving under unique name", filePath);
-                            filePath = getUniqueFilePath(basePath, fileName);
-                        } else {
-                            logger.debug("File {} exists, will be overwritten", filePath);
-                        }
-                    }
+                try {
+                    logger.debug("Attempting to move file from {} to {}", tempFilePath, filePath);
+                    Files.move(tempFilePath, filePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    logger.debug("Wrote file: {}, size: {} bytes", filePath, file.fileSize());
+                } catch (IOException e) {
+                    logger.error("Error moving file from {} to {}: {}", tempFilePath, filePath, e.getMessage());
+                    throw new IOException("Failed to move file: " + tempFilePath + " -> " + filePath, e);
+                }
 
-                    try {
-                        logger.debug("Attempting to move file from {} to {}", tempFilePath, filePath);
-                        Files.move(tempFilePath, filePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
-                        logger.debug("Wrote file: {}, size: {} bytes", filePath, file.getFileSize());
-                    } catch (IOException e) {
-                        logger.error("Error moving file from {} to {}: {}", tempFilePath, filePath, e.getMessage());
-                        throw new IOException("Failed to move file: " + tempFilePath + " -> " + filePath, e);
-                    }
+                if (filePath.getFileName().toString().equals(fileName) && file.contentSha256() != null) {
+                    manifest.record(fileName, file.contentSha256());
                 }
             }
 
-            long finalFilesCount = Files.exists(basePath)
-                    ? Files.list(basePath).filter(Files::isRegularFile).count()
-                    : 0;
-            logger.debug("After synchronization: {} files in directory {}", finalFilesCount, basePath);
+            if (logger.isDebugEnabled()) {
+                logger.debug("After synchronization: {} files in directory {}", listFiles(basePath).size(), basePath);
+            }
 
         } finally {
-            if (Files.exists(tempDir)) {
+            manifest.saveIfChanged();
+            if (tempDir != null && Files.exists(tempDir)) {
                 try (DirectoryStream<Path> stream = Files.newDirectoryStream(tempDir)) {
                     for (Path file : stream) {
                         Files.deleteIfExists(file);
@@ -155,33 +194,98 @@ public class FileSystemService {
             }
         }
     }
-    private boolean contentMatches(Path filePath1, Path filePath2) {
+
+    /**
+     * Whether the copy on the share already holds the uploaded content. Decided from the
+     * manifest when possible; otherwise the share copy is hashed once and recorded.
+     */
+    private boolean isUpToDate(Path basePath, DirectoryManifest manifest, FileToSync file) {
+        String fileName = file.fileName();
+        String sha256 = file.contentSha256();
+        if (sha256 == null) {
+            return false;
+        }
+        if (manifest.matches(fileName, sha256)) {
+            return true;
+        }
+
+        Path destinationFilePath = basePath.resolve(fileName);
         try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] fileContent1 = Files.readAllBytes(filePath1);
-            byte[] fileContent2 = Files.readAllBytes(filePath2);
-            String fileHash1 = DatatypeConverter.printHexBinary(md.digest(fileContent1));
-            String fileHash2 = DatatypeConverter.printHexBinary(md.digest(fileContent2));
-            return fileHash1.equals(fileHash2);
-        } catch (Exception e) {
-            logger.warn("Error computing hash for files {} and {}: {}", filePath1, filePath2, e.getMessage());
+            if (!Files.exists(destinationFilePath)
+                    || (file.fileSize() != null && Files.size(destinationFilePath) != file.fileSize())
+                    || !isFileAccessible(destinationFilePath)
+                    || !sha256.equals(sha256Hex(destinationFilePath))) {
+                return false;
+            }
+            manifest.record(fileName, sha256);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Error comparing {} with uploaded content: {}", destinationFilePath, e.getMessage());
             return false;
         }
     }
 
-    private Path createDirectoryStructure(String programPath, String orderName, String partName) throws IOException {
-        Path basePath = Paths.get(programPath, orderName, partName);
+    /**
+     * Stored digest of the uploaded content; computed from the upload for files stored before digests existed
+     */
+    private String contentSha256(ProductionFileInfo file) {
+        if (file.getContentSha256() == null) {
+            try {
+                file.setContentSha256(sha256Hex(Paths.get(file.getFilePath())));
+            } catch (IOException e) {
+                logger.warn("Error computing hash for file {}: {}", file.getFilePath(), e.getMessage());
+                return null;
+            }
+        }
+        return file.getContentSha256();
+    }
+
+    public static String sha256Hex(Path filePath) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(filePath)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private Set<String> listFiles(Path directory) throws IOException {
+        Set<String> fileNames = new HashSet<>();
+        if (!Files.exists(directory)) {
+            return fileNames;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                if (Files.isRegularFile(path) && !DirectoryManifest.isManifest(fileName)) {
+                    fileNames.add(fileName);
+                }
+            }
+        }
+        return fileNames;
+    }
+
+    private void createDirectoryStructure(Path basePath) throws IOException {
         try {
             Files.createDirectories(basePath);
             logger.debug("Created or used existing directory structure: {}", basePath);
-            return basePath;
         } catch (FileAlreadyExistsException e) {
             if (!Files.isDirectory(basePath)) {
                 logger.error("Path {} exists as a file, cannot create directory", basePath);
                 throw new IOException("Path exists as a file: " + basePath, e);
             }
             logger.debug("Directory {} already exists", basePath);
-            return basePath;
         } catch (IOException e) {
             logger.error("Error creating directory {}: {}", basePath, e.getMessage());
             throw new IOException("Failed to create directory: " + basePath, e);
@@ -209,7 +313,33 @@ public class FileSystemService {
         }
     }
 
+    /**
+     * Whether the file can be opened for writing (not locked by the machine); false while the
+     * mount doesn't answer and no earlier result is known
+     */
     public boolean isFileAccessible(Path filePath) {
+        try {
+            return mountIoGateway.callCached(filePath, "isFileAccessible", () -> probeFileAccessible(filePath));
+        } catch (IOException e) {
+            logger.warn("Cannot check file {}: {}", filePath, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Whether files can be created and deleted in the directory; false while the mount doesn't
+     * answer and no earlier result is known
+     */
+    public boolean isDirectoryAccessible(Path dirPath) {
+        try {
+            return mountIoGateway.callCached(dirPath, "isDirectoryAccessible", () -> probeDirectoryAccessible(dirPath));
+        } catch (IOException e) {
+            logger.warn("Cannot check directory {}: {}", dirPath, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean probeFileAccessible(Path filePath) {
         if (!Files.exists(filePath)) {
             logger.debug("File {} does not exist", filePath);
             return true;
@@ -228,7 +358,7 @@ public class FileSystemService {
         }
     }
 
-    public boolean isDirectoryAccessible(Path dirPath) {
+    private boolean probeDirectoryAccessible(Path dirPath) {
         if (!Files.exists(dirPath)) {
             logger.debug("Directory {} does not exist", dirPath);
             return true;
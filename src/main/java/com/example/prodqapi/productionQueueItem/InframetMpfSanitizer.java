@@ -1,5 +1,8 @@
 package com.example.prodqapi.productionQueueItem;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import java.text.Normalizer;
 import java.util.List;
 import java.util.Map;
@@ -11,15 +14,50 @@ import java.util.regex.Pattern;
  * Strategia sanitization specyficzna dla klienta "Inframet" i plików .MPF.
  * Zawiera logikę skracania nazwy do ~24 znaków i obsługę specjalnych końcówek.
  * Skracanie zachowuje początek nazwy pliku.
+ * <p>
+ * Bezpieczna wątkowo - jedna instancja na aplikację ({@link #shared()}). Transliteracja
+ * znaków w jednym przebiegu przez tablicę, wyniki zapamiętywane w ograniczonym cache (LRU).
  */
 public class InframetMpfSanitizer implements FileNameSanitizerStrategy {
 
+    static final int DEFAULT_MEMO_SIZE = 10_000;
+
+    // Znaki 0x0000-0x017F (ASCII, Latin-1, Latin Extended-A - w tym polskie litery) -> znak wynikowy
+    private static final int TABLE_SIZE = 0x0180;
+    private static final char[] TRANSLITERATION = buildTransliterationTable();
+
     private static final List<Pattern> SUFFIX_PATTERNS = List.of(
             Pattern.compile("(?<base>.*)(?<suffix>_[Mm][Aa][Cc]\\d+_[A-Za-z]_[Vv]\\d+)$"),
             Pattern.compile("(?<base>.*)(?<suffix>_[Mm][Aa][Cc]\\d+_[A-Za-z]$)"),
             Pattern.compile("(?<base>.*)(?<suffix>_[Mm][Aa][Cc]\\d+)$")
     );
 
+    private record MemoKey(String name, int maxLength) {
+    }
+
+    // Wspólna instancja - SanitizerFactory i encje korzystają z jednego cache
+    private static final InframetMpfSanitizer SHARED = new InframetMpfSanitizer();
+
+    private final Cache<MemoKey, String> memo;
+
+    /**
+     * Instancja współdzielona przez całą aplikację
+     */
+    public static InframetMpfSanitizer shared() {
+        return SHARED;
+    }
+
+    public InframetMpfSanitizer() {
+        this(DEFAULT_MEMO_SIZE);
+    }
+
+    /**
+     * @param memoSize liczba zapamiętanych wyników, 0 wyłącza cache
+     */
+    public InframetMpfSanitizer(int memoSize) {
+        this.memo = memoSize > 0 ? CacheBuilder.newBuilder().maximumSize(memoSize).build() : null;
+    }
+
     @Override
     public String sanitize(String originalFileName, Map<String, Object> options) {
         if (originalFileName == null || originalFileName.trim().isEmpty()) {
@@ -28,6 +66,19 @@ public class InframetMpfSanitizer implements FileNameSanitizerStrategy {
 
         int maxLength = (int) options.getOrDefault("maxLength", 24);
 
+        if (memo == null) {
+            return doSanitize(originalFileName, maxLength);
+        }
+        MemoKey key = new MemoKey(originalFileName, maxLength);
+        String cached = memo.getIfPresent(key);
+        if (cached == null) {
+            cached = doSanitize(originalFileName, maxLength);
+            memo.put(key, cached);
+        }
+        return cached;
+    }
+
+    private String doSanitize(String originalFileName, int maxLength) {
         String sanitized = normalizeAndClean(originalFileName.trim());
 
         String ext = getFileExtension(sanitized);
@@ -70,15 +121,60 @@ public class InframetMpfSanitizer implements FileNameSanitizerStrategy {
         return baseName;
     }
 
+    /**
+     * Usuwa znaki diakrytyczne (NFD + usunięcie znaków łączących U+0300-U+036F), zamienia ł/Ł na l,
+     * a każdy znak spoza [a-zA-Z0-9_-. \t\n\x0B\f\r] na "_". Znaki z tablicy w jednym przebiegu,
+     * pozostałe (rzadkie) osobno przez Normalizer - wynik identyczny jak przy normalizacji całego tekstu.
+     */
     private String normalizeAndClean(String text) {
-        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
-                .replaceAll("[\\p{InCombiningDiacriticalMarks}]", "")
-                .replaceAll("[ąĄ]", "a").replaceAll("[ćĆ]", "c")
-                .replaceAll("[ęĘ]", "e").replaceAll("[łŁ]", "l")
-                .replaceAll("[ńŃ]", "n").replaceAll("[óÓ]", "o")
-                .replaceAll("[śŚ]", "s").replaceAll("[źŹ]", "z")
-                .replaceAll("[żŻ]", "z");
-        return normalized.replaceAll("[^a-zA-Z0-9_\\-\\.\\s]", "_");
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); ) {
+            char c = text.charAt(i);
+            if (c < TABLE_SIZE) {
+                result.append(TRANSLITERATION[c]);
+                i++;
+            } else {
+                int codePoint = text.codePointAt(i);
+                transliterateSlow(codePoint, result);
+                i += Character.charCount(codePoint);
+            }
+        }
+        return result.toString();
+    }
+
+    private static void transliterateSlow(int codePoint, StringBuilder result) {
+        String decomposed = Normalizer.normalize(new String(Character.toChars(codePoint)), Normalizer.Form.NFD);
+        decomposed.codePoints().forEach(cp -> {
+            if (cp >= 0x0300 && cp <= 0x036F) {
+                return; // combining diacritical mark
+            }
+            if (cp == 'ł' || cp == 'Ł') {
+                result.append('l');
+            } else {
+                result.append(isAllowed(cp) ? (char) cp : '_');
+            }
+        });
+    }
+
+    private static boolean isAllowed(int cp) {
+        return (cp >= 'a' && cp <= 'z') || (cp >= 'A' && cp <= 'Z') || (cp >= '0' && cp <= '9')
+                || cp == '_' || cp == '-' || cp == '.'
+                || cp == ' ' || cp == '\t' || cp == '\n' || cp == 0x0B || cp == '\f' || cp == '\r';
+    }
+
+    private static char[] buildTransliterationTable() {
+        char[] table = new char[TABLE_SIZE];
+        StringBuilder out = new StringBuilder(2);
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            out.setLength(0);
+            transliterateSlow(c, out);
+            // Every character of this range decomposes to exactly one base character
+            if (out.length() != 1) {
+                throw new IllegalStateException("Unexpected transliteration of U+" + Integer.toHexString(c));
+            }
+            table[c] = out.charAt(0);
+        }
+        return table;
     }
 
     private String getFileExtension(String fileName) {
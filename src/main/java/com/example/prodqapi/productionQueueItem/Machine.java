@@ -24,7 +24,7 @@ public class Machine {
     @NotBlank(message = "Machine name cannot be blank")
     private String machineName;
 
-    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @JoinColumn(name = "image_id")
     private FileImage image;
 
@@ -1,15 +1,18 @@
 package com.example.prodqapi.productionQueueItem;
 
+import com.example.prodqapi.FileImage.ImageStore;
 import com.example.prodqapi.common.CommonService;
+import com.example.prodqapi.common.FileDownloadResponder;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.List;
@@ -22,10 +25,15 @@ public class MachineController {
 
     private final MachineService machineService;
     private final CommonService commonService;
+    private final ImageStore imageStore;
+    private final FileDownloadResponder fileDownloadResponder;
 
-    public MachineController(MachineService machineService, CommonService commonService) {
+    public MachineController(MachineService machineService, CommonService commonService,
+                             ImageStore imageStore, FileDownloadResponder fileDownloadResponder) {
         this.machineService = machineService;
         this.commonService = commonService;
+        this.imageStore = imageStore;
+        this.fileDownloadResponder = fileDownloadResponder;
     }
 
     @PostMapping(value = "/add", consumes = {"multipart/form-data"})
@@ -92,13 +100,11 @@ public class MachineController {
     }
 
     @GetMapping("/{id}/image")
-    public ResponseEntity<byte[]> getMachineImage(@PathVariable Integer id) {
+    public ResponseEntity<Resource> getMachineImage(@PathVariable Integer id) {
         return machineService.findById(id)
-                .filter(machine -> machine.getImage() != null)
-                .map(machine -> ResponseEntity.ok()
-                        .header("Content-Disposition", "inline; filename=" + machine.getImage().getName())
-                        .contentType(MediaType.parseMediaType(machine.getImage().getType()))
-                        .body(machine.getImage().getImageData()))
+                .map(Machine::getImage)
+                .flatMap(image -> imageStore.find(image.getContentHash())
+                        .map(path -> fileDownloadResponder.inline(path, image.getType(), image.getContentHash())))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -126,7 +132,7 @@ public class MachineController {
     }
 
     @GetMapping("/{id}/download-programs")
-    public ResponseEntity<byte[]> downloadMachinePrograms(@PathVariable Integer id) throws IOException {
+    public ResponseEntity<StreamingResponseBody> downloadMachinePrograms(@PathVariable Integer id) throws IOException {
         return machineService.downloadMachinePrograms(id);
     }
 
@@ -6,20 +6,26 @@ import com.example.prodqapi.materialReservation.MaterialReservation;
 import com.example.prodqapi.materialReservation.MaterialProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,17 +33,36 @@ public class MachineQueueFileGeneratorService {
 
     private static final Logger logger = LoggerFactory.getLogger(MachineQueueFileGeneratorService.class);
 
+    private static final String GENERATED_AT_LINE = "(?m)^# Wygenerowano: .*$";
+
     private final MachineRepository machineRepository;
     private final ProductionQueueItemRepository productionQueueItemRepository;
     private final FileSystemService fileSystemService;
+    private final MountIoGateway mountIoGateway;
+    private final long transferTimeoutMs;
+
+    // What was last written to each queue file - lets an unchanged render skip reading the file back
+    private final Map<Path, WrittenFile> writtenFiles = new ConcurrentHashMap<>();
+    // One render/write at a time per queue (request threads and the background regenerator)
+    private final Map<String, Object> queueLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Content digest (without the generated-at line) and modification time after our last write
+     */
+    private record WrittenFile(String contentHash, FileTime modifiedTime) {
+    }
 
     public MachineQueueFileGeneratorService(
             MachineRepository machineRepository,
             ProductionQueueItemRepository productionQueueItemRepository,
-            FileSystemService fileSystemService) {
+            FileSystemService fileSystemService,
+            MountIoGateway mountIoGateway,
+            @Value("${mount-io.transfer-timeout-ms:120000}") long transferTimeoutMs) {
         this.machineRepository = machineRepository;
         this.productionQueueItemRepository = productionQueueItemRepository;
         this.fileSystemService = fileSystemService;
+        this.mountIoGateway = mountIoGateway;
+        this.transferTimeoutMs = transferTimeoutMs;
     }
 
     public String generateQueueFileForMachine(String queueType) throws IOException {
@@ -53,15 +78,20 @@ public class MachineQueueFileGeneratorService {
             }
 
             Machine machine = machineOpt.get();
-            Path filePath = resolvePath(machine);
-
-            Files.createDirectories(filePath.getParent());
-
-            List<ProductionQueueItem> programs = getSortedPrograms(queueType);
-            String content = buildFileContent(programs);
-
-            Files.writeString(filePath, content);
-            return content;
+            Path filePath = resolveQueueFilePath(machine);
+
+            synchronized (queueLocks.computeIfAbsent(queueType, key -> new Object())) {
+                List<ProductionQueueItem> programs = getSortedPrograms(queueType);
+                String content = buildFileContent(programs);
+                String contentHash = contentHash(content);
+
+                // Only the file work goes to the share; a write still running after a timeout blocks the next one
+                mountIoGateway.callExclusive(filePath, "writeQueueFile", () -> {
+                    writeIfChanged(filePath, content, contentHash);
+                    return null;
+                }, transferTimeoutMs);
+                return content;
+            }
 
         } catch (NumberFormatException e) {
             logger.warn("Invalid queueType: {}", queueType, e);
@@ -72,7 +102,22 @@ public class MachineQueueFileGeneratorService {
         }
     }
 
-    private Path resolvePath(Machine machine) {
+    private void writeIfChanged(Path filePath, String content, String contentHash) throws IOException {
+        Files.createDirectories(filePath.getParent());
+
+        // Skip the write when only the timestamp would change - keeps the share (and file watchers) quiet
+        if (isWrittenUnchanged(filePath, contentHash) || isContentUnchanged(filePath, content)) {
+            logger.debug("Queue file {} is up to date", filePath);
+        } else {
+            Files.writeString(filePath, content);
+        }
+        recordWrite(filePath, contentHash);
+    }
+
+    /**
+     * Location of the machine's queue file on the CNC share
+     */
+    Path resolveQueueFilePath(Machine machine) {
         String fileName = fileSystemService.sanitizeName(machine.getMachineName(), "machine_queue") + ".txt";
         String cleanedPath = machine.getQueueFilePath().replaceFirst("^/+", "").replaceFirst("^cnc/?", "");
         String appEnv = System.getenv("APP_ENV") != null ? System.getenv("APP_ENV") : "local";
@@ -84,6 +129,72 @@ public class MachineQueueFileGeneratorService {
         return basePath.resolve(fileName);
     }
 
+    /**
+     * True if the file exists and was changed by someone else (an operator) since our last write
+     */
+    boolean isModifiedSinceLastWrite(Path filePath) throws IOException {
+        FileTime modifiedTime = mountIoGateway.call(filePath, "getLastModifiedTime", () -> modifiedTime(filePath));
+        if (modifiedTime == null) {
+            return false;
+        }
+        WrittenFile written = writtenFiles.get(writtenFileKey(filePath));
+        return written == null || !written.modifiedTime().equals(modifiedTime);
+    }
+
+    /**
+     * Same as {@link #isModifiedSinceLastWrite(Path)}, but waits for a write of the queue in progress,
+     * so our own half-recorded write is not mistaken for an operator edit
+     */
+    boolean isModifiedSinceLastWrite(String queueType, Path filePath) throws IOException {
+        synchronized (queueLocks.computeIfAbsent(queueType, key -> new Object())) {
+            return isModifiedSinceLastWrite(filePath);
+        }
+    }
+
+    private boolean isWrittenUnchanged(Path filePath, String contentHash) {
+        WrittenFile written = writtenFiles.get(writtenFileKey(filePath));
+        return written != null
+                && written.contentHash().equals(contentHash)
+                && written.modifiedTime().equals(modifiedTime(filePath));
+    }
+
+    private void recordWrite(Path filePath, String contentHash) {
+        FileTime modifiedTime = modifiedTime(filePath);
+        if (modifiedTime != null) {
+            writtenFiles.put(writtenFileKey(filePath), new WrittenFile(contentHash, modifiedTime));
+        }
+    }
+
+    // Callers pass both ./cnc/... and absolute paths (QueueFileWatcher) for the same file
+    private static Path writtenFileKey(Path filePath) {
+        return filePath.toAbsolutePath().normalize();
+    }
+
+    private static FileTime modifiedTime(Path filePath) {
+        try {
+            return Files.exists(filePath) ? Files.getLastModifiedTime(filePath) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String contentHash(String content) {
+        byte[] normalized = content.replaceFirst(GENERATED_AT_LINE, "").getBytes(StandardCharsets.UTF_8);
+        return HexFormat.of().formatHex(FileSystemService.sha256().digest(normalized));
+    }
+
+    private boolean isContentUnchanged(Path filePath, String content) {
+        if (!Files.exists(filePath)) {
+            return false;
+        }
+        try {
+            String existing = Files.readString(filePath);
+            return existing.replaceFirst(GENERATED_AT_LINE, "").equals(content.replaceFirst(GENERATED_AT_LINE, ""));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     private List<ProductionQueueItem> getSortedPrograms(String queueType) {
         return productionQueueItemRepository.findByQueueTypeWithFilesAndMaterial(queueType)
                 .stream()
@@ -91,7 +202,7 @@ public class MachineQueueFileGeneratorService {
                 .collect(Collectors.toList());
     }
 
-    private String buildFileContent(List<ProductionQueueItem> programs) {
+    String buildFileContent(List<ProductionQueueItem> programs) {
         StringBuilder content = new StringBuilder();
 
         content.append("# Edytuj tylko statusy w nawiasach: [OK] lub [NOK].\n");
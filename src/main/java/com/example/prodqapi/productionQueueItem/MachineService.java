@@ -5,8 +5,6 @@ import com.example.prodqapi.FileImage.FileImageService;
 import com.example.prodqapi.FileProductionItem.ProductionFileInfo;
 import com.example.prodqapi.notification.NotificationDescription;
 import com.example.prodqapi.notification.NotificationService;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,13 +15,14 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -31,7 +30,6 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -40,8 +38,7 @@ import java.util.zip.ZipOutputStream;
 public class MachineService {
 
     private static final Logger logger = LoggerFactory.getLogger(MachineService.class);
-    private static final String CNC_ROOT_DIR_CACHE_KEY = "cncDirectoryLocations";
-    private static final int DIRECTORY_SCAN_DEPTH = 3;
+    private static final int ZIP_BUFFER_SIZE = 64 * 1024;
 
     private final MachineRepository machineRepository;
     private final FileImageService fileImageService;
@@ -49,9 +46,8 @@ public class MachineService {
     private final MachineQueueFileGeneratorService machineQueueFileGeneratorService;
     private final FileSystemService fileSystemService;
     private final NotificationService notificationService;
-    private final Cache<String, List<String>> locationsCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(10, TimeUnit.MINUTES)
-            .build();
+    private final CncDirectoryIndex cncDirectoryIndex;
+    private final MountIoGateway mountIoGateway;
 
     public MachineService(
             MachineRepository machineRepository,
@@ -59,13 +55,17 @@ public class MachineService {
             ProductionQueueItemService productionQueueItemService,
             MachineQueueFileGeneratorService machineQueueFileGeneratorService,
             FileSystemService fileSystemService,
-            NotificationService notificationService) {
+            NotificationService notificationService,
+            CncDirectoryIndex cncDirectoryIndex,
+            MountIoGateway mountIoGateway) {
         this.machineRepository = Objects.requireNonNull(machineRepository, "MachineRepository cannot be null");
         this.fileImageService = Objects.requireNonNull(fileImageService, "FileImageService cannot be null");
         this.productionQueueItemService = Objects.requireNonNull(productionQueueItemService, "ProductionQueueItemService cannot be null");
         this.machineQueueFileGeneratorService = Objects.requireNonNull(machineQueueFileGeneratorService, "MachineQueueFileGeneratorService cannot be null");
         this.fileSystemService = Objects.requireNonNull(fileSystemService, "FileSystemService cannot be null");
         this.notificationService = Objects.requireNonNull(notificationService, "NotificationService cannot be null");
+        this.cncDirectoryIndex = Objects.requireNonNull(cncDirectoryIndex, "CncDirectoryIndex cannot be null");
+        this.mountIoGateway = Objects.requireNonNull(mountIoGateway, "MountIoGateway cannot be null");
         logger.info("MachineService initialized successfully");
     }
 
@@ -126,29 +126,39 @@ public class MachineService {
         for (String queuePathStr : uniqueQueuePaths) {
             Path queuePath = resolveMountedPath(queuePathStr);
 
-            if (!Files.exists(queuePath) || !Files.isDirectory(queuePath)) {
-                logger.warn("Queue file path {} does not exist or is not a directory. Skipping.", queuePath);
+            // Startup cleanup must not hang on a dead share - every probe, listing and delete has a timeout
+            List<Path> queueFiles;
+            try {
+                if (!mountIoGateway.call(queuePath, "isDirectory", () -> Files.isDirectory(queuePath))) {
+                    logger.warn("Queue file path {} does not exist or is not a directory. Skipping.", queuePath);
+                    continue;
+                }
+                queueFiles = mountIoGateway.call(queuePath, "listQueueFiles", () -> {
+                    List<Path> files = new ArrayList<>();
+                    try (DirectoryStream<Path> stream = Files.newDirectoryStream(queuePath, "*.txt")) {
+                        stream.forEach(files::add);
+                    }
+                    return files;
+                });
+            } catch (IOException e) {
+                logger.error("Error scanning path {}: {}", queuePath, e.getMessage(), e);
                 continue;
             }
 
-            try (DirectoryStream<Path> stream = Files.newDirectoryStream(queuePath, "*.txt")) {
-                for (Path file : stream) {
-                    String fileName = file.getFileName().toString();
-
-                    // If this .txt file is NOT in the expected list, delete it
-                    if (!expectedFileNames.contains(fileName)) {
-                        try {
-                            if (Files.deleteIfExists(file)) {
-                                logger.info("Deleted orphaned queue file: {}", file);
-                                deletedCount++;
-                            }
-                        } catch (IOException e) {
-                            logger.error("Failed to delete orphaned queue file {}: {}", file, e.getMessage());
+            for (Path file : queueFiles) {
+                String fileName = file.getFileName().toString();
+
+                // If this .txt file is NOT in the expected list, delete it
+                if (!expectedFileNames.contains(fileName)) {
+                    try {
+                        if (Boolean.TRUE.equals(mountIoGateway.callExclusive(file, "deleteQueueFile", () -> Files.deleteIfExists(file)))) {
+                            logger.info("Deleted orphaned queue file: {}", file);
+                            deletedCount++;
                         }
+                    } catch (IOException e) {
+                        logger.error("Failed to delete orphaned queue file {}: {}", file, e.getMessage());
                     }
                 }
-            } catch (IOException e) {
-                logger.error("Error scanning path {}: {}", queuePath, e.getMessage(), e);
             }
         }
 
@@ -288,99 +298,11 @@ public class MachineService {
     }
 
     public List<String> getAvailableLocations() {
-        return getDirectoryLocations();
+        return cncDirectoryIndex.getLocations();
     }
 
     public String getDirectoryStructureHash() {
-        List<String> locations = getDirectoryLocations();
-        return computeDirectoryStructureHash(locations);
-    }
-
-    private List<String> getDirectoryLocations() {
-        List<String> cachedLocations = locationsCache.getIfPresent(CNC_ROOT_DIR_CACHE_KEY);
-        if (cachedLocations != null) {
-            logger.info("Returning {} cached locations.", cachedLocations.size());
-            return cachedLocations;
-        }
-
-        Path mountDir = getMountDir();
-        logger.debug("Cache miss. Starting directory scan for: {}", mountDir);
-        long startTime = System.nanoTime();
-
-        if (!Files.exists(mountDir) || !Files.isDirectory(mountDir) || !Files.isReadable(mountDir)) {
-            logger.warn("Root directory {} does not exist or is not accessible.", mountDir);
-            return new ArrayList<>();
-        }
-
-        final List<String> locations = new ArrayList<>();
-        try {
-            Files.walkFileTree(mountDir, new AccessGuardedFileVisitor(locations, mountDir));
-
-            List<String> sortedLocations = locations.stream().sorted().collect(Collectors.toList());
-            locationsCache.put(CNC_ROOT_DIR_CACHE_KEY, sortedLocations);
-
-            long duration = (System.nanoTime() - startTime) / 1_000_000; // ms
-            logger.info("Scanned and cached {} locations. Execution time: {} ms", sortedLocations.size(), duration);
-            return sortedLocations;
-
-        } catch (IOException e) {
-            logger.error("A critical error occurred while walking the file tree: {}", mountDir, e);
-            throw new RuntimeException("Failed to scan directory structure due to a critical error.", e);
-        }
-    }
-
-    private class AccessGuardedFileVisitor extends SimpleFileVisitor<Path> {
-        private final List<String> locations;
-        private final Path mountDir;
-
-        public AccessGuardedFileVisitor(List<String> locations, Path mountDir) {
-            this.locations = locations;
-            this.mountDir = mountDir;
-        }
-
-        @Override
-        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-            if (mountDir.relativize(dir).getNameCount() >= DIRECTORY_SCAN_DEPTH) {
-                return FileVisitResult.SKIP_SUBTREE;
-            }
-
-            String relativePath = relativizePath(dir.toString(), mountDir);
-            if (relativePath != null) {
-                locations.add(relativePath);
-            }
-            return FileVisitResult.CONTINUE;
-        }
-
-        @Override
-        public FileVisitResult visitFileFailed(Path file, IOException exc) {
-            if (exc instanceof AccessDeniedException) {
-                logger.warn("Access denied to directory, skipping: {}. Reason: {}", file, exc.getMessage());
-                return FileVisitResult.SKIP_SUBTREE;
-            }
-            logger.error("Error visiting file/directory: {}", file, exc);
-            return FileVisitResult.CONTINUE;
-        }
-    }
-
-    private String computeDirectoryStructureHash(List<String> locations) {
-        if (locations == null || locations.isEmpty()) {
-            return "empty";
-        }
-        try {
-            MessageDigest digest = MessageDigest.getInstance("MD5");
-            String combined = String.join(";", locations);
-            byte[] hashBytes = digest.digest(combined.getBytes());
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hashBytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            logger.error("MD5 algorithm not found!", e);
-            throw new RuntimeException("Failed to compute directory structure hash", e);
-        }
+        return cncDirectoryIndex.getStructureHash();
     }
 
     private Path getMountDir() {
@@ -401,19 +323,6 @@ public class MachineService {
         }
     }
 
-    private String relativizePath(String path, Path mountDir) {
-        try {
-            if (path == null || mountDir == null) return null;
-            Path normalizedPath = Paths.get(path).normalize();
-            Path relativePath = mountDir.relativize(normalizedPath);
-            String result = relativePath.toString().replace("\\", "/");
-            return result.isEmpty() ? "cnc" : "cnc/" + result;
-        } catch (Exception e) {
-            logger.error("Failed to relativize path: path={}, mountDir={}", path, mountDir, e);
-            return null;
-        }
-    }
-
     private void validatePath(String path, String fieldName) {
         if (path == null || path.trim().isEmpty()) {
             throw new IllegalArgumentException(fieldName + " cannot be blank");
@@ -425,18 +334,39 @@ public class MachineService {
         Path mountDir = getMountDir();
         Path resolvedPath = cleanedPath.isEmpty() ? mountDir : mountDir.resolve(cleanedPath).normalize();
 
-        if (!Files.exists(resolvedPath)) {
-            throw new IllegalArgumentException(fieldName + " does not exist: " + resolvedPath);
+        String problem;
+        try {
+            problem = mountIoGateway.callCached(resolvedPath, "validatePath", () -> checkDirectory(resolvedPath));
+        } catch (IOException e) {
+            logger.warn("Cannot validate {}: {}", resolvedPath, e.getMessage());
+            throw new IllegalArgumentException(fieldName + " cannot be verified, the CNC mount is not responding: " + resolvedPath);
         }
-        if (!Files.isDirectory(resolvedPath)) {
-            throw new IllegalArgumentException(fieldName + " is not a directory: " + resolvedPath);
+        if (!problem.isEmpty()) {
+            throw new IllegalArgumentException(fieldName + " " + problem + ": " + resolvedPath);
         }
-        if (!Files.isReadable(resolvedPath) || !Files.isWritable(resolvedPath)) {
-            throw new IllegalArgumentException(fieldName + " is not accessible (read/write permissions required): " + resolvedPath);
+    }
+
+    /**
+     * Empty if the path is a readable and writable directory, otherwise what is wrong with it
+     */
+    private static String checkDirectory(Path path) {
+        if (!Files.exists(path)) {
+            return "does not exist";
+        }
+        if (!Files.isDirectory(path)) {
+            return "is not a directory";
         }
+        if (!Files.isReadable(path) || !Files.isWritable(path)) {
+            return "is not accessible (read/write permissions required)";
+        }
+        return "";
     }
 
-    public ResponseEntity<byte[]> downloadMachinePrograms(Integer machineId) throws IOException {
+    /**
+     * ZIP of the machine queue file and all program files. Entries are resolved up front;
+     * the archive itself is streamed from disk to the response, never held in memory.
+     */
+    public ResponseEntity<StreamingResponseBody> downloadMachinePrograms(Integer machineId) throws IOException {
         Machine machine = findById(machineId).orElse(null);
         if (machine == null) {
             return ResponseEntity.notFound().build();
@@ -444,47 +374,79 @@ public class MachineService {
 
         List<ProductionQueueItem> programs = productionQueueItemService.findByQueueType(String.valueOf(machineId), Pageable.unpaged()).getContent();
 
-        byte[] zipBytes = createZipArchive(programs, machine);
+        String queueContent = machineQueueFileGeneratorService.generateQueueFileForMachine(String.valueOf(machine.getId()));
+        String queueFileName = fileSystemService.sanitizeName(machine.getMachineName(), "queue") + ".txt";
+        List<ZipSource> sources = collectZipSources(programs);
         String zipFileName = fileSystemService.sanitizeName(machine.getMachineName(), "archive") + ".zip";
 
+        StreamingResponseBody body = outputStream -> writeZipArchive(outputStream, queueFileName, queueContent, sources);
+
         return ResponseEntity.ok()
                 .header("Content-Disposition", "attachment; filename=\"" + zipFileName + "\"")
                 .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(zipBytes);
+                .body(body);
     }
 
-    private byte[] createZipArchive(List<ProductionQueueItem> programs, Machine machine) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+    /**
+     * A program file and its path inside the archive (order/part/file)
+     */
+    private record ZipSource(String entryPath, Path filePath) {
+    }
 
-            String queueContent = machineQueueFileGeneratorService.generateQueueFileForMachine(String.valueOf(machine.getId()));
+    private List<ZipSource> collectZipSources(List<ProductionQueueItem> programs) {
+        List<ZipSource> sources = new ArrayList<>();
+        for (ProductionQueueItem program : programs) {
+            String orderName = fileSystemService.sanitizeName(program.getOrderName(), "NoOrderName_" + program.getId());
+            String partName = fileSystemService.sanitizeName(program.getPartName(), "NoPartName_" + program.getId());
+
+            for (ProductionFileInfo file : program.getFiles()) {
+                String entryPath = String.format("%s/%s/%s", orderName, partName, file.getFileName());
+                sources.add(new ZipSource(entryPath, Paths.get(file.getFilePath())));
+            }
+        }
+        return sources;
+    }
 
+    private void writeZipArchive(OutputStream outputStream, String queueFileName, String queueContent,
+                                 List<ZipSource> sources) throws IOException {
+        byte[] buffer = new byte[ZIP_BUFFER_SIZE];
+        Set<String> writtenEntries = new HashSet<>();
+        // Not try-with-resources: closing writes the central directory, which would turn an aborted
+        // download into a well-formed but truncated archive. Only a complete run finishes the ZIP.
+        ZipOutputStream zos = new ZipOutputStream(outputStream);
+        try {
             if (queueContent != null && !queueContent.isEmpty()) {
-                ZipEntry queueFileEntry = new ZipEntry(fileSystemService.sanitizeName(machine.getMachineName(), "queue") + ".zip");
-                zos.putNextEntry(queueFileEntry);
-                zos.write(queueContent.getBytes());
+                zos.putNextEntry(new ZipEntry(queueFileName));
+                zos.write(queueContent.getBytes(StandardCharsets.UTF_8));
                 zos.closeEntry();
             }
 
-            for (ProductionQueueItem program : programs) {
-                String orderName = fileSystemService.sanitizeName(program.getOrderName(), "NoOrderName_" + program.getId());
-                String partName = fileSystemService.sanitizeName(program.getPartName(), "NoPartName_" + program.getId());
-
-                for (ProductionFileInfo file : program.getFiles()) {
-                    String fileName = file.getFileName();
-                    String entryPath = String.format("%s/%s/%s", orderName, partName, fileName);
-
-                    zos.putNextEntry(new ZipEntry(entryPath));
+            for (ZipSource source : sources) {
+                // Request timed out or the client went away
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("ZIP download cancelled after " + writtenEntries.size() + " entries");
+                }
+                if (!writtenEntries.add(source.entryPath())) {
+                    logger.warn("Skipping duplicate ZIP entry {}", source.entryPath());
+                    continue;
+                }
 
-                    Path filePath = Paths.get(file.getFilePath());
-                    if (Files.exists(filePath) && Files.isReadable(filePath)) {
-                        Files.copy(filePath, zos);
+                zos.putNextEntry(new ZipEntry(source.entryPath()));
+                if (Files.isReadable(source.filePath())) {
+                    try (InputStream in = Files.newInputStream(source.filePath())) {
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            zos.write(buffer, 0, read);
+                        }
                     }
-
-                    zos.closeEntry();
                 }
+                zos.closeEntry();
             }
+            zos.finish();
+        } catch (IOException e) {
+            // Mostly a client disconnecting mid-download - nothing left to respond to
+            logger.info("ZIP download aborted: {}", e.getMessage());
+            throw e;
         }
-        return baos.toByteArray();
     }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.example.prodqapi.productionQueueItem;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox entry: a filesystem side effect on a machine share, recorded in the same transaction
+ * as the queue change and carried out by {@link MachineSyncOutboxWorker} after commit.
+ */
+@Entity
+@Table(name = "_machine_sync_outbox", indexes = {
+        @Index(name = "idx_mso_status_next_attempt", columnList = "status, next_attempt_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MachineSyncIntent {
+
+    public enum Kind {
+        /** Copy the program's attachments into its machine directory */
+        PROGRAM_FILES,
+        /** Delete files (and then empty directories) listed in the payload */
+        REMOVE_FILES,
+        /** Regenerate the machine queue file */
+        QUEUE_FILE
+    }
+
+    public enum Status { PENDING, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Kind kind;
+
+    @Column(name = "queue_type")
+    private String queueType;
+
+    @Column(name = "program_id")
+    private Integer programId;
+
+    // REMOVE_FILES: one path per line, "F\t" for files and "D\t" for directories removed if empty
+    @Lob
+    @Column(name = "payload")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Status status;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
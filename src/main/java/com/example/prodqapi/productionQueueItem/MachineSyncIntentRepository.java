@@ -0,0 +1,28 @@
+package com.example.prodqapi.productionQueueItem;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MachineSyncIntentRepository extends JpaRepository<MachineSyncIntent, Long> {
+
+    // Najstarsze zaległe wpisy outboxa (indeks status + next_attempt_at).
+    // Wpis czeka, dopóki starszy wpis tej samej maszyny czeka na ponowienie - zachowuje kolejność
+    @Query("SELECT i FROM MachineSyncIntent i " +
+           "WHERE i.status = com.example.prodqapi.productionQueueItem.MachineSyncIntent.Status.PENDING " +
+           "AND i.nextAttemptAt <= :now " +
+           "AND NOT EXISTS (SELECT e.id FROM MachineSyncIntent e " +
+           "WHERE e.status = com.example.prodqapi.productionQueueItem.MachineSyncIntent.Status.PENDING " +
+           "AND e.queueType = i.queueType AND e.id < i.id AND e.nextAttemptAt > :now) " +
+           "ORDER BY i.id ASC")
+    List<MachineSyncIntent> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Czy maszyna ma jeszcze niezastosowane wpisy (pełna synchronizacja ich nie dubluje)
+    boolean existsByQueueTypeAndStatus(String queueType, MachineSyncIntent.Status status);
+}
@@ -0,0 +1,113 @@
+package com.example.prodqapi.productionQueueItem;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Records filesystem side effects of queue changes (attachment copies, deletions, queue files)
+ * in the caller's transaction instead of performing them inline.
+ * <p>
+ * The intents commit or roll back together with the data, and {@link MachineSyncOutboxWorker}
+ * applies them after commit - request latency no longer depends on the machine share, and a
+ * rolled back change leaves no files behind.
+ */
+@Service
+public class MachineSyncOutbox {
+
+    private final MachineSyncIntentRepository machineSyncIntentRepository;
+    private final ProductionQueueItemRepository productionQueueItemRepository;
+    private final MachineSyncOutboxWorker machineSyncOutboxWorker;
+
+    public MachineSyncOutbox(MachineSyncIntentRepository machineSyncIntentRepository,
+                             ProductionQueueItemRepository productionQueueItemRepository,
+                             MachineSyncOutboxWorker machineSyncOutboxWorker) {
+        this.machineSyncIntentRepository = machineSyncIntentRepository;
+        this.productionQueueItemRepository = productionQueueItemRepository;
+        this.machineSyncOutboxWorker = machineSyncOutboxWorker;
+    }
+
+    /**
+     * Copy the program's attachments into the directory of its machine
+     */
+    public void enqueueProgramSync(ProductionQueueItem item) {
+        if (!QueueFileRegenerator.isMachineQueue(item.getQueueType())) {
+            return;
+        }
+        add(MachineSyncIntent.Kind.PROGRAM_FILES, item.getQueueType(), item.getId(), null);
+    }
+
+    /**
+     * Re-sync every program directory of a machine, then its queue file (ignored for ncQueue/completed)
+     */
+    @Transactional
+    public void enqueueMachineSync(String queueType) {
+        if (!QueueFileRegenerator.isMachineQueue(queueType)) {
+            return;
+        }
+        for (Integer programId : productionQueueItemRepository.findIdsByQueueType(queueType)) {
+            add(MachineSyncIntent.Kind.PROGRAM_FILES, queueType, programId, null);
+        }
+        add(MachineSyncIntent.Kind.QUEUE_FILE, queueType, null, null);
+    }
+
+    /**
+     * Whether side effects of the machine are still waiting to be applied
+     */
+    public boolean hasPendingIntents(String queueType) {
+        return machineSyncIntentRepository.existsByQueueTypeAndStatus(queueType, MachineSyncIntent.Status.PENDING);
+    }
+
+    /**
+     * Regenerate the queue file of a machine (ignored for ncQueue/completed)
+     */
+    public void enqueueQueueRegeneration(String queueType) {
+        if (!QueueFileRegenerator.isMachineQueue(queueType)) {
+            return;
+        }
+        add(MachineSyncIntent.Kind.QUEUE_FILE, queueType, null, null);
+    }
+
+    /**
+     * Delete files, then remove the directories if they are empty
+     */
+    public void enqueueRemoval(String queueType, Integer programId, List<Path> files, List<Path> directories) {
+        if (files.isEmpty() && directories.isEmpty()) {
+            return;
+        }
+        StringBuilder payload = new StringBuilder();
+        files.forEach(file -> payload.append("F\t").append(file).append('\n'));
+        directories.forEach(directory -> payload.append("D\t").append(directory).append('\n'));
+        add(MachineSyncIntent.Kind.REMOVE_FILES, queueType, programId, payload.toString());
+    }
+
+    private void add(MachineSyncIntent.Kind kind, String queueType, Integer programId, String payload) {
+        LocalDateTime now = LocalDateTime.now();
+        machineSyncIntentRepository.save(MachineSyncIntent.builder()
+                .kind(kind)
+                .queueType(queueType)
+                .programId(programId)
+                .payload(payload)
+                .status(MachineSyncIntent.Status.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    machineSyncOutboxWorker.wakeUp();
+                }
+            });
+        } else {
+            machineSyncOutboxWorker.wakeUp();
+        }
+    }
+}
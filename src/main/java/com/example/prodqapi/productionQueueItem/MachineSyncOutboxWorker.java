@@ -0,0 +1,364 @@
+package com.example.prodqapi.productionQueueItem;
+
+import com.example.prodqapi.notification.NotificationDescription;
+import com.example.prodqapi.notification.NotificationService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the machine sync outbox ({@link MachineSyncIntent}) after commit.
+ * <p>
+ * A single drainer claims due entries in batches and hands them to a small worker pool, one
+ * task per machine, so side effects for the same machine are applied in order while a slow
+ * share only delays its own machine. Duplicate intents in a batch run once; the queue file is
+ * regenerated after the program files. A failure stops the machine's batch: the failed intent is
+ * retried with exponential backoff, later intents of that machine wait for it, and it is parked
+ * as FAILED (with a notification) after machine-sync.outbox.max-attempts. A directory still busy
+ * with an earlier operation ({@link MountIoGateway.PathBusyException}) is only contention: the
+ * intent is retried after the initial backoff without using up an attempt.
+ */
+@Component
+public class MachineSyncOutboxWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(MachineSyncOutboxWorker.class);
+
+    private final MachineSyncIntentRepository machineSyncIntentRepository;
+    private final ProductionQueueItemRepository productionQueueItemRepository;
+    private final MachineRepository machineRepository;
+    private final FileSystemService fileSystemService;
+    private final MountIoGateway mountIoGateway;
+    private final QueueFileRegenerator queueFileRegenerator;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final long debounceMs;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+
+    private final ScheduledExecutorService drainer;
+    private final ExecutorService workers;
+    private final AtomicBoolean wakeUpScheduled = new AtomicBoolean();
+
+    /**
+     * Result of applying one intent: error is null when it was applied
+     */
+    private record Outcome(String error, boolean busy) {
+        static final Outcome APPLIED = new Outcome(null, false);
+    }
+
+    public MachineSyncOutboxWorker(
+            MachineSyncIntentRepository machineSyncIntentRepository,
+            ProductionQueueItemRepository productionQueueItemRepository,
+            MachineRepository machineRepository,
+            FileSystemService fileSystemService,
+            MountIoGateway mountIoGateway,
+            QueueFileRegenerator queueFileRegenerator,
+            NotificationService notificationService,
+            TransactionTemplate transactionTemplate,
+            @Value("${machine-sync.outbox.batch-size:100}") int batchSize,
+            @Value("${machine-sync.outbox.poll-interval-ms:5000}") long pollIntervalMs,
+            @Value("${machine-sync.outbox.debounce-ms:200}") long debounceMs,
+            @Value("${machine-sync.outbox.threads:2}") int threads,
+            @Value("${machine-sync.outbox.max-attempts:10}") int maxAttempts,
+            @Value("${machine-sync.outbox.initial-backoff-ms:2000}") long initialBackoffMs,
+            @Value("${machine-sync.outbox.max-backoff-ms:300000}") long maxBackoffMs) {
+        this.machineSyncIntentRepository = machineSyncIntentRepository;
+        this.productionQueueItemRepository = productionQueueItemRepository;
+        this.machineRepository = machineRepository;
+        this.fileSystemService = fileSystemService;
+        this.mountIoGateway = mountIoGateway;
+        this.queueFileRegenerator = queueFileRegenerator;
+        this.notificationService = notificationService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.debounceMs = debounceMs;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+
+        this.drainer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "machine-sync-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "machine-sync-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Periodic pass - picks up retries and anything left over from before a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        drainer.scheduleWithFixedDelay(this::drainSafely, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drain soon; calls within the debounce window share one pass
+     */
+    public void wakeUp() {
+        if (!wakeUpScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            drainer.schedule(() -> {
+                wakeUpScheduled.set(false);
+                drainSafely();
+            }, debounceMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            wakeUpScheduled.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Unfinished intents stay in the outbox and are applied after the next start
+        drainer.shutdownNow();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (Exception e) {
+            logger.error("Error draining machine sync outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    void drain() throws InterruptedException {
+        List<MachineSyncIntent> due;
+        do {
+            due = transactionTemplate.execute(status ->
+                    machineSyncIntentRepository.findDue(LocalDateTime.now(), PageRequest.of(0, batchSize)));
+            if (due == null || due.isEmpty()) {
+                return;
+            }
+
+            Map<String, List<MachineSyncIntent>> byMachine = new LinkedHashMap<>();
+            for (MachineSyncIntent intent : due) {
+                byMachine.computeIfAbsent(String.valueOf(intent.getQueueType()), key -> new ArrayList<>()).add(intent);
+            }
+
+            Map<List<MachineSyncIntent>, Future<Map<Long, Outcome>>> futures = new LinkedHashMap<>();
+            for (List<MachineSyncIntent> intents : byMachine.values()) {
+                futures.put(intents, workers.submit(() -> processMachine(intents)));
+            }
+
+            // Intents without an outcome stay pending
+            Map<Long, Outcome> outcomes = new HashMap<>();
+            for (Map.Entry<List<MachineSyncIntent>, Future<Map<Long, Outcome>>> entry : futures.entrySet()) {
+                try {
+                    outcomes.putAll(entry.getValue().get());
+                } catch (ExecutionException e) {
+                    logger.error("Machine sync task failed: {}", e.getCause().getMessage(), e.getCause());
+                    entry.getKey().forEach(intent -> outcomes.put(intent.getId(), new Outcome("Not processed: " + e.getCause(), false)));
+                }
+            }
+            recordOutcomes(due, outcomes);
+        } while (due.size() == batchSize);
+    }
+
+    /**
+     * Apply the intents of one machine in order; file changes first, the queue file last.
+     * Stops at the first failure - the remaining intents get no outcome and keep waiting behind it.
+     */
+    private Map<Long, Outcome> processMachine(List<MachineSyncIntent> intents) {
+        Map<Long, Outcome> outcomes = new HashMap<>();
+        Map<String, Outcome> doneByKey = new HashMap<>();
+        List<MachineSyncIntent> ordered = new ArrayList<>(intents);
+        ordered.sort(Comparator.comparing((MachineSyncIntent intent) -> intent.getKind() == MachineSyncIntent.Kind.QUEUE_FILE)
+                .thenComparing(MachineSyncIntent::getId));
+
+        for (MachineSyncIntent intent : ordered) {
+            String key = intent.getKind() + "|" + intent.getQueueType() + "|" + intent.getProgramId() + "|" + intent.getPayload();
+            if (doneByKey.containsKey(key)) {
+                outcomes.put(intent.getId(), doneByKey.get(key));
+                continue;
+            }
+            Outcome outcome = Outcome.APPLIED;
+            try {
+                apply(intent);
+            } catch (Exception e) {
+                String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                if (isPathBusy(e)) {
+                    logger.debug("Machine sync {} for queueType {} deferred: {}", intent.getKind(), intent.getQueueType(), error);
+                    outcome = new Outcome(error, true);
+                } else {
+                    logger.warn("Machine sync {} for queueType {} failed (attempt {}): {}",
+                            intent.getKind(), intent.getQueueType(), intent.getAttempts() + 1, error);
+                    outcome = new Outcome(error, false);
+                }
+            }
+            doneByKey.put(key, outcome);
+            outcomes.put(intent.getId(), outcome);
+            if (outcome.error() != null) {
+                break;
+            }
+        }
+        return outcomes;
+    }
+
+    private void apply(MachineSyncIntent intent) throws IOException {
+        switch (intent.getKind()) {
+            case PROGRAM_FILES -> syncProgramFiles(intent.getProgramId());
+            case REMOVE_FILES -> removeFiles(intent.getPayload());
+            case QUEUE_FILE -> queueFileRegenerator.regenerateNow(intent.getQueueType());
+        }
+    }
+
+    /**
+     * Copy the current attachments of a program to its current machine - later changes win.
+     * The database is read in a short transaction; the share is written without holding a connection.
+     */
+    private void syncProgramFiles(Integer programId) throws IOException {
+        FileSystemService.DirectorySync sync = transactionTemplate.execute(status -> {
+            Optional<ProductionQueueItem> programOpt = productionQueueItemRepository.findByIdWithFiles(programId);
+            if (programOpt.isEmpty() || !QueueFileRegenerator.isMachineQueue(programOpt.get().getQueueType())) {
+                return null;
+            }
+            ProductionQueueItem program = programOpt.get();
+            Machine machine = machineRepository.findById(Integer.parseInt(program.getQueueType()))
+                    .orElseThrow(() -> new IllegalStateException("Machine with ID: " + program.getQueueType() + " not found"));
+
+            String orderName = fileSystemService.sanitizeName(program.getOrderName(), "NoOrderName_" + program.getId());
+            String partName = fileSystemService.sanitizeName(program.getPartName(), "NoPartName_" + program.getId());
+            return fileSystemService.prepareSync(machine.getProgramPath(), orderName, partName, program.getFiles());
+        });
+        if (sync != null) {
+            fileSystemService.applySync(sync);
+        }
+    }
+
+    /**
+     * Deletes go through the mount gateway, exclusive per program directory, so they never run
+     * alongside a sync of the same directory that is still going on after a timeout
+     */
+    private void removeFiles(String payload) throws IOException {
+        for (String line : payload.split("\n")) {
+            if (line.length() < 3) {
+                continue;
+            }
+            Path path = Paths.get(line.substring(2));
+            if (line.charAt(0) == 'F') {
+                boolean deleted = mountIoGateway.callExclusive(directoryOf(path), "deleteFile", () -> Files.deleteIfExists(path));
+                if (deleted) {
+                    logger.info("Deleted file: {}", path);
+                }
+            } else {
+                mountIoGateway.callExclusive(path, "deleteDirectory", () -> {
+                    try {
+                        return Files.deleteIfExists(path);
+                    } catch (DirectoryNotEmptyException e) {
+                        logger.debug("Directory {} not empty, keeping it", path);
+                        return false;
+                    }
+                });
+            }
+        }
+    }
+
+    // The queue file render wraps IOExceptions
+    private static boolean isPathBusy(Throwable e) {
+        return e instanceof MountIoGateway.PathBusyException || e.getCause() instanceof MountIoGateway.PathBusyException;
+    }
+
+    private static Path directoryOf(Path file) {
+        return file.getParent() != null ? file.getParent() : file;
+    }
+
+    private void recordOutcomes(List<MachineSyncIntent> intents, Map<Long, Outcome> outcomes) {
+        List<Long> applied = new ArrayList<>();
+        List<MachineSyncIntent> rescheduled = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (MachineSyncIntent intent : intents) {
+            if (!outcomes.containsKey(intent.getId())) {
+                continue;
+            }
+            Outcome outcome = outcomes.get(intent.getId());
+            if (outcome.error() == null) {
+                applied.add(intent.getId());
+                continue;
+            }
+            String error = outcome.error();
+            if (outcome.busy()) {
+                intent.setNextAttemptAt(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(initialBackoffMs)));
+                rescheduled.add(intent);
+                continue;
+            }
+            int attempts = intent.getAttempts() + 1;
+            intent.setAttempts(attempts);
+            intent.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            if (attempts >= maxAttempts) {
+                intent.setStatus(MachineSyncIntent.Status.FAILED);
+                notifyFailure(intent);
+            } else {
+                long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempts - 1, 20));
+                intent.setNextAttemptAt(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(backoff)));
+            }
+            rescheduled.add(intent);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!applied.isEmpty()) {
+                machineSyncIntentRepository.deleteAllByIdInBatch(applied);
+            }
+            if (!rescheduled.isEmpty()) {
+                machineSyncIntentRepository.saveAll(rescheduled);
+            }
+        });
+        if (!applied.isEmpty() || !rescheduled.isEmpty()) {
+            logger.debug("Machine sync outbox: {} applied, {} rescheduled", applied.size(), rescheduled.size());
+        }
+    }
+
+    private void notifyFailure(MachineSyncIntent intent) {
+        logger.error("Giving up on machine sync {} for queueType {} after {} attempts: {}",
+                intent.getKind(), intent.getQueueType(), intent.getAttempts(), intent.getLastError());
+        try {
+            String machineName = QueueFileRegenerator.isMachineQueue(intent.getQueueType())
+                    ? machineRepository.findById(Integer.parseInt(intent.getQueueType()))
+                            .map(Machine::getMachineName)
+                            .orElse(intent.getQueueType())
+                    : String.valueOf(intent.getQueueType());
+            notificationService.sendSystemNotification(NotificationDescription.QueueSyncFailed,
+                    Map.of("machineName", machineName, "error", intent.getLastError()));
+        } catch (Exception e) {
+            logger.warn("Could not send machine sync failure notification: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.example.prodqapi.productionQueueItem;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs filesystem operations on the machine shares (/cnc and machine program paths) with a
+ * timeout, so a hung SMB/NFS server can't stall request or scheduler threads.
+ * <p>
+ * Operations run on a small bounded pool (mount-io.threads / mount-io.queue-capacity); the
+ * caller waits at most the given timeout. Each mount root has a circuit breaker: after
+ * mount-io.breaker.failure-threshold consecutive timeouts/rejections it opens and calls fail
+ * fast for mount-io.breaker.open-ms, then a single trial call decides whether it closes again.
+ * Plain IOExceptions (missing file, access denied) are answers from a healthy mount and don't
+ * count. Probes made through {@link #callCached} answer from the last known result while the
+ * mount is degraded. Writes made through {@link #callExclusive} never overlap on the same path,
+ * even when an earlier one timed out but is still running on the share; such a call fails with
+ * {@link PathBusyException}, which callers treat as "try later", not as a mount failure.
+ */
+@Component
+public class MountIoGateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(MountIoGateway.class);
+
+    private static final String THREAD_PREFIX = "mount-io-";
+
+    @FunctionalInterface
+    public interface IoCall<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * The mount did not answer in time, or its circuit breaker is open
+     */
+    public static class MountUnavailableException extends IOException {
+        public MountUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Another exclusive operation on the same path is still running - normal contention, not a mount failure
+     */
+    public static class PathBusyException extends IOException {
+        public PathBusyException(String message) {
+            super(message);
+        }
+    }
+
+    enum BreakerState {CLOSED, OPEN, HALF_OPEN}
+
+    /**
+     * Breaker of one mount root; guarded by its own monitor
+     */
+    private static final class Breaker {
+        BreakerState state = BreakerState.CLOSED;
+        int consecutiveFailures;
+        long openedAt;
+        boolean trialRunning;
+    }
+
+    private final Path cncMountDir;
+    private final long probeTimeoutMs;
+    private final int failureThreshold;
+    private final long openMs;
+    private final LongSupplier clock;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<Path, Breaker> breakers = new ConcurrentHashMap<>();
+    // Paths with an exclusive operation in flight (including timed-out ones still running)
+    private final Set<Path> exclusivePaths = ConcurrentHashMap.newKeySet();
+    private final Cache<String, Object> lastResults = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
+
+    @Autowired
+    public MountIoGateway(
+            @Value("${mount-io.threads:8}") int threads,
+            @Value("${mount-io.queue-capacity:100}") int queueCapacity,
+            @Value("${mount-io.probe-timeout-ms:3000}") long probeTimeoutMs,
+            @Value("${mount-io.breaker.failure-threshold:3}") int failureThreshold,
+            @Value("${mount-io.breaker.open-ms:30000}") long openMs) {
+        this(threads, queueCapacity, probeTimeoutMs, failureThreshold, openMs, System::currentTimeMillis);
+    }
+
+    MountIoGateway(int threads, int queueCapacity, long probeTimeoutMs, int failureThreshold, long openMs, LongSupplier clock) {
+        String appEnv = System.getenv("APP_ENV");
+        boolean isProdEnv = "prod".equalsIgnoreCase(appEnv) || "docker-local".equalsIgnoreCase(appEnv);
+        this.cncMountDir = (isProdEnv ? Paths.get("/cnc") : Paths.get("./cnc")).toAbsolutePath().normalize();
+        this.probeTimeoutMs = probeTimeoutMs;
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        this.clock = clock;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, THREAD_PREFIX + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Short metadata operation (exists, lock probe, ...) with the probe timeout
+     */
+    public <T> T call(Path path, String operation, IoCall<T> call) throws IOException {
+        return call(path, operation, call, probeTimeoutMs);
+    }
+
+    /**
+     * Run an operation touching path, waiting at most timeoutMs
+     *
+     * @throws MountUnavailableException on timeout, full pool or open breaker
+     */
+    public <T> T call(Path path, String operation, IoCall<T> call, long timeoutMs) throws IOException {
+        // Nested call from an operation already isolated by the gateway
+        if (Thread.currentThread().getName().startsWith(THREAD_PREFIX)) {
+            return call.call();
+        }
+
+        Path mountRoot = mountRootOf(path);
+        Breaker breaker = breakers.computeIfAbsent(mountRoot, key -> new Breaker());
+        boolean trial = acquire(breaker, mountRoot, operation);
+
+        Future<T> future;
+        try {
+            future = executor.submit(call::call);
+        } catch (RejectedExecutionException e) {
+            recordFailure(breaker, mountRoot, trial);
+            throw new MountUnavailableException("Mount " + mountRoot + " is busy, " + operation + " rejected: " + path);
+        }
+
+        try {
+            T result = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            recordSuccess(breaker, mountRoot, trial);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            recordFailure(breaker, mountRoot, trial);
+            logger.warn("{} on {} timed out after {} ms", operation, path, timeoutMs);
+            throw new MountUnavailableException("Mount " + mountRoot + " did not answer " + operation + " within " + timeoutMs + " ms: " + path);
+        } catch (ExecutionException e) {
+            // The mount answered - an error from the operation itself is not a mount failure
+            recordSuccess(breaker, mountRoot, trial);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(operation + " failed: " + path, cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            releaseTrial(breaker, trial);
+            Thread.currentThread().interrupt();
+            throw new MountUnavailableException("Interrupted while waiting for " + operation + ": " + path);
+        }
+    }
+
+    /**
+     * Like {@link #call(Path, String, IoCall)}, but answers with the last successful result for the
+     * same operation and path while the mount is unavailable (rethrows if there is none)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T callCached(Path path, String operation, IoCall<T> call) throws IOException {
+        String key = operation + "|" + path.toAbsolutePath().normalize();
+        try {
+            T result = call(path, operation, call);
+            if (result != null) {
+                lastResults.put(key, result);
+            }
+            return result;
+        } catch (MountUnavailableException e) {
+            Object cached = lastResults.getIfPresent(key);
+            if (cached == null) {
+                throw e;
+            }
+            logger.debug("Mount degraded, serving cached {} for {}", operation, path);
+            return (T) cached;
+        }
+    }
+
+    /**
+     * Short exclusive operation with the probe timeout, see {@link #callExclusive(Path, String, IoCall, long)}
+     */
+    public <T> T callExclusive(Path path, String operation, IoCall<T> call) throws IOException {
+        return callExclusive(path, operation, call, probeTimeoutMs);
+    }
+
+    /**
+     * Like {@link #call(Path, String, IoCall, long)}, but at most one exclusive operation per path is in
+     * flight. An operation that timed out keeps the path busy until it really ends, so a retry can't
+     * overlap a transfer the hung share is still carrying out.
+     *
+     * @throws PathBusyException while an earlier operation on the path is still running
+     */
+    public <T> T callExclusive(Path path, String operation, IoCall<T> call, long timeoutMs) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        if (!exclusivePaths.add(key)) {
+            throw new PathBusyException("Earlier operation on " + key + " is still running, " + operation + " skipped");
+        }
+        // 0 - not started, 1 - started (the operation releases the path), 2 - abandoned before it started
+        AtomicInteger state = new AtomicInteger();
+        try {
+            return call(path, operation, () -> {
+                if (!state.compareAndSet(0, 1)) {
+                    return null;
+                }
+                try {
+                    return call.call();
+                } finally {
+                    exclusivePaths.remove(key);
+                }
+            }, timeoutMs);
+        } finally {
+            if (state.compareAndSet(0, 2)) {
+                exclusivePaths.remove(key);
+            }
+        }
+    }
+
+    BreakerState getBreakerState(Path path) {
+        Breaker breaker = breakers.get(mountRootOf(path));
+        if (breaker == null) {
+            return BreakerState.CLOSED;
+        }
+        synchronized (breaker) {
+            return breaker.state;
+        }
+    }
+
+    /**
+     * @return whether this call is the half-open trial
+     */
+    private boolean acquire(Breaker breaker, Path mountRoot, String operation) throws MountUnavailableException {
+        synchronized (breaker) {
+            if (breaker.state == BreakerState.OPEN && clock.getAsLong() - breaker.openedAt >= openMs) {
+                breaker.state = BreakerState.HALF_OPEN;
+            }
+            if (breaker.state == BreakerState.CLOSED) {
+                return false;
+            }
+            if (breaker.state == BreakerState.HALF_OPEN && !breaker.trialRunning) {
+                breaker.trialRunning = true;
+                return true;
+            }
+        }
+        throw new MountUnavailableException("Mount " + mountRoot + " is unavailable (circuit open), " + operation + " skipped");
+    }
+
+    private void recordSuccess(Breaker breaker, Path mountRoot, boolean trial) {
+        synchronized (breaker) {
+            if (trial) {
+                logger.info("Mount {} responds again, circuit closed", mountRoot);
+                breaker.state = BreakerState.CLOSED;
+            }
+            breaker.consecutiveFailures = 0;
+            releaseTrial(breaker, trial);
+        }
+    }
+
+    private void recordFailure(Breaker breaker, Path mountRoot, boolean trial) {
+        synchronized (breaker) {
+            breaker.consecutiveFailures++;
+            if (trial || (breaker.state == BreakerState.CLOSED && breaker.consecutiveFailures >= failureThreshold)) {
+                if (breaker.state != BreakerState.OPEN) {
+                    logger.error("Mount {} is not responding ({} consecutive failures), circuit open for {} ms",
+                            mountRoot, breaker.consecutiveFailures, openMs);
+                }
+                breaker.state = BreakerState.OPEN;
+                breaker.openedAt = clock.getAsLong();
+            }
+            releaseTrial(breaker, trial);
+        }
+    }
+
+    private static void releaseTrial(Breaker breaker, boolean trial) {
+        if (trial) {
+            synchronized (breaker) {
+                breaker.trialRunning = false;
+            }
+        }
+    }
+
+    /**
+     * The CNC mount, otherwise the first directory below the filesystem root (e.g. /mnt)
+     */
+    private Path mountRootOf(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        if (absolute.startsWith(cncMountDir)) {
+            return cncMountDir;
+        }
+        Path root = absolute.getRoot();
+        if (root == null || absolute.getNameCount() == 0) {
+            return absolute;
+        }
+        return root.resolve(absolute.getName(0));
+    }
+}
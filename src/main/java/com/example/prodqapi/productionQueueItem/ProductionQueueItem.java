@@ -2,6 +2,7 @@ package com.example.prodqapi.productionQueueItem;
 
 import com.example.prodqapi.FileProductionItem.ProductionFileInfo;
 import com.example.prodqapi.materialReservation.MaterialReservation;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
@@ -11,18 +12,28 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "_production_queue_item")
+@Table(name = "_production_queue_item", indexes = {
+        @Index(name = "idx_pqi_deadline_date", columnList = "deadline_date"),
+        @Index(name = "idx_pqi_queue_type_normalized_part_name", columnList = "queue_type, normalized_part_name"),
+        @Index(name = "idx_pqi_queue_type_order_position", columnList = "queue_type, order_position")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class ProductionQueueItem {
+    private static final FileNameSanitizerStrategy PART_NAME_SANITIZER = InframetMpfSanitizer.shared();
+    private static final Map<String, Object> PART_NAME_OPTIONS = Map.of("maxLength", 24);
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
@@ -38,10 +49,19 @@ public class ProductionQueueItem {
     @NotBlank(message = "Part name cannot be blank")
     private String partName;
 
+    // Sanitized, lower-cased part name (as used for directory names) - for unique name allocation per queue
+    @Column(name = "normalized_part_name")
+    @JsonIgnore
+    private String normalizedPartName;
+
     private int quantity;
     private String baseCamTime;
     private String camTime;
     private String deadline;
+
+    // Parsed from deadline on every write, for sorting and date range queries
+    @Column(name = "deadline_date")
+    private LocalDate deadlineDate;
     @ElementCollection
     private List<String> selectedDays;
 
@@ -88,4 +108,18 @@ public class ProductionQueueItem {
     @OneToOne(mappedBy = "productionQueueItem", fetch = FetchType.EAGER)
     @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "productionQueueItem"})
     private MaterialReservation materialReservation;
+
+    @PrePersist
+    @PreUpdate
+    public void syncDerivedColumns() {
+        deadlineDate = DeadlineParser.parse(deadline);
+        normalizedPartName = normalizePartName(partName);
+    }
+
+    public static String normalizePartName(String partName) {
+        if (partName == null) {
+            return null;
+        }
+        return PART_NAME_SANITIZER.sanitize(partName, PART_NAME_OPTIONS).toLowerCase(Locale.ROOT);
+    }
 }
\ No newline at end of file
@@ -1,25 +1,25 @@
 package com.example.prodqapi.productionQueueItem;
 
-import com.example.prodqapi.FileProductionItem.ProductionFileInfo;
 import com.example.prodqapi.FileProductionItem.ProductionFileInfoService;
 import com.example.prodqapi.common.CommonService;
+import com.example.prodqapi.common.FileDownloadResponder;
 import com.example.prodqapi.materialType.MaterialType;
 import com.example.prodqapi.materialType.MaterialTypeRepository;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/production-queue-item")
@@ -29,17 +29,20 @@ public class ProductionQueueItemController {
     private final ProductionFileInfoService productionFileInfoService;
     private final CommonService commonService;
     private final MaterialTypeRepository materialTypeRepository;
+    private final FileDownloadResponder fileDownloadResponder;
 
     @Autowired
     public ProductionQueueItemController(
             ProductionQueueItemService productionQueueItemService,
             ProductionFileInfoService productionFileInfoService,
             CommonService commonService,
-            MaterialTypeRepository materialTypeRepository) {
+            MaterialTypeRepository materialTypeRepository,
+            FileDownloadResponder fileDownloadResponder) {
         this.productionQueueItemService = productionQueueItemService;
         this.productionFileInfoService = productionFileInfoService;
         this.commonService = commonService;
         this.materialTypeRepository = materialTypeRepository;
+        this.fileDownloadResponder = fileDownloadResponder;
     }
 
     @PostMapping(value = "/add", consumes = {"multipart/form-data"})
@@ -162,18 +165,11 @@ public class ProductionQueueItemController {
     }
 
     @GetMapping("/files/{fileId}")
-    public ResponseEntity<byte[]> getFileContent(@PathVariable Long fileId) throws IOException {
-        byte[] fileContent = productionQueueItemService.getFileContent(fileId);
-        Optional<ProductionFileInfo> fileOpt = productionFileInfoService.findById(fileId);
-        if (fileOpt.isPresent()) {
-            ProductionFileInfo file = fileOpt.get();
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=" + file.getFileName())
-                    .contentType(MediaType.parseMediaType(file.getFileType()))
-                    .body(fileContent);
-        } else {
-            return ResponseEntity.notFound().build();
-        }
+    public ResponseEntity<Resource> getFileContent(@PathVariable Long fileId) {
+        return productionFileInfoService.findDownloadView(fileId)
+                .map(file -> fileDownloadResponder.attachment(Paths.get(file.getFilePath()), file.getFileName(),
+                        file.getFileType(), file.getContentSha256()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @PatchMapping("/{id}/toggle-complete")
@@ -188,6 +184,12 @@ public class ProductionQueueItemController {
         return ResponseEntity.ok("{\"success\": true}");
     }
 
+    @PatchMapping("/reorder")
+    public ResponseEntity<List<OrderItem>> reorderQueue(@RequestBody ReorderQueueRequest request) throws IOException {
+        List<OrderItem> positions = productionQueueItemService.reorderQueue(request.getQueueType(), request.getMoves());
+        return ResponseEntity.ok(positions);
+    }
+
     @DeleteMapping("/files/{fileId}")
     public ResponseEntity<Void> deleteFile(@PathVariable Long fileId) {
         productionFileInfoService.deleteById(fileId);
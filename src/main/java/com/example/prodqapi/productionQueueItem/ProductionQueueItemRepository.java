@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -31,11 +32,29 @@ public interface ProductionQueueItemRepository extends JpaRepository<ProductionQ
     @Query("SELECT COALESCE(MAX(p.order), -1) FROM ProductionQueueItem p WHERE p.queueType = :queueType")
     Integer findMaxOrderByQueueType(String queueType);
 
+    // Rangi pozycji w kolejce (indeks queue_type + order_position) - przesunięcie zmienia tylko jeden wiersz
+    @Query("SELECT MIN(p.order) FROM ProductionQueueItem p WHERE p.queueType = :queueType")
+    Integer findMinOrderByQueueType(@Param("queueType") String queueType);
+
+    @Query("SELECT MIN(p.order) FROM ProductionQueueItem p WHERE p.queueType = :queueType AND p.id <> :excludedId")
+    Integer findMinOrderByQueueTypeExcluding(@Param("queueType") String queueType, @Param("excludedId") Integer excludedId);
+
+    @Query("SELECT MIN(p.order) FROM ProductionQueueItem p " +
+           "WHERE p.queueType = :queueType AND p.order > :order AND p.id <> :excludedId")
+    Integer findNextOrder(@Param("queueType") String queueType, @Param("order") Integer order, @Param("excludedId") Integer excludedId);
+
+    @Query("SELECT p FROM ProductionQueueItem p WHERE p.queueType = :queueType ORDER BY p.order ASC NULLS LAST, p.id ASC")
+    List<ProductionQueueItem> findByQueueTypeInRankOrder(@Param("queueType") String queueType);
+
     // --- POCZĄTEK ZMIANY ---
     // Tutaj również dodajemy DISTINCT z tego samego powodu.
     @Query("SELECT DISTINCT p FROM ProductionQueueItem p LEFT JOIN FETCH p.files f WHERE p.id = :id ORDER BY f.order ASC")
     Optional<ProductionQueueItem> findByIdWithFiles(@Param("id") Integer id);
 
+    // Wszystkie programy z pliku kolejki jednym zapytaniem (import statusów [OK]/[NOK])
+    @Query("SELECT DISTINCT p FROM ProductionQueueItem p LEFT JOIN FETCH p.files f WHERE p.id IN :ids")
+    List<ProductionQueueItem> findAllByIdWithFiles(@Param("ids") Collection<Integer> ids);
+
     // Query dla generatora kolejki - pobiera programy z plikami i rezerwacją materiału
     @Query("SELECT DISTINCT p FROM ProductionQueueItem p " +
            "LEFT JOIN FETCH p.files f " +
@@ -48,9 +67,23 @@ public interface ProductionQueueItemRepository extends JpaRepository<ProductionQ
     List<ProductionQueueItem> findByQueueTypeWithFilesAndMaterial(@Param("queueType") String queueType);
     // --- KONIEC ZMIANY ---
 
+    // Identyfikatory programów kolejki - pełna synchronizacja maszyny przez outbox
+    @Query("SELECT p.id FROM ProductionQueueItem p WHERE p.queueType = :queueType")
+    List<Integer> findIdsByQueueType(@Param("queueType") String queueType);
+
     @Query("SELECT DISTINCT f.fileName FROM ProductionQueueItem p JOIN p.files f WHERE p.orderName = :orderName AND p.partName = :partName")
     Set<String> findFileNamesByOrderNameAndPartName(String orderName, String partName);
 
+    // Znormalizowane nazwy części w kolejce zaczynające się od prefiksu (indeks queue_type + normalized_part_name)
+    @Query("SELECT p.normalizedPartName FROM ProductionQueueItem p " +
+           "WHERE p.queueType = :queueType AND p.normalizedPartName LIKE :pattern ESCAPE '!'")
+    Set<String> findNormalizedPartNamesLike(@Param("queueType") String queueType, @Param("pattern") String pattern);
+
+    // Katalogi programów we wszystkich kolejkach maszyn jednym zapytaniem (indeks aktywnych ścieżek dla czyszczenia)
+    @Query("SELECT p.id AS id, p.queueType AS queueType, p.orderName AS orderName, p.partName AS partName " +
+           "FROM ProductionQueueItem p WHERE p.queueType NOT IN ('ncQueue', 'completed')")
+    List<ProgramDirectoryView> findMachineProgramDirectories();
+
     // Dodajemy tę metodę, aby serwis nadal miał dostęp do prostego zapytania bez złączania plików.
     Page<ProductionQueueItem> findByQueueType(String queueType, Pageable pageable);
 }
\ No newline at end of file
@@ -8,6 +8,8 @@ import com.example.prodqapi.materialReservation.MaterialReservation;
 import com.example.prodqapi.materialReservation.MaterialReservationRepository;
 import com.example.prodqapi.materialReservation.ReservationStatus;
 import com.example.prodqapi.materialReservation.exception.InsufficientMaterialException;
+import com.example.prodqapi.mrp.MrpDirtyTracker;
+import com.example.prodqapi.mrp.ResourceType;
 import com.example.prodqapi.user.User;
 import com.example.prodqapi.user.UserRepository;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -24,10 +26,8 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -39,12 +39,15 @@ public class ProductionQueueItemService {
     private final ProductionQueueItemRepository productionQueueItemRepository;
     private final ProductionFileInfoService productionFileInfoService;
     private final MachineRepository machineRepository;
-    private final MachineQueueFileGeneratorService machineQueueFileGeneratorService;
     private final FileWatcherService fileWatcherService;
     private final FileSystemService fileSystemService;
+    private final ProgramFileUploadService programFileUploadService;
+    private final MachineSyncOutbox machineSyncOutbox;
+    private final QueueRankService queueRankService;
     private final UserRepository userRepository;
     private final MaterialReservationRepository materialReservationRepository;
     private final MaterialRepository materialRepository;
+    private final MrpDirtyTracker mrpDirtyTracker;
 
     @Value("${file.upload-dir:Uploads}")
     private String uploadDir;
@@ -54,21 +57,27 @@ public class ProductionQueueItemService {
             ProductionQueueItemRepository productionQueueItemRepository,
             ProductionFileInfoService productionFileInfoService,
             MachineRepository machineRepository,
-            MachineQueueFileGeneratorService machineQueueFileGeneratorService,
             FileWatcherService fileWatcherService,
             FileSystemService fileSystemService,
+            ProgramFileUploadService programFileUploadService,
+            MachineSyncOutbox machineSyncOutbox,
+            QueueRankService queueRankService,
             UserRepository userRepository,
             MaterialReservationRepository materialReservationRepository,
-            MaterialRepository materialRepository) {
+            MaterialRepository materialRepository,
+            MrpDirtyTracker mrpDirtyTracker) {
         this.productionQueueItemRepository = productionQueueItemRepository;
         this.productionFileInfoService = productionFileInfoService;
         this.machineRepository = machineRepository;
-        this.machineQueueFileGeneratorService = machineQueueFileGeneratorService;
         this.fileWatcherService = fileWatcherService;
         this.fileSystemService = fileSystemService;
+        this.programFileUploadService = programFileUploadService;
+        this.machineSyncOutbox = machineSyncOutbox;
+        this.queueRankService = queueRankService;
         this.userRepository = userRepository;
         this.materialReservationRepository = materialReservationRepository;
         this.materialRepository = materialRepository;
+        this.mrpDirtyTracker = mrpDirtyTracker;
     }
 
 
@@ -76,13 +85,13 @@ public class ProductionQueueItemService {
     @Transactional
     public ProductionQueueItem save(ProductionQueueItem item, List<MultipartFile> files, String fileOrderMapping) throws IOException {
         validateQueueType(item.getQueueType());
+        programFileUploadService.validate(files);
         if (item.getQueueType() == null || item.getQueueType().isEmpty()) {
             item.setQueueType("ncQueue");
         }
 
         if (item.getOrder() == null) {
-            Integer maxOrder = productionQueueItemRepository.findMaxOrderByQueueType(item.getQueueType());
-            item.setOrder(maxOrder != null ? maxOrder + 1 : 1);
+            item.setOrder(queueRankService.rankForNewItem(item.getQueueType()));
         }
 
         String sanitizedPartName = fileSystemService.sanitizeName(item.getPartName(), "NoPartName_" + System.currentTimeMillis());
@@ -98,32 +107,23 @@ public class ProductionQueueItemService {
         if (files != null && !files.isEmpty()) {
             List<ProductionFileInfo> fileInfos = new ArrayList<>();
             Map<String, Integer> orderMap = parseFileOrderMapping(fileOrderMapping);
+            Path basePath = Paths.get(getBaseFilePath(savedItem));
 
             logger.info("Attachment order before saving in save method for partName: {}", sanitizedPartName);
             for (MultipartFile file : files) {
-                String originalFileName = file.getOriginalFilename();
-                String sanitizedFileName = fileSystemService.sanitizeName(originalFileName, "UNKNOWN");
+                String sanitizedFileName = fileSystemService.sanitizeName(file.getOriginalFilename(), "UNKNOWN");
                 Integer fileOrder = orderMap.getOrDefault(sanitizedFileName, fileInfos.size());
                 logger.info("File: {}, order: {}", sanitizedFileName, fileOrder);
-            }
-
-            String basePath = getBaseFilePath(savedItem);
-            Files.createDirectories(Paths.get(basePath));
-
-            for (MultipartFile file : files) {
-                String originalFileName = file.getOriginalFilename();
-                String sanitizedFileName = fileSystemService.sanitizeName(originalFileName, "UNKNOWN");
-                Integer fileOrder = orderMap.getOrDefault(sanitizedFileName, fileInfos.size());
 
-                Path filePath = Paths.get(basePath, sanitizedFileName);
-                Files.write(filePath, file.getBytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-                logger.debug("Saved file to: {}", filePath);
+                ProgramFileUploadService.StoredFile stored = programFileUploadService.store(file, basePath, sanitizedFileName);
+                logger.debug("Saved file to: {}", stored.path());
 
                 ProductionFileInfo fileInfo = ProductionFileInfo.builder()
                         .fileName(sanitizedFileName)
                         .fileType(file.getContentType())
-                        .fileSize(file.getSize())
-                        .filePath(filePath.toString())
+                        .fileSize(stored.size())
+                        .filePath(stored.path().toString())
+                        .contentSha256(stored.sha256())
                         .productionQueueItem(savedItem)
                         .completed(false)
                         .order(fileOrder)
@@ -142,16 +142,38 @@ public class ProductionQueueItemService {
         savedItem.setCompleted(checkAllMpfCompleted(savedItem));
         productionQueueItemRepository.save(savedItem);
 
-        syncAttachmentsToMachinePath(savedItem);
-        fileWatcherService.checkQueueFile(savedItem.getQueueType());
-        machineQueueFileGeneratorService.generateQueueFileForMachine(savedItem.getQueueType());
+        machineSyncOutbox.enqueueProgramSync(savedItem);
+        machineSyncOutbox.enqueueQueueRegeneration(savedItem.getQueueType());
 
         return savedItem;
     }
 
+    /**
+     * Point the rows of a re-uploaded file (same name, or same path on disk) at the stored content.
+     * Returns false if the program had no such file yet.
+     */
+    private boolean refreshReuploadedFile(ProductionQueueItem item, String fileName, String contentType,
+                                          ProgramFileUploadService.StoredFile stored) {
+        String storedPath = stored.path().toString();
+        boolean found = false;
+        for (ProductionFileInfo fileInfo : item.getFiles()) {
+            if (fileName.equals(fileInfo.getFileName()) || storedPath.equals(fileInfo.getFilePath())) {
+                fileInfo.setFilePath(storedPath);
+                fileInfo.setFileType(contentType);
+                fileInfo.setFileSize(stored.size());
+                fileInfo.setContentSha256(stored.sha256());
+                // New content has not been run on the machine yet
+                fileInfo.setCompleted(false);
+                found = true;
+            }
+        }
+        return found;
+    }
+
     @Transactional
     public ProductionQueueItem update(Integer id, ProductionQueueItem updatedItem, List<MultipartFile> files, String fileOrderMapping) throws IOException {
         validateQueueType(updatedItem.getQueueType());
+        programFileUploadService.validate(files);
         Optional<ProductionQueueItem> existingItemOpt = productionQueueItemRepository.findByIdWithFiles(id);
         if (existingItemOpt.isPresent()) {
             ProductionQueueItem existingItem = existingItemOpt.get();
@@ -176,9 +198,7 @@ public class ProductionQueueItemService {
             }
 
             if (files != null && !files.isEmpty()) {
-                Map<String, Integer> orderMapForNewFiles = parseFileOrderMapping(fileOrderMapping);
-                String basePath = getBaseFilePath(existingItem);
-                Files.createDirectories(Paths.get(basePath));
+                Path basePath = Paths.get(getBaseFilePath(existingItem));
 
                 Integer maxOrder = existingItem.getFiles().stream()
                         .map(ProductionFileInfo::getOrder)
@@ -187,18 +207,21 @@ public class ProductionQueueItemService {
                         .orElse(-1);
 
                 for (MultipartFile file : files) {
-                    maxOrder++;
-                    String originalFileName = file.getOriginalFilename();
-                    String sanitizedFileName = fileSystemService.sanitizeName(originalFileName, "UNKNOWN");
+                    String sanitizedFileName = fileSystemService.sanitizeName(file.getOriginalFilename(), "UNKNOWN");
+                    ProgramFileUploadService.StoredFile stored = programFileUploadService.store(file, basePath, sanitizedFileName);
 
-                    Path filePath = Paths.get(basePath, sanitizedFileName);
-                    Files.write(filePath, file.getBytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                    // Re-upload under an existing name overwrote the file - its rows must carry the new digest
+                    if (refreshReuploadedFile(existingItem, sanitizedFileName, file.getContentType(), stored)) {
+                        continue;
+                    }
 
+                    maxOrder++;
                     ProductionFileInfo fileInfo = ProductionFileInfo.builder()
                             .fileName(sanitizedFileName)
                             .fileType(file.getContentType())
-                            .fileSize(file.getSize())
-                            .filePath(filePath.toString())
+                            .fileSize(stored.size())
+                            .filePath(stored.path().toString())
+                            .contentSha256(stored.sha256())
                             .productionQueueItem(existingItem)
                             .completed(false)
                             .order(maxOrder)
@@ -239,7 +262,7 @@ public class ProductionQueueItemService {
             // Note: existingItem.completed is NOT set here - only via toggleComplete (admin approval)
 
             ProductionQueueItem savedItem = productionQueueItemRepository.save(existingItem);
-            syncAttachmentsToMachinePath(savedItem);
+            machineSyncOutbox.enqueueProgramSync(savedItem);
 
             Set<String> queueTypesToUpdate = new HashSet<>();
             queueTypesToUpdate.add(savedItem.getQueueType());
@@ -248,8 +271,7 @@ public class ProductionQueueItemService {
             }
 
             for (String queueType : queueTypesToUpdate) {
-                fileWatcherService.checkQueueFile(queueType);
-                machineQueueFileGeneratorService.generateQueueFileForMachine(queueType);
+                machineSyncOutbox.enqueueQueueRegeneration(queueType);
             }
 
             return savedItem;
@@ -257,21 +279,6 @@ public class ProductionQueueItemService {
             throw new RuntimeException("Queue item with ID: " + id + " not found");
         }
     }
-    public byte[] getFileContent(Long fileId) throws IOException {
-        Optional<ProductionFileInfo> fileOpt = productionFileInfoService.findById(fileId);
-        if (fileOpt.isPresent()) {
-            ProductionFileInfo file = fileOpt.get();
-            Path filePath = Paths.get(file.getFilePath());
-            if (Files.exists(filePath)) {
-                return Files.readAllBytes(filePath);
-            } else {
-                throw new IOException("File not found: " + file.getFilePath());
-            }
-        } else {
-            throw new IOException("File info with ID: " + fileId + " not found");
-        }
-    }
-
     private String getBaseFilePath(ProductionQueueItem item) {
         String sanitizedOrderName = fileSystemService.sanitizeName(item.getOrderName(), "NoOrderName_" + item.getId());
         String sanitizedPartName = fileSystemService.sanitizeName(item.getPartName(), "NoPartName_" + item.getId());
@@ -307,31 +314,28 @@ public class ProductionQueueItemService {
         return orderMap;
     }
 
+    /**
+     * partName, or partName_2, partName_3, ... if the name is taken in the queue.
+     * One indexed prefix query for all candidates instead of scanning the table per candidate.
+     */
     private String getUniquePartName(String queueType, String partName) {
-        String basePartName = partName;
-        int suffix = 2;
-        String candidatePartName = basePartName;
+        String prefix = partName.toLowerCase(Locale.ROOT);
+        String pattern = prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        Set<String> takenNames = productionQueueItemRepository.findNormalizedPartNamesLike(queueType, pattern);
 
-        while (isPartNameDuplicate(queueType, candidatePartName)) {
-            candidatePartName = basePartName + "_" + suffix;
+        String candidatePartName = partName;
+        int suffix = 2;
+        while (takenNames.contains(candidatePartName.toLowerCase(Locale.ROOT))) {
+            candidatePartName = partName + "_" + suffix;
             suffix++;
             if (suffix > 1000) {
-                throw new IllegalStateException("Cannot find unique name for partName: " + basePartName);
+                throw new IllegalStateException("Cannot find unique name for partName: " + partName);
             }
         }
 
         return candidatePartName;
     }
 
-    private boolean isPartNameDuplicate(String queueType, String partName) {
-        return productionQueueItemRepository.findAll().stream()
-                .filter(item -> item.getQueueType().equals(queueType))
-                .anyMatch(item -> {
-                    String sanitizedExistingPartName = fileSystemService.sanitizeName(item.getPartName(), "NoPartName_" + item.getId());
-                    return sanitizedExistingPartName.equalsIgnoreCase(partName);
-                });
-    }
-
     public Optional<ProductionQueueItem> findById(Integer id) {
         Optional<ProductionQueueItem> itemOpt = productionQueueItemRepository.findByIdWithFiles(id);
         itemOpt.ifPresent(item -> {
@@ -373,77 +377,62 @@ public class ProductionQueueItemService {
             ProductionQueueItem item = itemOpt.get();
             String queueType = item.getQueueType();
 
+            // Files are deleted by the outbox worker after commit - a rollback keeps them
+            List<Path> filesToDelete = new ArrayList<>();
+            List<Path> directoriesToRemove = new ArrayList<>();
+            Path machineProgramDir = null;
+            if (QueueFileRegenerator.isMachineQueue(queueType)) {
+                Optional<Machine> machineOpt = machineRepository.findById(Integer.parseInt(queueType));
+                if (machineOpt.isPresent()) {
+                    String orderName = fileSystemService.sanitizeName(item.getOrderName(), "NoOrderName_" + item.getId());
+                    String partName = fileSystemService.sanitizeName(item.getPartName(), "NoPartName_" + item.getId());
+                    machineProgramDir = Paths.get(machineOpt.get().getProgramPath(), orderName, partName);
+                }
+            }
+
             for (ProductionFileInfo file : item.getFiles()) {
                 // Usuwanie pliku z katalogu Uploads
                 if (file.getFilePath() != null) {
-                    try {
-                        Path filePath = Paths.get(file.getFilePath());
-                        if (Files.exists(filePath)) {
-                            Files.delete(filePath);
-                            logger.info("Deleted file from disk: {}", filePath);
-                        }
-                    } catch (IOException e) {
-                        logger.error("Failed to delete file from disk: {}. Error: {}", file.getFilePath(), e.getMessage());
-                    }
+                    filesToDelete.add(Paths.get(file.getFilePath()));
                 }
 
                 // Usuwanie pliku z katalogu maszyny
-                if (queueType != null && !"ncQueue".equals(queueType) && !"completed".equals(queueType)) {
-                    Optional<Machine> machineOpt = machineRepository.findById(Integer.parseInt(queueType));
-                    if (machineOpt.isPresent()) {
-                        Machine machine = machineOpt.get();
-                        String programPath = machine.getProgramPath();
-                        String orderName = fileSystemService.sanitizeName(item.getOrderName(), "NoOrderName_" + item.getId());
-                        String partName = fileSystemService.sanitizeName(item.getPartName(), "NoPartName_" + item.getId());
-                        String fileName = fileSystemService.sanitizeName(file.getFileName(), "UNKNOWN");
-
-                        Path machineFilePath = Paths.get(programPath, orderName, partName, fileName);
-                        try {
-                            if (Files.exists(machineFilePath)) {
-                                Files.delete(machineFilePath);
-                                logger.info("Deleted file from machine disk: {}", machineFilePath);
-                            }
-                        } catch (IOException e) {
-                            logger.error("Failed to delete file from machine disk: {}. Error: {}", machineFilePath, e.getMessage());
-                        }
-                    }
+                if (machineProgramDir != null) {
+                    filesToDelete.add(machineProgramDir.resolve(fileSystemService.sanitizeName(file.getFileName(), "UNKNOWN")));
                 }
             }
 
-            if (item.getFiles() != null && !item.getFiles().isEmpty()) {
-                try {
-                    Path aFilePath = Paths.get(item.getFiles().get(0).getFilePath());
-                    Path partNameDir = aFilePath.getParent();
-                    Path orderNameDir = partNameDir.getParent();
-                    Path itemIdDir = orderNameDir.getParent();
-
-                    Files.deleteIfExists(partNameDir);
-                    Files.deleteIfExists(orderNameDir);
-                    Files.deleteIfExists(itemIdDir);
-
-                    logger.info("Successfully cleaned up empty directories for item ID: {}", id);
-                } catch (IOException e) {
-                    logger.error("Could not clean up empty directories for item ID: {}. It might require manual cleanup. Error: {}", id, e.getMessage());
-                }
+            if (item.getFiles() != null && !item.getFiles().isEmpty() && item.getFiles().get(0).getFilePath() != null) {
+                Path partNameDir = Paths.get(item.getFiles().get(0).getFilePath()).getParent();
+                Path orderNameDir = partNameDir.getParent();
+                Path itemIdDir = orderNameDir.getParent();
+                directoriesToRemove.addAll(List.of(partNameDir, orderNameDir, itemIdDir));
             }
+            machineSyncOutbox.enqueueRemoval(queueType, id, filesToDelete, directoriesToRemove);
 
             // Delete material reservation if exists (must be done before deleting the program)
             materialReservationRepository.findByProductionQueueItemId(id).ifPresent(reservation -> {
                 materialReservationRepository.delete(reservation);
+                if (reservation.getMaterial() != null) {
+                    mrpDirtyTracker.markDirty(ResourceType.MATERIAL, reservation.getMaterial().getId());
+                }
                 logger.info("Deleted material reservation for ProductionQueueItem ID: {}", id);
             });
 
             productionQueueItemRepository.deleteById(id);
             logger.info("Deleted ProductionQueueItem with ID: {}", id);
 
-            fileWatcherService.checkQueueFile(queueType);
-            machineQueueFileGeneratorService.generateQueueFileForMachine(queueType);
+            machineSyncOutbox.enqueueQueueRegeneration(queueType);
         } else {
             throw new RuntimeException("ProductionQueueItem with ID: " + id + " not found");
         }
     }
 
-    @Transactional
+    /**
+     * Ingest operator edits of the machine's queue file, then queue a re-sync of all its program
+     * directories and the queue file. Runs without a transaction so a slow share never holds a
+     * connection; the share work itself is done by {@link MachineSyncOutboxWorker}.
+     */
     public void syncWithMachine(String queueType) throws IOException {
         logger.info("Starting synchronization with machine for queueType: {}", queueType);
 
@@ -465,27 +454,11 @@ public class ProductionQueueItemService {
             throw new IllegalArgumentException("Machine not found for queueType: " + queueType);
         }
 
-        Machine machine = machineOpt.get();
+        // Before the response is built, so the returned queue shows the operator's [OK]/[NOK] edits
         fileWatcherService.checkQueueFile(queueType);
 
-        // IMPORTANT: Use findByQueueTypeWithFilesAndMaterial() to eagerly load files
-        List<ProductionQueueItem> programs = productionQueueItemRepository.findByQueueTypeWithFilesAndMaterial(queueType);
-        for (ProductionQueueItem program : programs) {
-            String orderName = fileSystemService.sanitizeName(program.getOrderName(), "NoOrderName_" + program.getId());
-            String partName = fileSystemService.sanitizeName(program.getPartName(), "NoPartName_" + program.getId());
-            try {
-                fileSystemService.synchronizeFiles(machine.getProgramPath(), orderName, partName, program.getFiles());
-                logger.debug("Synchronized attachments for program ID: {}, orderName: {}, partName: {}",
-                        program.getId(), orderName, partName);
-            } catch (IOException e) {
-                logger.error("Failed to synchronize attachments for program ID: {}, machine: {}: {}",
-                        program.getId(), machine.getMachineName(), e.getMessage());
-                throw new FileOperationException("Failed to synchronize attachments for program ID: " + program.getId(), e);
-            }
-        }
-
-        machineQueueFileGeneratorService.generateQueueFileForMachine(queueType);
-        logger.info("Completed synchronization with machine for queueType: {}", queueType);
+        machineSyncOutbox.enqueueMachineSync(queueType);
+        logger.info("Queued synchronization with machine for queueType: {}", queueType);
     }
 
     @Transactional
@@ -561,6 +534,7 @@ public class ProductionQueueItemService {
 
                     materialRepository.save(material);
                     materialReservationRepository.save(reservation);
+                    mrpDirtyTracker.markDirty(ResourceType.MATERIAL, material.getId());
                 }
             }
             // CASE 2: Program unmarked as completed (true → false)
@@ -574,6 +548,9 @@ public class ProductionQueueItemService {
                     reservation.setStatus(ReservationStatus.RESERVED);
                     // consumedAt timestamp remains for audit
                     materialReservationRepository.save(reservation);
+                    if (reservation.getMaterial() != null) {
+                        mrpDirtyTracker.markDirty(ResourceType.MATERIAL, reservation.getMaterial().getId());
+                    }
                 }
             }
 
@@ -596,13 +573,17 @@ public class ProductionQueueItemService {
             }
 
             ProductionQueueItem savedItem = productionQueueItemRepository.save(item);
-            machineQueueFileGeneratorService.generateQueueFileForMachine(savedItem.getQueueType());
+            machineSyncOutbox.enqueueQueueRegeneration(savedItem.getQueueType());
             return savedItem;
         } else {
             throw new RuntimeException("Queue item with ID: " + id + " not found");
         }
     }
 
+    /**
+     * Save the order of a queue sent as a full list of positions.
+     * Only programs that actually moved get a new rank (see {@link QueueRankService#applySequence}).
+     */
     @Transactional
     public void updateQueueOrder(String queueType, List<OrderItem> items) throws IOException {
         validateQueueType(queueType);
@@ -611,42 +592,86 @@ public class ProductionQueueItemService {
                 .collect(Collectors.toList());
 
         // IMPORTANT: Load items with files to ensure proper synchronization
-        List<ProductionQueueItem> existingItems = new ArrayList<>();
-        for (Integer id : itemIds) {
-            productionQueueItemRepository.findByIdWithFiles(id).ifPresent(existingItems::add);
-        }
-
-        Map<Integer, ProductionQueueItem> itemMap = existingItems.stream()
+        Map<Integer, ProductionQueueItem> itemMap = productionQueueItemRepository.findAllByIdWithFiles(itemIds).stream()
                 .collect(Collectors.toMap(ProductionQueueItem::getId, item -> item));
 
-        List<ProductionQueueItem> toUpdate = new ArrayList<>();
+        List<ProductionQueueItem> sequence = new ArrayList<>();
         Map<Integer, String> oldQueueTypes = new HashMap<>();
 
-        for (OrderItem orderItem : items) {
+        List<OrderItem> sortedItems = new ArrayList<>(items);
+        sortedItems.sort(Comparator.comparing(OrderItem::getOrder, Comparator.nullsLast(Comparator.naturalOrder())));
+        for (OrderItem orderItem : sortedItems) {
             ProductionQueueItem item = itemMap.get(orderItem.getId());
             if (item == null) {
                 throw new IllegalArgumentException("Item not found: " + orderItem.getId());
             }
             oldQueueTypes.put(item.getId(), item.getQueueType());
-            item.setOrder(orderItem.getOrder());
-            item.setQueueType(queueType);
-            toUpdate.add(item);
+            sequence.add(item);
+        }
+
+        int changed = queueRankService.applySequence(queueType, sequence);
+        logger.info("Updated order of queueType: {} - {} of {} programs changed position", queueType, changed, sequence.size());
+
+        syncMovedItemsAndQueues(queueType, sequence, oldQueueTypes);
+    }
+
+    /**
+     * Apply individual moves (drag-and-drop); each moved program is placed after afterId
+     * (null = first) and is the only row updated.
+     *
+     * @return new positions of the moved programs
+     */
+    @Transactional
+    public List<OrderItem> reorderQueue(String queueType, List<QueueMove> moves) throws IOException {
+        validateQueueType(queueType);
+        if (moves == null || moves.isEmpty()) {
+            return Collections.emptyList();
         }
+        Set<Integer> itemIds = moves.stream()
+                .map(QueueMove::getId)
+                .collect(Collectors.toSet());
+        Map<Integer, ProductionQueueItem> itemMap = productionQueueItemRepository.findAllByIdWithFiles(itemIds).stream()
+                .collect(Collectors.toMap(ProductionQueueItem::getId, item -> item));
 
-        productionQueueItemRepository.saveAll(toUpdate);
+        List<ProductionQueueItem> moved = new ArrayList<>();
+        Map<Integer, String> oldQueueTypes = new HashMap<>();
+        for (QueueMove move : moves) {
+            ProductionQueueItem item = itemMap.get(move.getId());
+            if (item == null) {
+                throw new IllegalArgumentException("Item not found: " + move.getId());
+            }
+            oldQueueTypes.putIfAbsent(item.getId(), item.getQueueType());
+            queueRankService.placeAfter(item, queueType, move.getAfterId());
+            if (!moved.contains(item)) {
+                moved.add(item);
+            }
+        }
+
+        syncMovedItemsAndQueues(queueType, moved, oldQueueTypes);
 
+        return moved.stream()
+                .map(item -> new OrderItem(item.getId(), item.getOrder()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Copy attachments of programs that changed queue and regenerate the affected queue files
+     */
+    private void syncMovedItemsAndQueues(String queueType, List<ProductionQueueItem> items, Map<Integer, String> oldQueueTypes) throws IOException {
         Set<String> queueTypesToUpdate = new HashSet<>();
         queueTypesToUpdate.add(queueType);
         queueTypesToUpdate.addAll(oldQueueTypes.values());
 
-        for (ProductionQueueItem item : toUpdate) {
-            syncAttachmentsToMachinePath(item);
+        // The machine directory depends only on the queue, not on the position in it
+        for (ProductionQueueItem item : items) {
+            if (!queueType.equals(oldQueueTypes.get(item.getId()))) {
+                machineSyncOutbox.enqueueProgramSync(item);
+            }
         }
 
         for (String qt : queueTypesToUpdate) {
             logger.info("Synchronizing queue for queueType: {}", qt);
-            fileWatcherService.checkQueueFile(qt);
-            machineQueueFileGeneratorService.generateQueueFileForMachine(qt);
+            machineSyncOutbox.enqueueQueueRegeneration(qt);
         }
     }
 
@@ -657,6 +682,7 @@ public class ProductionQueueItemService {
         List<ProductionQueueItem> items = productionQueueItemRepository.findByQueueType(queueType, Pageable.unpaged()).getContent();
         List<ProductionQueueItem> itemsToMove = items.stream()
                 .filter(ProductionQueueItem::isCompleted)
+                .sorted(Comparator.comparing(ProductionQueueItem::getOrder, Comparator.nullsLast(Comparator.naturalOrder())))
                 .collect(Collectors.toList());
 
         if (itemsToMove.isEmpty()) {
@@ -664,27 +690,13 @@ public class ProductionQueueItemService {
             return Collections.emptyList();
         }
 
-        List<ProductionQueueItem> existingCompletedQueue = productionQueueItemRepository
-                .findByQueueType("completed", Pageable.unpaged()).getContent();
-
-        List<ProductionQueueItem> itemsToSave = new ArrayList<>();
-
-        int shiftAmount = itemsToMove.size();
-        for (ProductionQueueItem existingItem : existingCompletedQueue) {
-            existingItem.setOrder(existingItem.getOrder() + shiftAmount);
-            itemsToSave.add(existingItem);
-        }
-
-        int newOrder = 0;
+        // Moved programs get ranks below the current head of "completed" - existing rows stay untouched
+        queueRankService.placeAtStart("completed", itemsToMove);
         for (ProductionQueueItem item : itemsToMove) {
-            String oldQueueType = item.getQueueType();
-            item.setQueueType("completed");
-            item.setOrder(newOrder++);
-            itemsToSave.add(item);
-            logger.info("Moving program ID: {} from queueType: {} to completed with new order: {}", item.getId(), oldQueueType, item.getOrder());
+            logger.info("Moving program ID: {} from queueType: {} to completed with new order: {}", item.getId(), queueType, item.getOrder());
         }
 
-        productionQueueItemRepository.saveAll(itemsToSave);
+        productionQueueItemRepository.saveAll(itemsToMove);
 
         Set<String> queueTypesToUpdate = new HashSet<>();
         queueTypesToUpdate.add(queueType);
@@ -692,8 +704,7 @@ public class ProductionQueueItemService {
 
         for (String qt : queueTypesToUpdate) {
             logger.info("Synchronizing queue for queueType: {}", qt);
-            fileWatcherService.checkQueueFile(qt);
-            machineQueueFileGeneratorService.generateQueueFileForMachine(qt);
+            machineSyncOutbox.enqueueQueueRegeneration(qt);
         }
 
         return itemsToMove;
@@ -735,30 +746,6 @@ public class ProductionQueueItemService {
         }
     }
 
-    private void syncAttachmentsToMachinePath(ProductionQueueItem item) throws IOException {
-        try {
-            String queueType = item.getQueueType();
-            if (queueType == null || "ncQueue".equals(queueType) || "completed".equals(queueType)) {
-                return;
-            }
-
-            Optional<Machine> machineOpt = machineRepository.findById(Integer.parseInt(queueType));
-            if (machineOpt.isEmpty()) {
-                throw new FileOperationException("Machine with ID: " + queueType + " not found");
-            }
-
-            Machine machine = machineOpt.get();
-            String programPath = machine.getProgramPath();
-
-            String orderName = fileSystemService.sanitizeName(item.getOrderName(), "NoOrderName_" + item.getId());
-            String partName = fileSystemService.sanitizeName(item.getPartName(), "NoPartName_" + item.getId());
-
-            fileSystemService.synchronizeFiles(programPath, orderName, partName, item.getFiles());
-        } catch (IOException e) {
-            throw new FileOperationException("Failed to synchronize attachments with machine directory: " + e.getMessage(), e);
-        }
-    }
-
     private static class FileOperationException extends RuntimeException {
         public FileOperationException(String message) {
             super(message);
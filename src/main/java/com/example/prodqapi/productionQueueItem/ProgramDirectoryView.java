@@ -0,0 +1,14 @@
+package com.example.prodqapi.productionQueueItem;
+
+/**
+ * Just the columns that determine a program's directory on the machine share
+ */
+public interface ProgramDirectoryView {
+    Integer getId();
+
+    String getQueueType();
+
+    String getOrderName();
+
+    String getPartName();
+}
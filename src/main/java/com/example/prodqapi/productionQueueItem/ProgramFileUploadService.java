@@ -0,0 +1,114 @@
+package com.example.prodqapi.productionQueueItem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Stores uploaded program files (MPF, PDF, ...) in the item directory.
+ * <p>
+ * The multipart part is streamed through a fixed buffer into a temp file next to the
+ * target while size and SHA-256 are computed, then moved into place atomically - the
+ * content is never held on the heap. Limits (production-files.upload.*) apply per file
+ * and per request, on top of the global spring.servlet.multipart limits.
+ */
+@Service
+public class ProgramFileUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProgramFileUploadService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long maxFileSize;
+    private final long maxRequestSize;
+
+    /**
+     * A file written to disk with its size and content digest
+     */
+    public record StoredFile(Path path, long size, String sha256) {
+    }
+
+    public ProgramFileUploadService(
+            @Value("${production-files.upload.max-file-size:10MB}") DataSize maxFileSize,
+            @Value("${production-files.upload.max-request-size:50MB}") DataSize maxRequestSize) {
+        this.maxFileSize = maxFileSize.toBytes();
+        this.maxRequestSize = maxRequestSize.toBytes();
+    }
+
+    /**
+     * Reject the request before anything is written if a file or the total is over the limit
+     */
+    public void validate(List<MultipartFile> files) {
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (MultipartFile file : files) {
+            if (file.getSize() > maxFileSize) {
+                logger.warn("Upload of {} rejected: {} bytes exceeds the limit of {} bytes",
+                        file.getOriginalFilename(), file.getSize(), maxFileSize);
+                throw new MaxUploadSizeExceededException(maxFileSize);
+            }
+            total += file.getSize();
+        }
+        if (total > maxRequestSize) {
+            logger.warn("Upload rejected: {} bytes in {} files exceeds the request limit of {} bytes",
+                    total, files.size(), maxRequestSize);
+            throw new MaxUploadSizeExceededException(maxRequestSize);
+        }
+    }
+
+    /**
+     * Stream a multipart file to directory/fileName, replacing an existing file
+     */
+    public StoredFile store(MultipartFile file, Path directory, String fileName) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(fileName);
+        Path tempFile = Files.createTempFile(directory, ".upload_", ".part");
+
+        try {
+            MessageDigest digest = FileSystemService.sha256();
+            long size = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest);
+                 OutputStream out = Files.newOutputStream(tempFile, StandardOpenOption.TRUNCATE_EXISTING)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                    // The declared part size can't be trusted for every client
+                    if (size > maxFileSize) {
+                        throw new MaxUploadSizeExceededException(maxFileSize);
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+
+            moveIntoPlace(tempFile, target);
+            logger.debug("Stored upload {} ({} bytes)", target, size);
+            return new StoredFile(target, size, HexFormat.of().formatHex(digest.digest()));
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
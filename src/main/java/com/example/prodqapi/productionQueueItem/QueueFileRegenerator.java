@@ -0,0 +1,89 @@
+package com.example.prodqapi.productionQueueItem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders and writes machine queue files.
+ * <p>
+ * Changes to a machine queue don't call this directly: they enqueue a QUEUE_FILE intent in the
+ * {@link MachineSyncOutbox}. {@link MachineSyncOutboxWorker} does the coalescing - duplicate intents
+ * of a batch run once, after the program files - so a bulk edit of dozens of programs writes the
+ * file once, off the request thread and after commit. Renders of the same machine never overlap.
+ * <p>
+ * Operator edits made since our last write are ingested before the file is overwritten.
+ */
+@Component
+public class QueueFileRegenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueueFileRegenerator.class);
+
+    private final MachineRepository machineRepository;
+    private final MachineQueueFileGeneratorService machineQueueFileGeneratorService;
+    private final QueueFileStatusIngester queueFileStatusIngester;
+    private final TransactionTemplate transactionTemplate;
+
+    // One render at a time per machine queue
+    private final Map<String, Object> renderLocks = new ConcurrentHashMap<>();
+
+    public QueueFileRegenerator(
+            MachineRepository machineRepository,
+            MachineQueueFileGeneratorService machineQueueFileGeneratorService,
+            QueueFileStatusIngester queueFileStatusIngester,
+            TransactionTemplate transactionTemplate) {
+        this.machineRepository = machineRepository;
+        this.machineQueueFileGeneratorService = machineQueueFileGeneratorService;
+        this.queueFileStatusIngester = queueFileStatusIngester;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Ingest pending operator edits and rewrite the queue file on the calling thread; failures are thrown.
+     * Waits for a render of the same machine in progress.
+     */
+    void regenerateNow(String queueType) {
+        synchronized (renderLocks.computeIfAbsent(queueType, key -> new Object())) {
+            render(queueType);
+        }
+        logger.debug("Regenerated queue file for queueType: {}", queueType);
+    }
+
+    private void render(String queueType) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<Machine> machine = machineRepository.findById(Integer.parseInt(queueType));
+            if (machine.isEmpty()) {
+                return;
+            }
+            try {
+                Path filePath = machineQueueFileGeneratorService.resolveQueueFilePath(machine.get());
+                if (machineQueueFileGeneratorService.isModifiedSinceLastWrite(queueType, filePath)) {
+                    queueFileStatusIngester.ingest(filePath);
+                }
+                machineQueueFileGeneratorService.generateQueueFileForMachine(queueType);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    static boolean isMachineQueue(String queueType) {
+        if (queueType == null || "ncQueue".equals(queueType) || "completed".equals(queueType)) {
+            return false;
+        }
+        try {
+            Integer.parseInt(queueType);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
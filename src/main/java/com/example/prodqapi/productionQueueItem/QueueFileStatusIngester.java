@@ -0,0 +1,189 @@
+package com.example.prodqapi.productionQueueItem;
+
+import com.example.prodqapi.FileProductionItem.ProductionFileInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies the [OK]/[NOK] statuses operators edit in a machine queue file to the database.
+ * <p>
+ * The file is first reduced to programId -> (file name -> status), then all referenced
+ * programs are loaded with their files in one query and the changes are flushed once,
+ * so the statement count doesn't grow with the number of lines. The file is read through the
+ * {@link MountIoGateway}, so a hung share can't hold the caller (and its transaction) indefinitely.
+ */
+@Service
+public class QueueFileStatusIngester {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueueFileStatusIngester.class);
+
+    private static final Pattern ID_PATTERN = Pattern.compile("^\\s*ID Programu\\s*:\\s*(\\d+)");
+    private static final Pattern FILE_PATTERN = Pattern.compile("^\\d+\\.\\s+(.+?)\\s*\\|\\s*\\[(OK|NOK)]");
+
+    private final ProductionQueueItemRepository productionQueueItemRepository;
+    private final MountIoGateway mountIoGateway;
+    private final TransactionTemplate transactionTemplate;
+    private final long transferTimeoutMs;
+
+    public QueueFileStatusIngester(
+            ProductionQueueItemRepository productionQueueItemRepository,
+            MountIoGateway mountIoGateway,
+            TransactionTemplate transactionTemplate,
+            @Value("${mount-io.transfer-timeout-ms:120000}") long transferTimeoutMs) {
+        this.productionQueueItemRepository = productionQueueItemRepository;
+        this.mountIoGateway = mountIoGateway;
+        this.transactionTemplate = transactionTemplate;
+        this.transferTimeoutMs = transferTimeoutMs;
+    }
+
+    /**
+     * File status line of a queue file: "1. name.MPF | [OK]" below an "ID Programu: 42" header
+     */
+    record QueueFileStatus(int programId, String fileName, boolean completed) {
+    }
+
+    /**
+     * Read a queue file and apply its statuses. Returns the number of files whose status changed.
+     * The file is read before a transaction is started (a caller's transaction is joined).
+     */
+    public int ingest(Path filePath) throws IOException {
+        logger.debug("Updating attachment statuses based on file: {}", filePath);
+        List<String> lines = mountIoGateway.call(filePath, "readQueueFile", () -> Files.readAllLines(filePath), transferTimeoutMs);
+        Map<Integer, Map<String, Boolean>> statuses = reduce(parseQueueFile(lines));
+        Integer changed = transactionTemplate.execute(status -> applyStatuses(statuses));
+        return changed != null ? changed : 0;
+    }
+
+    /**
+     * Parse the [OK]/[NOK] statuses operators edited in a machine queue file
+     */
+    static List<QueueFileStatus> parseQueueFile(List<String> lines) {
+        List<QueueFileStatus> statuses = new ArrayList<>();
+        Integer currentProgramId = null;
+
+        for (String line : lines) {
+            if (line.trim().isEmpty()) continue;
+
+            Matcher idMatcher = ID_PATTERN.matcher(line);
+            if (idMatcher.find()) {
+                currentProgramId = Integer.parseInt(idMatcher.group(1));
+                continue;
+            }
+
+            if (line.trim().equals("---")) {
+                currentProgramId = null;
+                continue;
+            }
+
+            if (currentProgramId == null) continue;
+
+            Matcher fileMatcher = FILE_PATTERN.matcher(line);
+            if (fileMatcher.matches()) {
+                String fileName = fileMatcher.group(1).trim();
+                boolean isCompleted = "OK".equalsIgnoreCase(fileMatcher.group(2));
+                statuses.add(new QueueFileStatus(currentProgramId, fileName, isCompleted));
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * programId -> (lower-cased file name -> completed). A later line for the same file wins.
+     */
+    static Map<Integer, Map<String, Boolean>> reduce(List<QueueFileStatus> statuses) {
+        Map<Integer, Map<String, Boolean>> byProgram = new LinkedHashMap<>();
+        for (QueueFileStatus status : statuses) {
+            byProgram.computeIfAbsent(status.programId(), id -> new LinkedHashMap<>())
+                    .put(status.fileName().toLowerCase(Locale.ROOT), status.completed());
+        }
+        return byProgram;
+    }
+
+    private int applyStatuses(Map<Integer, Map<String, Boolean>> statusesByProgram) {
+        if (statusesByProgram.isEmpty()) {
+            return 0;
+        }
+
+        Map<Integer, ProductionQueueItem> programs = new HashMap<>();
+        for (ProductionQueueItem program : productionQueueItemRepository.findAllByIdWithFiles(statusesByProgram.keySet())) {
+            programs.put(program.getId(), program);
+        }
+
+        int changedFiles = 0;
+        for (Map.Entry<Integer, Map<String, Boolean>> entry : statusesByProgram.entrySet()) {
+            ProductionQueueItem program = programs.get(entry.getKey());
+            if (program == null) {
+                logger.warn("Program with ID {} not found in database", entry.getKey());
+                continue;
+            }
+            int changed = applyProgramStatuses(program, entry.getValue());
+            if (changed > 0) {
+                updateOperatorReport(program);
+                changedFiles += changed;
+            }
+        }
+
+        if (changedFiles > 0) {
+            productionQueueItemRepository.flush();
+            logger.info("Updated {} file statuses from queue file", changedFiles);
+        }
+        return changedFiles;
+    }
+
+    private int applyProgramStatuses(ProductionQueueItem program, Map<String, Boolean> statuses) {
+        Map<String, ProductionFileInfo> filesByName = new HashMap<>();
+        for (ProductionFileInfo file : program.getFiles()) {
+            filesByName.putIfAbsent(file.getFileName().toLowerCase(Locale.ROOT), file);
+        }
+
+        int changed = 0;
+        for (Map.Entry<String, Boolean> status : statuses.entrySet()) {
+            ProductionFileInfo fileInfo = filesByName.get(status.getKey());
+            if (fileInfo == null) {
+                logger.warn("File {} for program {} not found in database", status.getKey(), program.getId());
+                continue;
+            }
+            if (fileInfo.isCompleted() != status.getValue()) {
+                fileInfo.setCompleted(status.getValue());
+                changed++;
+                logger.info("Updated status of file {} for program {} to {}",
+                        fileInfo.getFileName(), program.getId(), status.getValue() ? "OK" : "NOK");
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * All MPF files OK sets the operator report flag (approved manually in the UI before
+     * material is consumed); un-marking a file clears it again
+     */
+    private void updateOperatorReport(ProductionQueueItem program) {
+        boolean allMpfCompleted = program.getFiles().stream()
+                .filter(f -> f.getFileName().toLowerCase().endsWith(".mpf"))
+                .allMatch(ProductionFileInfo::isCompleted);
+
+        if (allMpfCompleted && !program.isCompleted()) {
+            if (!Boolean.TRUE.equals(program.getOperatorReportedComplete())) {
+                program.setOperatorReportedComplete(true);
+                program.setOperatorReportedAt(LocalDateTime.now());
+                logger.info("Operator reported completion for program {} at {}",
+                        program.getId(), program.getOperatorReportedAt());
+            }
+        } else if (!allMpfCompleted && Boolean.TRUE.equals(program.getOperatorReportedComplete())) {
+            program.setOperatorReportedComplete(false);
+            program.setOperatorReportedAt(null);
+            logger.info("Operator cleared completion report for program {}", program.getId());
+        }
+    }
+}
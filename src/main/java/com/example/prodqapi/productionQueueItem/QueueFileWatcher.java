@@ -0,0 +1,316 @@
+package com.example.prodqapi.productionQueueItem;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Watches machine queue files (.txt) for operator edits, so [OK]/[NOK] changes are
+ * ingested within seconds instead of waiting for {@link QueueSyncService#syncAllQueues}.
+ * <p>
+ * Editors save in bursts (truncate, write, rename), so changes are debounced per file
+ * and only the changed file is parsed. Directories on filesystems that don't deliver
+ * change events (network shares, FUSE mounts) are polled by modification time instead.
+ * <p>
+ * Modes (queue-sync.watch.mode): AUTO - watch where supported, poll elsewhere;
+ * WATCH - always use the WatchService; POLL - always poll; OFF - disabled.
+ * <p>
+ * Probes of the share run through the {@link MountIoGateway}; while it doesn't answer, its
+ * directories are polled and their files count as unchanged.
+ */
+@Component
+public class QueueFileWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueueFileWatcher.class);
+
+    enum Mode { AUTO, WATCH, POLL, OFF }
+
+    // File store types known not to deliver inotify events for changes made by other hosts
+    private static final Set<String> NON_NOTIFYING_FILE_STORES = Set.of(
+            "cifs", "smb", "smbfs", "smb2", "smb3", "nfs", "nfs4", "9p", "vboxsf", "davfs", "fuse", "fuse.sshfs");
+
+    private final MachineRepository machineRepository;
+    private final MachineQueueFileGeneratorService machineQueueFileGeneratorService;
+    private final QueueSyncService queueSyncService;
+    private final MountIoGateway mountIoGateway;
+
+    private final Mode mode;
+    private final long debounceMs;
+    private final long pollIntervalMs;
+    private final long refreshIntervalMs;
+
+    private final Map<Path, WatchedFile> watchedFiles = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> watchKeys = new ConcurrentHashMap<>();
+    private final Map<Path, ScheduledFuture<?>> pendingIngests = new ConcurrentHashMap<>();
+
+    private WatchService watchService;
+    private ScheduledExecutorService scheduler;
+    private Thread watchThread;
+
+    /**
+     * A queue file and how changes to it are detected
+     */
+    private static final class WatchedFile {
+        final String queueType;
+        final Path path;
+        final boolean polled;
+        volatile FileTime lastModified;
+
+        WatchedFile(String queueType, Path path, boolean polled, FileTime lastModified) {
+            this.queueType = queueType;
+            this.path = path;
+            this.polled = polled;
+            this.lastModified = lastModified;
+        }
+    }
+
+    public QueueFileWatcher(
+            MachineRepository machineRepository,
+            MachineQueueFileGeneratorService machineQueueFileGeneratorService,
+            QueueSyncService queueSyncService,
+            MountIoGateway mountIoGateway,
+            @Value("${queue-sync.watch.mode:AUTO}") Mode mode,
+            @Value("${queue-sync.watch.debounce-ms:1500}") long debounceMs,
+            @Value("${queue-sync.watch.poll-interval-ms:10000}") long pollIntervalMs,
+            @Value("${queue-sync.watch.refresh-interval-ms:60000}") long refreshIntervalMs) {
+        this.machineRepository = machineRepository;
+        this.machineQueueFileGeneratorService = machineQueueFileGeneratorService;
+        this.queueSyncService = queueSyncService;
+        this.mountIoGateway = mountIoGateway;
+        this.mode = mode;
+        this.debounceMs = debounceMs;
+        this.pollIntervalMs = pollIntervalMs;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (mode == Mode.OFF) {
+            logger.info("Queue file watcher disabled");
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "queue-file-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (mode != Mode.POLL) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+                watchThread = new Thread(this::watchLoop, "queue-file-watcher");
+                watchThread.setDaemon(true);
+                watchThread.start();
+            } catch (IOException | UnsupportedOperationException e) {
+                logger.warn("WatchService not available, polling queue files instead: {}", e.getMessage());
+                watchService = null;
+            }
+        }
+
+        // Machines (and their queue paths) change rarely - re-read them periodically
+        scheduler.scheduleWithFixedDelay(this::refreshSafely, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::pollSafely, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Error closing queue file watch service: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sync the watched files and directories with the current machines
+     */
+    void refreshRegistrations() {
+        Map<Path, WatchedFile> current = new HashMap<>();
+        for (Machine machine : machineRepository.findAll()) {
+            if (machine.getQueueFilePath() == null) {
+                continue;
+            }
+            Path file = machineQueueFileGeneratorService.resolveQueueFilePath(machine).toAbsolutePath().normalize();
+            Path dir = file.getParent();
+            boolean polled = !register(dir);
+
+            WatchedFile existing = watchedFiles.get(file);
+            if (existing != null && existing.polled == polled) {
+                current.put(file, existing);
+            } else {
+                current.put(file, new WatchedFile(String.valueOf(machine.getId()), file, polled, lastModified(file)));
+            }
+        }
+
+        watchedFiles.keySet().retainAll(current.keySet());
+        watchedFiles.putAll(current);
+
+        // Stop watching directories no machine uses anymore
+        Set<Path> usedDirs = new HashSet<>();
+        current.keySet().forEach(file -> usedDirs.add(file.getParent()));
+        watchKeys.entrySet().removeIf(entry -> {
+            if (!usedDirs.contains(entry.getKey())) {
+                entry.getValue().cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Register a directory with the WatchService. Returns false if it has to be polled.
+     */
+    private boolean register(Path dir) {
+        if (watchService == null || !isDirectory(dir)) {
+            return false;
+        }
+        WatchKey existing = watchKeys.get(dir);
+        if (existing != null && existing.isValid()) {
+            return true;
+        }
+        if (mode == Mode.AUTO && !deliversEvents(dir)) {
+            return false;
+        }
+        try {
+            watchKeys.put(dir, dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+            logger.debug("Watching queue directory {}", dir);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.info("Cannot watch {}, polling instead: {}", dir, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean deliversEvents(Path dir) {
+        try {
+            String type = mountIoGateway.call(dir, "getFileStore", () -> Files.getFileStore(dir).type()).toLowerCase(Locale.ROOT);
+            if (NON_NOTIFYING_FILE_STORES.contains(type) || type.startsWith("fuse.")) {
+                logger.info("Queue directory {} is on a {} filesystem, polling instead of watching", dir, type);
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void watchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Events were lost - re-check every queue file in this directory
+                    watchedFiles.values().stream()
+                            .filter(file -> file.path.getParent().equals(dir))
+                            .forEach(file -> scheduleIngest(file.path));
+                    continue;
+                }
+                Path changed = dir.resolve((Path) event.context());
+                if (watchedFiles.containsKey(changed)) {
+                    scheduleIngest(changed);
+                }
+            }
+
+            if (!key.reset()) {
+                watchKeys.remove(dir, key);
+            }
+        }
+    }
+
+    private void pollSafely() {
+        try {
+            for (WatchedFile file : watchedFiles.values()) {
+                if (file.polled && !Objects.equals(lastModified(file.path), file.lastModified)) {
+                    scheduleIngest(file.path);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Error polling queue files: {}", e.getMessage());
+        }
+    }
+
+    private void refreshSafely() {
+        try {
+            refreshRegistrations();
+        } catch (Exception e) {
+            logger.warn("Error refreshing queue file watches: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * (Re)start the debounce timer of a file; the file is parsed once the burst of events is over
+     */
+    private void scheduleIngest(Path file) {
+        pendingIngests.compute(file, (path, pending) -> {
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            return scheduler.schedule(() -> ingest(path), debounceMs, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private void ingest(Path path) {
+        pendingIngests.remove(path);
+        WatchedFile file = watchedFiles.get(path);
+        if (file == null) {
+            return;
+        }
+        FileTime modified = lastModified(path);
+        if (modified == null || modified.equals(file.lastModified)) {
+            return;
+        }
+        try {
+            // Our own writes only move the remembered modification time, so the next poll doesn't pick them up again
+            if (queueSyncService.processQueueFileChange(file.queueType, path)) {
+                logger.debug("Ingested queue file change {}", path);
+            }
+            file.lastModified = modified;
+        } catch (Exception e) {
+            logger.error("Error processing queue file {}: {}", path, e.getMessage(), e);
+        }
+    }
+
+    private boolean isDirectory(Path dir) {
+        try {
+            return mountIoGateway.call(dir, "isDirectory", () -> Files.isDirectory(dir));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private FileTime lastModified(Path file) {
+        try {
+            return mountIoGateway.call(file, "getLastModifiedTime",
+                    () -> Files.exists(file) ? Files.getLastModifiedTime(file) : null);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
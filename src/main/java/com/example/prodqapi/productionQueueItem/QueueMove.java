@@ -0,0 +1,16 @@
+package com.example.prodqapi.productionQueueItem;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One drag-and-drop move: put program id directly after afterId (null = first in the queue)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueueMove {
+    private Integer id;
+    private Integer afterId;
+}
@@ -0,0 +1,251 @@
+package com.example.prodqapi.productionQueueItem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Sparse ranks for the position of programs in a queue (order_position).
+ * <p>
+ * Ranks are spaced {@link #GAP} apart, so moving a program only needs a free value between
+ * its new neighbours and touches that one row. Only when two neighbours have no value left
+ * between them is the queue renumbered - rarely, and once per queue for legacy dense data.
+ * Callers run inside their own transaction; changed entities are flushed by dirty checking.
+ */
+@Service
+public class QueueRankService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueueRankService.class);
+
+    static final int GAP = 1024;
+
+    // Keep ranks away from the int limits so appending/prepending never overflows
+    private static final long MIN_RANK = Integer.MIN_VALUE / 2;
+    private static final long MAX_RANK = Integer.MAX_VALUE / 2;
+
+    private final ProductionQueueItemRepository productionQueueItemRepository;
+
+    public QueueRankService(ProductionQueueItemRepository productionQueueItemRepository) {
+        this.productionQueueItemRepository = productionQueueItemRepository;
+    }
+
+    /**
+     * Rank that puts a new program at the end of the queue
+     */
+    public int rankForNewItem(String queueType) {
+        Integer maxOrder = productionQueueItemRepository.findMaxOrderByQueueType(queueType);
+        if (maxOrder == null || maxOrder < 0) {
+            return GAP;
+        }
+        if (maxOrder + (long) GAP > MAX_RANK) {
+            maxOrder = rebalance(queueType);
+        }
+        return maxOrder + GAP;
+    }
+
+    /**
+     * Move a program into the queue directly after another one (afterId null = first position).
+     * Only the moved program gets a new rank.
+     */
+    public void placeAfter(ProductionQueueItem item, String queueType, Integer afterId) {
+        Integer rank = findRankAfter(item, queueType, afterId);
+        if (rank == null) {
+            rebalance(queueType);
+            rank = findRankAfter(item, queueType, afterId);
+        }
+        item.setQueueType(queueType);
+        item.setOrder(rank);
+    }
+
+    /**
+     * Move programs to the front of the queue, keeping their order, without touching the rest
+     */
+    public void placeAtStart(String queueType, List<ProductionQueueItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Integer minOrder = productionQueueItemRepository.findMinOrderByQueueType(queueType);
+        long first;
+        if (minOrder == null) {
+            first = GAP;
+        } else {
+            first = minOrder - (long) GAP * items.size();
+            if (first < MIN_RANK) {
+                rebalance(queueType);
+                first = GAP - (long) GAP * items.size();
+            }
+        }
+        for (int i = 0; i < items.size(); i++) {
+            ProductionQueueItem item = items.get(i);
+            item.setQueueType(queueType);
+            item.setOrder(Math.toIntExact(first + (long) GAP * i));
+        }
+    }
+
+    /**
+     * Put programs into the queue in the given order.
+     * <p>
+     * The longest run of programs that is already in that queue in increasing rank order keeps
+     * its ranks; every other program gets a rank between its kept neighbours. Reordering a full
+     * queue after a drag-and-drop therefore changes just the dragged rows.
+     *
+     * @return number of programs whose rank or queue changed
+     */
+    public int applySequence(String queueType, List<ProductionQueueItem> sequence) {
+        int n = sequence.size();
+        boolean[] keep = longestIncreasingRun(queueType, sequence);
+        int changed = 0;
+
+        int start = 0;
+        while (start < n) {
+            if (keep[start]) {
+                start++;
+                continue;
+            }
+            int end = start;
+            while (end < n && !keep[end]) {
+                end++;
+            }
+            Long lower = start > 0 ? Long.valueOf(sequence.get(start - 1).getOrder()) : null;
+            Long upper = end < n ? Long.valueOf(sequence.get(end).getOrder()) : null;
+            long[] ranks = spread(lower, upper, end - start);
+            if (ranks == null) {
+                logger.info("No free ranks left in queue {}, renumbering {} programs", queueType, n);
+                return renumber(queueType, sequence);
+            }
+            for (int i = start; i < end; i++) {
+                if (assign(sequence.get(i), queueType, (int) ranks[i - start])) {
+                    changed++;
+                }
+            }
+            start = end;
+        }
+        return changed;
+    }
+
+    /**
+     * Renumber the whole queue GAP apart in its current order
+     *
+     * @return rank of the last program (0 for an empty queue)
+     */
+    public int rebalance(String queueType) {
+        List<ProductionQueueItem> items = productionQueueItemRepository.findByQueueTypeInRankOrder(queueType);
+        logger.info("Rebalancing ranks of {} programs in queue {}", items.size(), queueType);
+        renumber(queueType, items);
+        return items.isEmpty() ? 0 : items.get(items.size() - 1).getOrder();
+    }
+
+    private Integer findRankAfter(ProductionQueueItem item, String queueType, Integer afterId) {
+        Integer lower = null;
+        Integer upper;
+        if (afterId == null) {
+            upper = productionQueueItemRepository.findMinOrderByQueueTypeExcluding(queueType, item.getId());
+        } else {
+            if (afterId.equals(item.getId())) {
+                throw new IllegalArgumentException("Item cannot be placed after itself: " + afterId);
+            }
+            ProductionQueueItem after = productionQueueItemRepository.findById(afterId)
+                    .filter(candidate -> queueType.equals(candidate.getQueueType()))
+                    .orElseThrow(() -> new IllegalArgumentException("Item not found in queue " + queueType + ": " + afterId));
+            lower = after.getOrder();
+            if (lower == null) {
+                return null;
+            }
+            upper = productionQueueItemRepository.findNextOrder(queueType, lower, item.getId());
+        }
+        long[] ranks = spread(lower == null ? null : Long.valueOf(lower), upper == null ? null : Long.valueOf(upper), 1);
+        return ranks == null ? null : (int) ranks[0];
+    }
+
+    /**
+     * count ranks strictly between lower and upper (either may be open), or null if they don't fit
+     */
+    private static long[] spread(Long lower, Long upper, int count) {
+        long[] ranks = new long[count];
+        if (lower == null && upper == null) {
+            for (int i = 0; i < count; i++) {
+                ranks[i] = (long) GAP * (i + 1);
+            }
+        } else if (lower == null) {
+            for (int i = 0; i < count; i++) {
+                ranks[i] = upper - (long) GAP * (count - i);
+            }
+        } else if (upper == null) {
+            for (int i = 0; i < count; i++) {
+                ranks[i] = lower + (long) GAP * (i + 1);
+            }
+        } else {
+            long step = (upper - lower) / (count + 1);
+            if (step < 1) {
+                return null;
+            }
+            for (int i = 0; i < count; i++) {
+                ranks[i] = lower + step * (i + 1);
+            }
+        }
+        return ranks[0] < MIN_RANK || ranks[count - 1] > MAX_RANK ? null : ranks;
+    }
+
+    /**
+     * Marks the longest subsequence of programs already in the queue with strictly increasing ranks
+     */
+    private static boolean[] longestIncreasingRun(String queueType, List<ProductionQueueItem> sequence) {
+        int n = sequence.size();
+        int[] tailIndex = new int[n];
+        int[] previous = new int[n];
+        Arrays.fill(previous, -1);
+        int length = 0;
+
+        for (int i = 0; i < n; i++) {
+            ProductionQueueItem item = sequence.get(i);
+            if (item.getOrder() == null || !queueType.equals(item.getQueueType())) {
+                continue;
+            }
+            int rank = item.getOrder();
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sequence.get(tailIndex[mid]).getOrder() < rank) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tailIndex[low - 1] : -1;
+            tailIndex[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        boolean[] keep = new boolean[n];
+        for (int i = length > 0 ? tailIndex[length - 1] : -1; i >= 0; i = previous[i]) {
+            keep[i] = true;
+        }
+        return keep;
+    }
+
+    private int renumber(String queueType, List<ProductionQueueItem> items) {
+        int changed = 0;
+        for (int i = 0; i < items.size(); i++) {
+            if (assign(items.get(i), queueType, Math.toIntExact((long) GAP * (i + 1)))) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean assign(ProductionQueueItem item, String queueType, int rank) {
+        if (Objects.equals(item.getOrder(), rank) && queueType.equals(item.getQueueType())) {
+            return false;
+        }
+        item.setQueueType(queueType);
+        item.setOrder(rank);
+        return true;
+    }
+}
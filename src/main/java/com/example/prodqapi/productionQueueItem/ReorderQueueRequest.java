@@ -0,0 +1,15 @@
+package com.example.prodqapi.productionQueueItem;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReorderQueueRequest {
+    private String queueType;
+    private List<QueueMove> moves;
+}
@@ -9,15 +9,18 @@ import org.springframework.stereotype.Component;
 @Component
 public class SanitizerFactory {
 
+    // Strategie są bezpieczne wątkowo - jedna instancja (z cache wyników) dla całej aplikacji
+    private final FileNameSanitizerStrategy inframetSanitizer = InframetMpfSanitizer.shared();
+
     public FileNameSanitizerStrategy getStrategy(String clientOrMachine) {
         // W przyszłości 'clientOrMachine' może pochodzić z ustawień, bazy danych itp.
         // Na razie na sztywno wybieramy strategię dla Inframet.
         if ("inframet".equalsIgnoreCase(clientOrMachine)) {
-            return new InframetMpfSanitizer();
+            return inframetSanitizer;
         }
 
         // W przyszłości można dodać domyślną, prostszą strategię
         // return new DefaultSanitizer();
-        return new InframetMpfSanitizer(); // Na razie używamy tej samej dla wszystkich
+        return inframetSanitizer; // Na razie używamy tej samej dla wszystkich
     }
 }
\ No newline at end of file
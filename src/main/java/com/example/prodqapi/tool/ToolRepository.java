@@ -4,11 +4,24 @@ package com.example.prodqapi.tool;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ToolRepository extends JpaRepository<Tool, Integer> {
 
+    /**
+     * Load all tools with preferred supplier in one query (MRP)
+     */
+    @Query("SELECT t FROM Tool t LEFT JOIN FETCH t.preferredSupplier")
+    List<Tool> findAllForMrp();
+
+    /**
+     * Same as {@link #findAllForMrp} restricted to the given ids (incremental MRP)
+     */
+    @Query("SELECT t FROM Tool t LEFT JOIN FETCH t.preferredSupplier WHERE t.id IN :ids")
+    List<Tool> findByIdInForMrp(@Param("ids") Collection<Integer> ids);
 }
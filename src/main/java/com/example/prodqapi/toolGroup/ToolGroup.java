@@ -23,7 +23,7 @@ public class ToolGroup {
     private Integer id;
     private String name;
     private String type;
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private FileImage fileImage;
 
     @OneToMany(cascade = CascadeType.ALL)
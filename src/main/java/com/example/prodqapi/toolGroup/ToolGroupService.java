@@ -94,7 +94,7 @@ public class ToolGroupService {
 
         ToolGroup toolGroup = toolGroupRepository.findById(materialGroupID).orElseThrow(() -> new RuntimeException("Tool group not found"));
 
-        FileImage fileImage = fileImageRepository.findById(Long.valueOf(id)).orElseThrow(() -> new RuntimeException("File not found"));
+        FileImage fileImage = fileImageRepository.findById(id).orElseThrow(() -> new RuntimeException("File not found"));
 
         toolGroup.setFileImage(null);
 
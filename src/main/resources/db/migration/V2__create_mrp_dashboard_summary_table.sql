@@ -0,0 +1,43 @@
+-- ============================================
+-- Migration: Create mrp_dashboard_summary table
+-- Purpose: Precomputed MRP dashboard figures (single row, id = 1)
+-- Date: 2026-10-17
+-- ============================================
+
+-- NOTE: Currently the project uses Hibernate with ddl-auto=create-drop,
+-- so this table will be created automatically from the MrpDashboardSummary entity.
+-- This migration script is provided for:
+-- 1. Documentation purposes
+-- 2. Future migration to Flyway/Liquibase
+-- 3. Manual production deployments on MariaDB
+
+CREATE TABLE IF NOT EXISTS mrp_dashboard_summary (
+    -- Always 1
+    id INTEGER PRIMARY KEY,
+
+    -- Unresolved analyses by priority
+    critical_count BIGINT NOT NULL DEFAULT 0,
+    high_count BIGINT NOT NULL DEFAULT 0,
+    medium_count BIGINT NOT NULL DEFAULT 0,
+    low_count BIGINT NOT NULL DEFAULT 0,
+
+    -- Active analyses by resource type
+    material_count BIGINT NOT NULL DEFAULT 0,
+    tool_count BIGINT NOT NULL DEFAULT 0,
+    accessorie_count BIGINT NOT NULL DEFAULT 0,
+
+    -- Shortage values
+    total_shortage_value DECIMAL(14, 2),
+    critical_shortage_value DECIMAL(14, 2),
+
+    pending_suggestion_groups BIGINT NOT NULL DEFAULT 0,
+
+    -- JSON array of the top 5 critical/high analyses
+    top_critical_items TEXT,
+
+    last_analysis_at TIMESTAMP NULL,
+    refreshed_at TIMESTAMP NULL,
+
+    -- Incremented on every refresh, served as ETag
+    revision BIGINT NOT NULL DEFAULT 0
+);
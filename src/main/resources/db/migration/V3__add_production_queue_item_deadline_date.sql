@@ -0,0 +1,31 @@
+-- ============================================
+-- Migration: Add parsed deadline date to production queue items
+-- Purpose: Indexed LocalDate copy of the free-text deadline (MRP, sorting, date range queries)
+-- Date: 2026-10-17
+-- ============================================
+
+-- NOTE: Currently the project uses Hibernate with ddl-auto=create-drop,
+-- so the column and index are created automatically from the ProductionQueueItem entity.
+-- This migration script is provided for:
+-- 1. Documentation purposes
+-- 2. Future migration to Flyway/Liquibase
+-- 3. Manual production deployments on MariaDB
+
+ALTER TABLE _production_queue_item ADD COLUMN deadline_date DATE NULL;
+
+CREATE INDEX idx_pqi_deadline_date ON _production_queue_item (deadline_date);
+
+-- One-time backfill of existing rows for the layouts DeadlineParser decodes directly.
+-- New and updated rows are filled by the entity (@PrePersist/@PreUpdate); rows in other
+-- layouts (e.g. 5.3.2025) get their date on the next save.
+UPDATE _production_queue_item
+SET deadline_date = CASE
+        WHEN TRIM(deadline) REGEXP '^[0-9]{4}-[0-9]{2}-[0-9]{2}'
+            THEN STR_TO_DATE(LEFT(TRIM(deadline), 10), '%Y-%m-%d')
+        WHEN TRIM(deadline) REGEXP '^[0-9]{2}\\.[0-9]{2}\\.[0-9]{4}'
+            THEN STR_TO_DATE(LEFT(TRIM(deadline), 10), '%d.%m.%Y')
+        WHEN TRIM(deadline) REGEXP '^[0-9]{2}-[0-9]{2}-[0-9]{4}'
+            THEN STR_TO_DATE(LEFT(TRIM(deadline), 10), '%d-%m-%Y')
+    END
+WHERE deadline IS NOT NULL
+  AND deadline_date IS NULL;
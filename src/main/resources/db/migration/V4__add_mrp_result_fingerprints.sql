@@ -0,0 +1,20 @@
+-- ============================================
+-- Migration: Add content fingerprints to MRP results
+-- Purpose: MRP runs write only changed analyses/groups and notify only when the critical/high set changes
+-- Date: 2026-10-17
+-- ============================================
+
+-- NOTE: Currently the project uses Hibernate with ddl-auto=create-drop,
+-- so the columns are created automatically from the MRP entities.
+-- This migration script is provided for:
+-- 1. Documentation purposes
+-- 2. Future migration to Flyway/Liquibase
+-- 3. Manual production deployments on MariaDB
+
+ALTER TABLE mrp_analysis_result ADD COLUMN fingerprint VARCHAR(16) NULL;
+
+ALTER TABLE mrp_order_suggestion_group ADD COLUMN fingerprint VARCHAR(16) NULL;
+
+ALTER TABLE mrp_dashboard_summary ADD COLUMN notified_urgent_fingerprint VARCHAR(16) NULL;
+
+-- No backfill: rows without a fingerprint are treated as changed and get one on the next MRP run.
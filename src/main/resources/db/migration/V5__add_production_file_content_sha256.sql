@@ -0,0 +1,18 @@
+-- ============================================
+-- Migration: Add content digest to production files
+-- Purpose: Program directory sync compares stored digests instead of re-reading every file
+-- Date: 2026-10-17
+-- ============================================
+
+-- NOTE: Currently the project uses Hibernate with ddl-auto=create-drop,
+-- so the column is created automatically from the ProductionFileInfo entity.
+-- This migration script is provided for:
+-- 1. Documentation purposes
+-- 2. Future migration to Flyway/Liquibase
+-- 3. Manual production deployments on MariaDB
+
+ALTER TABLE _production_file_info ADD COLUMN content_sha256 CHAR(64) NULL;
+
+-- No backfill: the digest of older files is computed from the uploaded copy on their next sync.
+-- Each synced order/part directory on the machine share also gets a ".prodq-manifest" file
+-- (name, size, modification time, SHA-256) written by the application.
@@ -0,0 +1,23 @@
+-- ============================================
+-- Migration: Add normalized part name to production queue items
+-- Purpose: Unique part name allocation with one indexed prefix query instead of full table scans
+-- Date: 2026-10-17
+-- ============================================
+
+-- NOTE: Currently the project uses Hibernate with ddl-auto=create-drop,
+-- so the column and index are created automatically from the ProductionQueueItem entity.
+-- This migration script is provided for:
+-- 1. Documentation purposes
+-- 2. Future migration to Flyway/Liquibase
+-- 3. Manual production deployments on MariaDB
+
+ALTER TABLE _production_queue_item ADD COLUMN normalized_part_name VARCHAR(255) NULL;
+
+CREATE INDEX idx_pqi_queue_type_normalized_part_name ON _production_queue_item (queue_type, normalized_part_name);
+
+-- One-time backfill. Part names are stored sanitized already, so lower-casing matches what the
+-- entity computes (@PrePersist/@PreUpdate) for practically every row; the rest are corrected on
+-- their next save.
+UPDATE _production_queue_item
+SET normalized_part_name = LOWER(part_name)
+WHERE normalized_part_name IS NULL;
@@ -0,0 +1,21 @@
+-- ============================================
+-- Migration: Sparse queue positions (order_position as rank with gaps)
+-- Purpose: Reordering a queue updates only the moved rows instead of every row after them
+-- Date: 2026-10-17
+-- ============================================
+
+-- NOTE: Currently the project uses Hibernate with ddl-auto=create-drop,
+-- so the index is created automatically from the ProductionQueueItem entity.
+-- This migration script is provided for:
+-- 1. Documentation purposes
+-- 2. Future migration to Flyway/Liquibase
+-- 3. Manual production deployments on MariaDB
+
+-- Neighbour lookups when placing a program (MIN(order_position) > :rank within a queue)
+CREATE INDEX idx_pqi_queue_type_order_position ON _production_queue_item (queue_type, order_position);
+
+-- One-time respacing of the old dense positions (0, 1, 2, ...) to the rank gap (1024).
+-- Optional: without it each queue is renumbered automatically on its first reorder.
+UPDATE _production_queue_item
+SET order_position = order_position * 1024
+WHERE order_position BETWEEN 0 AND 1000000;
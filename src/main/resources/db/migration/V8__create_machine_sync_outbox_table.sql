@@ -0,0 +1,39 @@
+-- ============================================
+-- Migration: Create machine sync outbox table
+-- Purpose: Filesystem side effects of queue changes are recorded in the transaction and applied after commit
+-- Date: 2026-10-17
+-- ============================================
+
+-- NOTE: Currently the project uses Hibernate with ddl-auto=create-drop,
+-- so this table will be created automatically from the MachineSyncIntent entity.
+-- This migration script is provided for:
+-- 1. Documentation purposes
+-- 2. Future migration to Flyway/Liquibase
+-- 3. Manual production deployments on MariaDB
+
+CREATE TABLE IF NOT EXISTS _machine_sync_outbox (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+
+    -- PROGRAM_FILES | REMOVE_FILES | QUEUE_FILE
+    kind VARCHAR(20) NOT NULL,
+    queue_type VARCHAR(255),
+    program_id INTEGER,
+    -- REMOVE_FILES: "F<TAB>path" / "D<TAB>path" lines
+    payload LONGTEXT,
+
+    -- PENDING | FAILED (gave up after machine-sync.outbox.max-attempts)
+    status VARCHAR(10) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    last_error VARCHAR(1000)
+);
+
+-- Worker poll: due PENDING entries, oldest first
+CREATE INDEX idx_mso_status_next_attempt ON _machine_sync_outbox (status, next_attempt_at);
+
+-- ============================================
+-- Rollback script (for emergencies)
+-- ============================================
+
+-- DROP TABLE IF EXISTS _machine_sync_outbox;
@@ -0,0 +1,22 @@
+-- ============================================
+-- Migration: Move image blobs out of _file_image
+-- Purpose: Images live in a content-addressed file store (app.image-store.dir); rows keep metadata and the SHA-256 key
+-- Date: 2026-10-17
+-- ============================================
+
+-- NOTE: Currently the project uses Hibernate with ddl-auto=create-drop,
+-- so the columns are created automatically from the FileImage entity.
+-- This migration script is provided for:
+-- 1. Documentation purposes
+-- 2. Future migration to Flyway/Liquibase
+-- 3. Manual production deployments on MariaDB
+
+ALTER TABLE _file_image ADD COLUMN content_hash CHAR(64) NULL;
+ALTER TABLE _file_image ADD COLUMN size BIGINT NULL;
+
+CREATE INDEX idx_file_image_content_hash ON _file_image (content_hash);
+
+-- No SQL backfill: on startup the application writes every image that still has image_data
+-- into the store, sets content_hash/size and clears image_data (one image per transaction).
+-- Once no row has image_data left, the column can be dropped:
+-- ALTER TABLE _file_image DROP COLUMN image_data;
@@ -0,0 +1,152 @@
+package com.example.prodqapi.productionQueueItem;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Property test: the table-driven, memoizing sanitizer must produce exactly the output of the
+ * original regex/Normalizer implementation (kept below as the reference) for arbitrary input.
+ */
+class InframetMpfSanitizerTest {
+
+    private static final String[] FRAGMENTS = {
+            "Korpus", "łożysko", "ŻÓŁĆ", "Zamówienie", "ABC Sp. z o.o.", "wał/oś", "_MAC", "_mac12", "_A", "_V",
+            "_v3", ".MPF", ".mpf", ".pdf", ".", "..", " ", "\t", "-", "_", "#", "%", "(1)", "ﬁ", "Å", "é",
+            "é", "ą", "҃", "⃗", "한글", "😀", "\uD800", "\uDC00", "ß", "Æ", "ŉ", "Ŀ", "ǅ",
+            "Ω", "ü", " ", "　", "中文", "Straße", "12", "0"
+    };
+
+    private final Random random = new Random(20261017L);
+
+    @Test
+    void matchesReferenceImplementationForRandomNames() {
+        InframetMpfSanitizer sanitizer = new InframetMpfSanitizer(256);
+        LegacyInframetMpfSanitizer reference = new LegacyInframetMpfSanitizer();
+
+        for (int i = 0; i < 50_000; i++) {
+            String name = randomName();
+            Map<String, Object> options = Map.of("maxLength", 4 + random.nextInt(40));
+            String expected = reference.sanitize(name, options);
+            assertEquals(expected, sanitizer.sanitize(name, options), () -> "Input: " + escape(name));
+            // Second call is served from the memo
+            assertEquals(expected, sanitizer.sanitize(name, options), () -> "Memoized input: " + escape(name));
+        }
+    }
+
+    @Test
+    void matchesReferenceImplementationForEveryBmpCharacter() {
+        InframetMpfSanitizer sanitizer = new InframetMpfSanitizer(0);
+        LegacyInframetMpfSanitizer reference = new LegacyInframetMpfSanitizer();
+        Map<String, Object> options = Map.of("maxLength", 24);
+
+        for (int c = 1; c <= 0xFFFF; c++) {
+            String name = "a" + (char) c + "b.MPF";
+            assertEquals(reference.sanitize(name, options), sanitizer.sanitize(name, options),
+                    "Character U+" + Integer.toHexString(c));
+        }
+    }
+
+    private String randomName() {
+        StringBuilder name = new StringBuilder();
+        int parts = 1 + random.nextInt(8);
+        for (int p = 0; p < parts; p++) {
+            if (random.nextInt(4) == 0) {
+                name.appendCodePoint(random.nextInt(0x3000));
+            } else {
+                name.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+        }
+        return name.toString();
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder();
+        text.chars().forEach(c -> escaped.append(c < 0x20 || c > 0x7E ? String.format("\\u%04X", c) : String.valueOf((char) c)));
+        return escaped.toString();
+    }
+
+    /**
+     * The original implementation of InframetMpfSanitizer, unchanged
+     */
+    private static class LegacyInframetMpfSanitizer {
+
+        private static final List<Pattern> SUFFIX_PATTERNS = List.of(
+                Pattern.compile("(?<base>.*)(?<suffix>_[Mm][Aa][Cc]\\d+_[A-Za-z]_[Vv]\\d+)$"),
+                Pattern.compile("(?<base>.*)(?<suffix>_[Mm][Aa][Cc]\\d+_[A-Za-z]$)"),
+                Pattern.compile("(?<base>.*)(?<suffix>_[Mm][Aa][Cc]\\d+)$")
+        );
+
+        public String sanitize(String originalFileName, Map<String, Object> options) {
+            if (originalFileName == null || originalFileName.trim().isEmpty()) {
+                return "default_name";
+            }
+
+            int maxLength = (int) options.getOrDefault("maxLength", 24);
+
+            String sanitized = normalizeAndClean(originalFileName.trim());
+
+            String ext = getFileExtension(sanitized);
+            String nameWithoutExt = sanitized.substring(0, sanitized.length() - ext.length());
+
+            String[] parts = extractSuffixAndBase(nameWithoutExt);
+            String baseName = parts[0];
+            String suffix = parts[1];
+
+            baseName = truncateBaseName(baseName, suffix, ext, maxLength);
+
+            return baseName + suffix + ext;
+        }
+
+        private String[] extractSuffixAndBase(String nameWithoutExt) {
+            for (Pattern pattern : SUFFIX_PATTERNS) {
+                Matcher matcher = pattern.matcher(nameWithoutExt);
+                if (matcher.matches()) {
+                    return new String[]{matcher.group("base"), matcher.group("suffix")};
+                }
+            }
+            return new String[]{nameWithoutExt, ""};
+        }
+
+        /**
+         * ZAKTUALIZOWANA LOGIKA SKRACANIA
+         * Skraca bazową część nazwy pliku, zachowując tylko jej początek,
+         * aby całość zmieściła się w podanym limicie.
+         */
+        private String truncateBaseName(String baseName, String suffix, String ext, int maxLength) {
+            int maxBaseLength = maxLength - suffix.length() - ext.length();
+            if (maxBaseLength < 0) {
+                maxBaseLength = 0;
+            }
+
+            if (baseName.length() > maxBaseLength) {
+                return baseName.substring(0, maxBaseLength);
+            }
+
+            return baseName;
+        }
+
+        private String normalizeAndClean(String text) {
+            String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                    .replaceAll("[\\p{InCombiningDiacriticalMarks}]", "")
+                    .replaceAll("[ąĄ]", "a").replaceAll("[ćĆ]", "c")
+                    .replaceAll("[ęĘ]", "e").replaceAll("[łŁ]", "l")
+                    .replaceAll("[ńŃ]", "n").replaceAll("[óÓ]", "o")
+                    .replaceAll("[śŚ]", "s").replaceAll("[źŹ]", "z")
+                    .replaceAll("[żŻ]", "z");
+            return normalized.replaceAll("[^a-zA-Z0-9_\\-\\.\\s]", "_");
+        }
+
+        private String getFileExtension(String fileName) {
+            int lastDot = fileName.lastIndexOf('.');
+            return (lastDot == -1) ? "" : fileName.substring(lastDot);
+        }
+    }
+}
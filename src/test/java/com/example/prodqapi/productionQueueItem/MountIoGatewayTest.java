@@ -0,0 +1,141 @@
+package com.example.prodqapi.productionQueueItem;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Timeouts and circuit breaker of the mount gateway, with a share that never answers simulated
+ * by operations blocking on a latch.
+ */
+class MountIoGatewayTest {
+
+    private static final Path SLOW_MOUNT_FILE = Paths.get("/mnt/slow-share/program.MPF");
+    private static final Path OTHER_MOUNT_FILE = Paths.get("/srv/other-share/program.MPF");
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final CountDownLatch hung = new CountDownLatch(1);
+    private final MountIoGateway gateway = new MountIoGateway(4, 10, 100, 2, 30_000, now::get);
+
+    @AfterEach
+    void release() {
+        hung.countDown();
+        gateway.stop();
+    }
+
+    @Test
+    void hungOperationTimesOutAndOpensTheBreaker() throws IOException {
+        assertThrows(MountIoGateway.MountUnavailableException.class, () -> gateway.call(SLOW_MOUNT_FILE, "exists", this::hang));
+        assertEquals(MountIoGateway.BreakerState.CLOSED, gateway.getBreakerState(SLOW_MOUNT_FILE));
+        assertThrows(MountIoGateway.MountUnavailableException.class, () -> gateway.call(SLOW_MOUNT_FILE, "exists", this::hang));
+        assertEquals(MountIoGateway.BreakerState.OPEN, gateway.getBreakerState(SLOW_MOUNT_FILE));
+
+        // Open breaker fails fast without running the operation
+        AtomicInteger runs = new AtomicInteger();
+        assertThrows(MountIoGateway.MountUnavailableException.class,
+                () -> gateway.call(SLOW_MOUNT_FILE, "exists", () -> runs.incrementAndGet() > 0));
+        assertEquals(0, runs.get());
+
+        // Other mounts are not affected
+        assertTrue(gateway.call(OTHER_MOUNT_FILE, "exists", () -> true));
+    }
+
+    @Test
+    void degradedMountServesLastKnownResult() throws IOException {
+        assertTrue(gateway.callCached(SLOW_MOUNT_FILE, "isFileAccessible", () -> true));
+        openBreaker();
+
+        assertTrue(gateway.callCached(SLOW_MOUNT_FILE, "isFileAccessible", this::hang));
+        assertThrows(MountIoGateway.MountUnavailableException.class,
+                () -> gateway.callCached(SLOW_MOUNT_FILE, "isDirectoryAccessible", this::hang));
+    }
+
+    @Test
+    void successfulTrialAfterOpenPeriodClosesTheBreaker() throws IOException {
+        openBreaker();
+        now.addAndGet(30_000);
+
+        assertEquals("ok", gateway.call(SLOW_MOUNT_FILE, "exists", () -> "ok"));
+        assertEquals(MountIoGateway.BreakerState.CLOSED, gateway.getBreakerState(SLOW_MOUNT_FILE));
+    }
+
+    @Test
+    void failedTrialReopensTheBreaker() {
+        openBreaker();
+        now.addAndGet(30_000);
+
+        assertThrows(MountIoGateway.MountUnavailableException.class, () -> gateway.call(SLOW_MOUNT_FILE, "exists", this::hang));
+        assertEquals(MountIoGateway.BreakerState.OPEN, gateway.getBreakerState(SLOW_MOUNT_FILE));
+    }
+
+    @Test
+    void errorsReportedByTheMountDoNotCountAsFailures() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(AccessDeniedException.class, () -> gateway.call(SLOW_MOUNT_FILE, "open", () -> {
+                throw new AccessDeniedException(SLOW_MOUNT_FILE.toString());
+            }));
+        }
+        assertEquals(MountIoGateway.BreakerState.CLOSED, gateway.getBreakerState(SLOW_MOUNT_FILE));
+    }
+
+    @Test
+    void timedOutExclusiveOperationKeepsThePathBusyUntilItEnds() throws Exception {
+        assertThrows(MountIoGateway.MountUnavailableException.class,
+                () -> gateway.callExclusive(SLOW_MOUNT_FILE, "write", this::hangIgnoringInterrupts));
+
+        // The share is still carrying out the first write - a retry must not overlap it
+        AtomicInteger runs = new AtomicInteger();
+        assertThrows(MountIoGateway.PathBusyException.class,
+                () -> gateway.callExclusive(SLOW_MOUNT_FILE, "write", () -> runs.incrementAndGet() > 0));
+        assertEquals(0, runs.get());
+        assertTrue(gateway.callExclusive(OTHER_MOUNT_FILE, "write", () -> true));
+
+        hung.countDown();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (runs.get() == 0 && System.currentTimeMillis() < deadline) {
+            try {
+                gateway.callExclusive(SLOW_MOUNT_FILE, "write", () -> runs.incrementAndGet() > 0);
+            } catch (MountIoGateway.PathBusyException e) {
+                Thread.sleep(10);
+            }
+        }
+        assertEquals(1, runs.get());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 2; i++) {
+            assertThrows(MountIoGateway.MountUnavailableException.class, () -> gateway.call(SLOW_MOUNT_FILE, "exists", this::hang));
+        }
+        assertEquals(MountIoGateway.BreakerState.OPEN, gateway.getBreakerState(SLOW_MOUNT_FILE));
+    }
+
+    private boolean hangIgnoringInterrupts() {
+        while (true) {
+            try {
+                hung.await();
+                return true;
+            } catch (InterruptedException e) {
+                // A hung share doesn't notice the cancellation
+            }
+        }
+    }
+
+    private boolean hang() {
+        try {
+            hung.await();
+        } catch (InterruptedException e) {
+            // Cancelled after the timeout; a real hung share would ignore this
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+}
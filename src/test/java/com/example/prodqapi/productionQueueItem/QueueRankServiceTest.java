@@ -0,0 +1,222 @@
+package com.example.prodqapi.productionQueueItem;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Rank assignment of {@link QueueRankService}, with the repository answering from an in-memory
+ * list of programs the way the JPQL queries would.
+ */
+class QueueRankServiceTest {
+
+    private static final String QUEUE = "1";
+    private static final int GAP = QueueRankService.GAP;
+    private static final int MIN_RANK = Integer.MIN_VALUE / 2;
+
+    private final List<ProductionQueueItem> rows = new ArrayList<>();
+    private final ProductionQueueItemRepository repository = mock(ProductionQueueItemRepository.class);
+    private final QueueRankService rankService = new QueueRankService(repository);
+
+    @BeforeEach
+    void stubRepository() {
+        when(repository.findMaxOrderByQueueType(anyString())).thenAnswer(invocation ->
+                ranked(invocation.getArgument(0)).mapToInt(ProductionQueueItem::getOrder).max().orElse(-1));
+        when(repository.findMinOrderByQueueType(anyString())).thenAnswer(invocation ->
+                min(ranked(invocation.getArgument(0))));
+        when(repository.findMinOrderByQueueTypeExcluding(anyString(), anyInt())).thenAnswer(invocation ->
+                min(ranked(invocation.getArgument(0))
+                        .filter(item -> !item.getId().equals(invocation.getArgument(1)))));
+        when(repository.findNextOrder(anyString(), anyInt(), anyInt())).thenAnswer(invocation ->
+                min(ranked(invocation.getArgument(0))
+                        .filter(item -> item.getOrder() > (Integer) invocation.getArgument(1))
+                        .filter(item -> !item.getId().equals(invocation.getArgument(2)))));
+        when(repository.findByQueueTypeInRankOrder(anyString())).thenAnswer(invocation -> rows.stream()
+                .filter(item -> invocation.getArgument(0).equals(item.getQueueType()))
+                .sorted(Comparator.comparing(ProductionQueueItem::getOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparing(ProductionQueueItem::getId))
+                .toList());
+        when(repository.findById(any())).thenAnswer(invocation -> rows.stream()
+                .filter(item -> item.getId().equals(invocation.getArgument(0)))
+                .findFirst());
+    }
+
+    @Test
+    void reorderKeepsRanksOfRowsAlreadyInOrder() {
+        ProductionQueueItem a = row(1, 1024);
+        ProductionQueueItem b = row(2, 2048);
+        ProductionQueueItem c = row(3, 3072);
+        ProductionQueueItem d = row(4, 4096);
+
+        // C dragged in front of B
+        int changed = rankService.applySequence(QUEUE, List.of(a, c, b, d));
+
+        assertEquals(1, changed);
+        assertEquals(1024, a.getOrder());
+        assertEquals(2048, b.getOrder());
+        assertEquals(4096, d.getOrder());
+        assertTrue(a.getOrder() < c.getOrder() && c.getOrder() < b.getOrder());
+        verify(repository, never()).findByQueueTypeInRankOrder(anyString());
+    }
+
+    @Test
+    void unchangedSequenceChangesNothing() {
+        ProductionQueueItem a = row(1, 1024);
+        ProductionQueueItem b = row(2, 2048);
+
+        assertEquals(0, rankService.applySequence(QUEUE, List.of(a, b)));
+        assertEquals(1024, a.getOrder());
+        assertEquals(2048, b.getOrder());
+    }
+
+    @Test
+    void insertBetweenAdjacentRanksRebalancesTheQueue() {
+        ProductionQueueItem a = row(1, 1024);
+        ProductionQueueItem b = row(2, 1025);
+        ProductionQueueItem moved = row(3, "2", 1024);
+
+        rankService.placeAfter(moved, QUEUE, a.getId());
+
+        verify(repository).findByQueueTypeInRankOrder(QUEUE);
+        assertEquals(QUEUE, moved.getQueueType());
+        assertEquals(GAP, a.getOrder());
+        assertEquals(2 * GAP, b.getOrder());
+        assertTrue(a.getOrder() < moved.getOrder() && moved.getOrder() < b.getOrder());
+    }
+
+    @Test
+    void insertWithRoomBetweenNeighboursTouchesOnlyTheMovedRow() {
+        ProductionQueueItem a = row(1, 1024);
+        ProductionQueueItem b = row(2, 2048);
+        ProductionQueueItem moved = row(3, 3072);
+
+        rankService.placeAfter(moved, QUEUE, a.getId());
+
+        verify(repository, never()).findByQueueTypeInRankOrder(anyString());
+        assertEquals(1536, moved.getOrder());
+        assertEquals(1024, a.getOrder());
+        assertEquals(2048, b.getOrder());
+    }
+
+    @Test
+    void repeatedPlaceAtStartNearMinRankRebalancesInsteadOfOverflowing() {
+        ProductionQueueItem first = row(1, MIN_RANK + GAP);
+        ProductionQueueItem last = row(2, MIN_RANK + 2 * GAP);
+
+        List<ProductionQueueItem> expectedOrder = new ArrayList<>(List.of(first, last));
+        for (int id = 3; id < 8; id++) {
+            ProductionQueueItem item = row(id, "2", 1024);
+            rankService.placeAtStart(QUEUE, List.of(item));
+            expectedOrder.add(0, item);
+
+            assertEquals(expectedOrder, repository.findByQueueTypeInRankOrder(QUEUE));
+            for (ProductionQueueItem row : expectedOrder) {
+                assertTrue(row.getOrder() >= MIN_RANK, "rank below MIN_RANK: " + row.getOrder());
+            }
+        }
+        // The second placement had no room left below MIN_RANK and renumbered the queue
+        assertEquals(2 * GAP, first.getOrder());
+        assertEquals(3 * GAP, last.getOrder());
+    }
+
+    @Test
+    void placeAtStartKeepsTheOrderOfPlacedItems() {
+        row(1, 1024);
+        ProductionQueueItem x = row(2, "2", 5);
+        ProductionQueueItem y = row(3, "2", 1);
+
+        rankService.placeAtStart(QUEUE, List.of(x, y));
+
+        assertEquals(List.of(x, y), repository.findByQueueTypeInRankOrder(QUEUE).subList(0, 2));
+        assertEquals(1024 - 2 * GAP, x.getOrder());
+        assertEquals(1024 - GAP, y.getOrder());
+    }
+
+    @Test
+    void denseLegacyRanksAreRenumberedWhenNothingFitsBetween() {
+        ProductionQueueItem a = row(1, 0);
+        ProductionQueueItem b = row(2, 1);
+        ProductionQueueItem c = row(3, 2);
+        ProductionQueueItem unranked = row(4, null);
+
+        int changed = rankService.applySequence(QUEUE, List.of(a, unranked, b, c));
+
+        assertEquals(4, changed);
+        assertEquals(List.of(GAP, 2 * GAP, 3 * GAP, 4 * GAP),
+                List.of(a.getOrder(), unranked.getOrder(), b.getOrder(), c.getOrder()));
+    }
+
+    @Test
+    void unrankedRowAppendedAfterDenseRanksKeepsTheRest() {
+        ProductionQueueItem a = row(1, 0);
+        ProductionQueueItem b = row(2, 1);
+        ProductionQueueItem unranked = row(3, null);
+
+        int changed = rankService.applySequence(QUEUE, List.of(a, b, unranked));
+
+        assertEquals(1, changed);
+        assertEquals(0, a.getOrder());
+        assertEquals(1, b.getOrder());
+        assertEquals(1 + GAP, unranked.getOrder());
+    }
+
+    @Test
+    void placeAfterUnrankedRowRebalancesFirst() {
+        ProductionQueueItem unranked = row(1, null);
+        ProductionQueueItem ranked = row(2, 0);
+        ProductionQueueItem moved = row(3, "2", 1024);
+
+        rankService.placeAfter(moved, QUEUE, unranked.getId());
+
+        // Unranked rows sort last when the queue is renumbered
+        assertEquals(GAP, ranked.getOrder());
+        assertEquals(2 * GAP, unranked.getOrder());
+        assertEquals(3 * GAP, moved.getOrder());
+    }
+
+    @Test
+    void newItemGoesAfterTheLastRank() {
+        assertEquals(GAP, rankService.rankForNewItem(QUEUE));
+
+        row(1, 0);
+        row(2, 7);
+        assertEquals(7 + GAP, rankService.rankForNewItem(QUEUE));
+    }
+
+    private ProductionQueueItem row(int id, Integer order) {
+        return row(id, QUEUE, order);
+    }
+
+    private ProductionQueueItem row(int id, String queueType, Integer order) {
+        ProductionQueueItem item = new ProductionQueueItem();
+        item.setId(id);
+        item.setQueueType(queueType);
+        item.setOrder(order);
+        rows.add(item);
+        return item;
+    }
+
+    private Stream<ProductionQueueItem> ranked(String queueType) {
+        return rows.stream()
+                .filter(item -> queueType.equals(item.getQueueType()))
+                .filter(item -> item.getOrder() != null);
+    }
+
+    private static Integer min(Stream<ProductionQueueItem> items) {
+        return items.map(ProductionQueueItem::getOrder)
+                .filter(Objects::nonNull)
+                .min(Integer::compare)
+                .orElse(null);
+    }
+}